@@ -0,0 +1,56 @@
+package com.github.marschall.rangetree.jmh;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares looking up {@value RangeTreeState#KEY_COUNT} keys one by one
+ * to looking them up with
+ * {@link com.github.marschall.rangetree.LLRBRangeTree#getAll(Comparable[], Object[])}.
+ *
+ * <p>The scores are per key.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BatchLookupBenchmark {
+
+  private final String[] values = new String[RangeTreeState.KEY_COUNT];
+
+  @Benchmark
+  @OperationsPerInvocation(RangeTreeState.KEY_COUNT)
+  public void getEach(RangeTreeState state, Blackhole blackhole) {
+    for (Comparable<Object> key : state.lookupKeys) {
+      blackhole.consume(state.tree.get(key));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RangeTreeState.KEY_COUNT)
+  public String[] getAllUnsorted(RangeTreeState state) {
+    state.tree.getAll(state.lookupKeys, this.values);
+    return this.values;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RangeTreeState.KEY_COUNT)
+  public String[] getAllSorted(RangeTreeState state) {
+    state.tree.getAll(state.sortedLookupKeys, this.values);
+    return this.values;
+  }
+
+}
@@ -0,0 +1,96 @@
+package com.github.marschall.rangetree.jmh;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.github.marschall.rangetree.Range;
+import com.github.marschall.rangetree.RangeMap;
+
+/**
+ * Measures {@link RangeMap#computeIfAbsent(Comparable, java.util.function.Function)}
+ * when all threads miss on the same key at the same time.
+ *
+ * <p>All threads look up the same key which is not mapped, the loader is
+ * slow. Once the key is mapped the next missing key is used. The
+ * {@code loads} counter reports how often the loader was invoked, with
+ * perfect deduplication it equals the number of distinct keys. The number
+ * of threads is set with {@code -t}, eg. {@code -t 16}.</p>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ComputeIfAbsentStormBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class SharedMap {
+
+    @Param({"SYNCHRONIZED", "STAMPED", "PERSISTENT"})
+    public ConcurrentImplementation implementation;
+
+    /**
+     * The amount of work done by the loader, in {@link Blackhole#consumeCPU(long)} tokens.
+     */
+    @Param({"10000"})
+    public long loadTokens;
+
+    RangeMap<Long, String> map;
+
+    final AtomicLong missingKey = new AtomicLong();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+      this.map = this.implementation.newMap();
+      this.missingKey.set(0L);
+    }
+
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class LoadCounter {
+
+    /**
+     * The number of times the loader was invoked by this thread.
+     */
+    public long loads;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+      this.loads = 0L;
+    }
+
+  }
+
+  @Benchmark
+  public String computeIfAbsent(SharedMap state, LoadCounter counter) {
+    long key = state.missingKey.get();
+    String value = state.map.computeIfAbsent(key, k -> {
+      counter.loads += 1L;
+      Blackhole.consumeCPU(state.loadTokens);
+      return new SimpleImmutableEntry<>(new Range<>(k, k + 8L), "Loaded");
+    });
+    // move all threads to the next missing key
+    state.missingKey.compareAndSet(key, key + 10L);
+    return value;
+  }
+
+}
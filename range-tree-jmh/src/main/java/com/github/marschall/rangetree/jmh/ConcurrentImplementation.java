@@ -0,0 +1,59 @@
+package com.github.marschall.rangetree.jmh;
+
+import com.github.marschall.rangetree.LLRBRangeTree;
+import com.github.marschall.rangetree.PersistentLLRBRangeTree;
+import com.github.marschall.rangetree.RangeMap;
+import com.github.marschall.rangetree.StampedLockRangeMap;
+import com.github.marschall.rangetree.SynchronizedRangeMap;
+
+/**
+ * The thread safe {@link RangeMap} implementations to benchmark.
+ */
+public enum ConcurrentImplementation {
+
+  /**
+   * {@link SynchronizedRangeMap} around {@link LLRBRangeTree}.
+   */
+  SYNCHRONIZED {
+
+    @Override
+    <K extends Comparable<? super K>, V> RangeMap<K, V> newMap() {
+      return new SynchronizedRangeMap<K, V>(new LLRBRangeTree<>());
+    }
+
+  },
+
+  /**
+   * {@link StampedLockRangeMap} around {@link LLRBRangeTree}.
+   */
+  STAMPED {
+
+    @Override
+    <K extends Comparable<? super K>, V> RangeMap<K, V> newMap() {
+      return new StampedLockRangeMap<K, V>(new LLRBRangeTree<>());
+    }
+
+  },
+
+  /**
+   * {@link PersistentLLRBRangeTree}.
+   */
+  PERSISTENT {
+
+    @Override
+    <K extends Comparable<? super K>, V> RangeMap<K, V> newMap() {
+      return new PersistentLLRBRangeTree<>();
+    }
+
+  };
+
+  /**
+   * Creates a new, empty map.
+   *
+   * @param <K> the type of keys in the map
+   * @param <V> the type of values in the map
+   * @return the new map
+   */
+  abstract <K extends Comparable<? super K>, V> RangeMap<K, V> newMap();
+
+}
@@ -0,0 +1,93 @@
+package com.github.marschall.rangetree.jmh;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.marschall.rangetree.RangeMap;
+
+/**
+ * Measures throughput and latency percentiles of the thread safe
+ * {@link RangeMap} implementations under a mix of reads and writes.
+ *
+ * <p>The number of threads is set with {@code -t}, eg. {@code -t 8}.
+ * Reads are {@link RangeMap#get(Comparable)} of an existing range, writes
+ * are {@link RangeMap#putIfAbsent(Comparable, Comparable, Object)} of a
+ * new range after all existing ones. As a consequence the map grows
+ * during a write heavy run, it is reset at every iteration.</p>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentionBenchmark {
+
+  @State(Scope.Benchmark)
+  public static class SharedMap {
+
+    @Param({"SYNCHRONIZED", "STAMPED", "PERSISTENT"})
+    public ConcurrentImplementation implementation;
+
+    /**
+     * The percentage of operations that are reads, the rest are writes.
+     */
+    @Param({"100", "99", "90"})
+    public int readPercent;
+
+    @Param({"100000"})
+    public int size;
+
+    RangeMap<Long, String> map;
+
+    final AtomicLong nextLow = new AtomicLong();
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+      this.map = this.implementation.newMap();
+      for (int i = 0; i < this.size; i++) {
+        this.map.put(i * 10L, i * 10L + 8L, "Range " + i);
+      }
+      this.nextLow.set(this.size * 10L);
+    }
+
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadRandom {
+
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+      this.random = new SplittableRandom(Thread.currentThread().getId());
+    }
+
+  }
+
+  @Benchmark
+  public String readWrite(SharedMap state, ThreadRandom thread) {
+    SplittableRandom random = thread.random;
+    if (random.nextInt(100) < state.readPercent) {
+      return state.map.get(random.nextLong(state.size * 10L));
+    } else {
+      long low = state.nextLow.getAndAdd(10L);
+      return state.map.putIfAbsent(low, low + 8L, "Written");
+    }
+  }
+
+}
@@ -0,0 +1,47 @@
+package com.github.marschall.rangetree.jmh;
+
+import java.util.Random;
+
+/**
+ * The distributions of the keys looked up.
+ */
+public enum KeyDistribution {
+
+  /**
+   * Every range is equally likely to be looked up.
+   */
+  UNIFORM {
+
+    @Override
+    int nextIndex(Random random, int size) {
+      return random.nextInt(size);
+    }
+
+  },
+
+  /**
+   * A small number of ranges receive most of the lookups.
+   */
+  SKEWED {
+
+    @Override
+    int nextIndex(Random random, int size) {
+      // about half of the lookups go to the first 1/16 of the ranges
+      double uniform = random.nextDouble();
+      int index = (int) (uniform * uniform * uniform * uniform * size);
+      // spread the hot ranges over the whole tree instead of the leftmost subtree
+      return (int) ((index * 0x9E3779B1L) % size);
+    }
+
+  };
+
+  /**
+   * Picks the index of the next range to look up.
+   *
+   * @param random the source of randomness
+   * @param size the number of ranges
+   * @return the index of the range, between 0 inclusive and {@code size} exclusive
+   */
+  abstract int nextIndex(Random random, int size);
+
+}
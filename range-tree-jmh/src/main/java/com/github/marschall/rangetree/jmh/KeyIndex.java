@@ -0,0 +1,20 @@
+package com.github.marschall.rangetree.jmh;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Cycles through the precomputed keys of {@link RangeTreeState}.
+ */
+@State(Scope.Thread)
+public class KeyIndex {
+
+  private int index;
+
+  int next() {
+    int next = this.index;
+    this.index = next + 1;
+    return next & RangeTreeState.KEY_MASK;
+  }
+
+}
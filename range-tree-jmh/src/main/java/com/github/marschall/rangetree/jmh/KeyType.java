@@ -0,0 +1,108 @@
+package com.github.marschall.rangetree.jmh;
+
+import java.math.BigInteger;
+import java.util.function.ToIntFunction;
+
+import com.github.marschall.rangetree.PrefixIndexedRangeMap;
+
+/**
+ * The types of keys to benchmark.
+ */
+public enum KeyType {
+
+  U96 {
+
+    @Override
+    Comparable<?> key(long value) {
+      return com.github.marschall.rangetree.key.U96.valueOf(Long.toString(value));
+    }
+
+    @Override
+    ToIntFunction<Comparable<Object>> prefix(int totalDigits, int prefixDigits) {
+      ToIntFunction<com.github.marschall.rangetree.key.U96> prefix = com.github.marschall.rangetree.key.U96.prefix(totalDigits, prefixDigits);
+      return key -> prefix.applyAsInt((com.github.marschall.rangetree.key.U96) (Object) key);
+    }
+
+  },
+
+  LONG {
+
+    @Override
+    Comparable<?> key(long value) {
+      return Long.valueOf(value);
+    }
+
+    @Override
+    ToIntFunction<Comparable<Object>> prefix(int totalDigits, int prefixDigits) {
+      ToIntFunction<Long> prefix = PrefixIndexedRangeMap.longPrefix(totalDigits, prefixDigits);
+      return key -> prefix.applyAsInt((Long) (Object) key);
+    }
+
+  },
+
+  BIG_INTEGER {
+
+    @Override
+    Comparable<?> key(long value) {
+      return BigInteger.valueOf(value);
+    }
+
+    @Override
+    ToIntFunction<Comparable<Object>> prefix(int totalDigits, int prefixDigits) {
+      ToIntFunction<Long> prefix = PrefixIndexedRangeMap.longPrefix(totalDigits, prefixDigits);
+      return key -> prefix.applyAsInt(((BigInteger) (Object) key).longValue());
+    }
+
+  },
+
+  STRING {
+
+    @Override
+    Comparable<?> key(long value) {
+      // pad so that the lexicographical order is the numerical order
+      String digits = Long.toString(value);
+      StringBuilder buffer = new StringBuilder(19);
+      for (int i = digits.length(); i < 19; i++) {
+        buffer.append('0');
+      }
+      return buffer.append(digits).toString();
+    }
+
+    @Override
+    ToIntFunction<Comparable<Object>> prefix(int totalDigits, int prefixDigits) {
+      int start = 19 - totalDigits;
+      return key -> {
+        String s = (String) (Object) key;
+        int prefix = 0;
+        for (int i = start; i < start + prefixDigits; i++) {
+          prefix = prefix * 10 + (s.charAt(i) - '0');
+        }
+        return prefix;
+      };
+    }
+
+  };
+
+  /**
+   * Converts a non-negative number to a key of this type.
+   *
+   * @param value the number to convert, non-negative
+   * @return the key, same order as {@code value}
+   */
+  abstract Comparable<?> key(long value);
+
+  /**
+   * Returns a prefix function for {@link PrefixIndexedRangeMap}.
+   *
+   * @param totalDigits the number of digits of the largest key
+   * @param prefixDigits the number of leading digits to use
+   * @return the prefix function
+   */
+  abstract ToIntFunction<Comparable<Object>> prefix(int totalDigits, int prefixDigits);
+
+  @SuppressWarnings("unchecked")
+  Comparable<Object> comparableKey(long value) {
+    return (Comparable<Object>) this.key(value);
+  }
+
+}
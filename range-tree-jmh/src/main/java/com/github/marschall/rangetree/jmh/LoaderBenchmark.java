@@ -0,0 +1,82 @@
+package com.github.marschall.rangetree.jmh;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.marschall.rangetree.FieldParser;
+import com.github.marschall.rangetree.LLRBRangeTree;
+import com.github.marschall.rangetree.RangeTableLoader;
+import com.github.marschall.rangetree.key.U96;
+
+/**
+ * Compares loading a comma separated BIN table of {@link #lines} lines
+ * line by line through {@link String}s with {@link RangeTableLoader}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoaderBenchmark {
+
+  private static final int PADDED_LENGTH = 19;
+
+  @Param({"100000", "1000000"})
+  public int lines;
+
+  private byte[] file;
+
+  private RangeTableLoader<U96, String> loader;
+
+  @Setup
+  public void setUp() {
+    StringBuilder buffer = new StringBuilder(this.lines * 40);
+    for (int i = 0; i < this.lines; i++) {
+      long low = 400_000_000L + i * 10L;
+      buffer.append(low).append(',')
+        .append(low + 9L).append(',')
+        .append("Issuer ").append(i % 100).append('\n');
+    }
+    this.file = buffer.toString().getBytes(US_ASCII);
+    this.loader = RangeTableLoader.delimited(',', U96.paddedParser(PADDED_LENGTH, 0), FieldParser.strings(US_ASCII));
+  }
+
+  @Benchmark
+  public LLRBRangeTree<U96, String> stringLines() throws IOException {
+    LLRBRangeTree<U96, String> tree = new LLRBRangeTree<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(this.file), US_ASCII))) {
+      String line = reader.readLine();
+      while (line != null) {
+        String[] fields = line.split(",");
+        tree.put(U96.valueOfPadded(fields[0], PADDED_LENGTH, 0), U96.valueOfPadded(fields[1], PADDED_LENGTH, 0), fields[2]);
+        line = reader.readLine();
+      }
+    }
+    return tree;
+  }
+
+  @Benchmark
+  public LLRBRangeTree<U96, String> rangeTableLoader() throws IOException {
+    return this.loader.load(Channels.newChannel(new ByteArrayInputStream(this.file)));
+  }
+
+}
@@ -0,0 +1,66 @@
+package com.github.marschall.rangetree.jmh;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map.Entry;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.marschall.rangetree.Range;
+
+/**
+ * Measures the read paths of {@link com.github.marschall.rangetree.LLRBRangeTree}
+ * and lookups in its read only copies.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+  private static final Function<Comparable<Object>, Entry<Range<? extends Comparable<Object>>, ? extends String>> MAPPING_FUNCTION =
+      key -> new SimpleImmutableEntry<>(new Range<>(key, key), "Loaded");
+
+  @Benchmark
+  public String get(RangeTreeState state, KeyIndex index) {
+    return state.tree.get(state.lookupKeys[index.next()]);
+  }
+
+  @Benchmark
+  public String getArray(RangeTreeState state, KeyIndex index) {
+    return state.arrayMap.get(state.lookupKeys[index.next()]);
+  }
+
+  @Benchmark
+  public String getEytzinger(RangeTreeState state, KeyIndex index) {
+    return state.eytzingerMap.get(state.lookupKeys[index.next()]);
+  }
+
+  @Benchmark
+  public String getPrefixIndexed(RangeTreeState state, KeyIndex index) {
+    return state.prefixIndexedMap.get(state.lookupKeys[index.next()]);
+  }
+
+  @Benchmark
+  public String putIfAbsent(RangeTreeState state, KeyIndex index) {
+    // the range always exists, the tree is not modified
+    int i = index.next();
+    return state.tree.putIfAbsent(state.lows[i], state.highs[i], "Other");
+  }
+
+  @Benchmark
+  public String computeIfAbsent(RangeTreeState state, KeyIndex index) {
+    // the key is always mapped, the tree is not modified
+    return state.tree.computeIfAbsent(state.hitKeys[index.next()], MAPPING_FUNCTION);
+  }
+
+}
@@ -0,0 +1,83 @@
+package com.github.marschall.rangetree.jmh;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.marschall.rangetree.LLRBRangeTree;
+
+/**
+ * Measures filling a {@link LLRBRangeTree} with {@link #size} ranges
+ * using {@link LLRBRangeTree#put(Comparable, Comparable, Object)}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PutBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int size;
+
+  @Param({"U96", "LONG", "BIG_INTEGER", "STRING"})
+  public KeyType keyType;
+
+  /**
+   * Whether the ranges are inserted in ascending order or shuffled.
+   */
+  @Param({"true", "false"})
+  public boolean sorted;
+
+  private Comparable<Object>[] lows;
+
+  private Comparable<Object>[] highs;
+
+  @Setup
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void setUp() {
+    this.lows = new Comparable[this.size];
+    this.highs = new Comparable[this.size];
+    for (int i = 0; i < this.size; i++) {
+      this.lows[i] = this.keyType.comparableKey(i * 10L);
+      this.highs[i] = this.keyType.comparableKey(i * 10L + 8L);
+    }
+    if (!this.sorted) {
+      Random random = new Random(0x5EEDL);
+      for (int i = this.size - 1; i > 0; i--) {
+        int j = random.nextInt(i + 1);
+        swap(this.lows, i, j);
+        swap(this.highs, i, j);
+      }
+    }
+  }
+
+  private static void swap(Object[] array, int i, int j) {
+    Object temp = array[i];
+    array[i] = array[j];
+    array[j] = temp;
+  }
+
+  @Benchmark
+  public LLRBRangeTree<Comparable<Object>, String> put() {
+    LLRBRangeTree<Comparable<Object>, String> tree = new LLRBRangeTree<>();
+    for (int i = 0; i < this.size; i++) {
+      tree.put(this.lows[i], this.highs[i], "Range");
+    }
+    return tree;
+  }
+
+}
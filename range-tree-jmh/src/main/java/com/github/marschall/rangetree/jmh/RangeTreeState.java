@@ -0,0 +1,115 @@
+package com.github.marschall.rangetree.jmh;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.github.marschall.rangetree.ArrayRangeMap;
+import com.github.marschall.rangetree.EytzingerRangeMap;
+import com.github.marschall.rangetree.LLRBRangeTree;
+import com.github.marschall.rangetree.PrefixIndexedRangeMap;
+
+/**
+ * A tree of {@link #size} ranges and the keys to look up in it.
+ *
+ * <p>Range {@code i} covers {@code [i * 10, i * 10 + 8]}, the keys
+ * {@code i * 10 + 9} are not mapped.</p>
+ */
+@State(Scope.Benchmark)
+public class RangeTreeState {
+
+  /**
+   * The number of precomputed keys, must be a power of two.
+   */
+  static final int KEY_COUNT = 4096;
+
+  static final int KEY_MASK = KEY_COUNT - 1;
+
+  @Param({"1000", "100000", "1000000"})
+  public int size;
+
+  @Param({"U96", "LONG", "BIG_INTEGER", "STRING"})
+  public KeyType keyType;
+
+  @Param({"UNIFORM", "SKEWED"})
+  public KeyDistribution distribution;
+
+  LLRBRangeTree<Comparable<Object>, String> tree;
+
+  /**
+   * Read only copy of {@link #tree}.
+   */
+  ArrayRangeMap<Comparable<Object>, String> arrayMap;
+
+  /**
+   * Read only copy of {@link #tree}.
+   */
+  EytzingerRangeMap<Comparable<Object>, String> eytzingerMap;
+
+  /**
+   * Read only copy of {@link #tree} indexed by all but the last two digits.
+   */
+  PrefixIndexedRangeMap<Comparable<Object>, String> prefixIndexedMap;
+
+  /**
+   * Keys to look up, about 10% of them are not mapped.
+   */
+  Comparable<Object>[] lookupKeys;
+
+  /**
+   * {@link #lookupKeys} sorted in ascending order.
+   */
+  Comparable<Object>[] sortedLookupKeys;
+
+  /**
+   * Keys to look up, all of them are mapped.
+   */
+  Comparable<Object>[] hitKeys;
+
+  /**
+   * The lower bounds of existing ranges.
+   */
+  Comparable<Object>[] lows;
+
+  /**
+   * The upper bounds of existing ranges, same indices as {@link #lows}.
+   */
+  Comparable<Object>[] highs;
+
+  @Setup
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void setUp() {
+    LLRBRangeTree.Builder<Comparable<Object>, String> builder = LLRBRangeTree.builder();
+    for (int i = 0; i < this.size; i++) {
+      builder.add(this.keyType.comparableKey(i * 10L), this.keyType.comparableKey(i * 10L + 8L), "Range " + i);
+    }
+    this.tree = builder.build();
+    this.arrayMap = ArrayRangeMap.copyOf(this.tree);
+    this.eytzingerMap = EytzingerRangeMap.copyOf(this.tree);
+    // every slot covers 100 keys which is 10 ranges
+    int totalDigits = Long.toString(this.size * 10L - 1L).length();
+    int prefixDigits = totalDigits - 2;
+    int slots = (int) Math.pow(10.0d, prefixDigits);
+    this.prefixIndexedMap = PrefixIndexedRangeMap.copyOf(this.tree, this.keyType.prefix(totalDigits, prefixDigits), slots);
+
+    Random random = new Random(0x5EEDL);
+    this.lookupKeys = new Comparable[KEY_COUNT];
+    this.hitKeys = new Comparable[KEY_COUNT];
+    this.lows = new Comparable[KEY_COUNT];
+    this.highs = new Comparable[KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; i++) {
+      long rangeStart = this.distribution.nextIndex(random, this.size) * 10L;
+      this.lookupKeys[i] = this.keyType.comparableKey(rangeStart + random.nextInt(10));
+      this.hitKeys[i] = this.keyType.comparableKey(rangeStart + random.nextInt(9));
+      this.lows[i] = this.keyType.comparableKey(rangeStart);
+      this.highs[i] = this.keyType.comparableKey(rangeStart + 8L);
+    }
+    this.sortedLookupKeys = this.lookupKeys.clone();
+    Arrays.sort(this.sortedLookupKeys);
+  }
+
+}
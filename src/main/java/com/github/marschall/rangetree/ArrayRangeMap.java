@@ -0,0 +1,222 @@
+package com.github.marschall.rangetree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * An immutable range map backed by sorted arrays.
+ *
+ * <p>The lower bounds, upper bounds and values are stored in parallel
+ * arrays sorted by lower bound. Lookups are done using a binary search.
+ * Compared to {@link LLRBRangeTree} there are no per node objects and
+ * lookups access memory sequentially.</p>
+ *
+ * <p>This object is thread-safe, all mutating methods throw
+ * {@link UnsupportedOperationException}.</p>
+ *
+ * @param <K> the type of keys in this map
+ * @param <V> the type of values in this map
+ */
+public final class ArrayRangeMap<K extends Comparable<? super K>, V> implements RangeMap<K, V> {
+
+  // we can not create generic arrays
+  private final Object[] lows;
+  private final Object[] highs;
+  private final Object[] values;
+
+  private ArrayRangeMap(Object[] lows, Object[] highs, Object[] values) {
+    this.lows = lows;
+    this.highs = highs;
+    this.values = values;
+  }
+
+  /**
+   * Creates an immutable copy of a {@link LLRBRangeTree}.
+   *
+   * <p>Later modifications of the tree are not reflected in the copy.</p>
+   *
+   * @param <K> the type of keys in the map
+   * @param <V> the type of values in the map
+   * @param tree the tree to copy, not {@code null}
+   * @return the immutable copy
+   * @throws NullPointerException if {@code tree} is {@code null}
+   */
+  public static <K extends Comparable<? super K>, V> ArrayRangeMap<K, V> copyOf(LLRBRangeTree<K, V> tree) {
+    Objects.requireNonNull(tree, "tree");
+    Builder<K, V> builder = new Builder<>();
+    // nodes are visited in order and can not overlap, no need to validate
+    tree.forEachNode(node -> builder.addUnchecked(node.low, node.high, node.value));
+    return builder.build();
+  }
+
+  /**
+   * Creates a builder for ranges sorted by the lower bound.
+   *
+   * @param <K> the type of keys in the map
+   * @param <V> the type of values in the map
+   * @return the new builder
+   */
+  public static <K extends Comparable<? super K>, V> Builder<K, V> builder() {
+    return new Builder<>();
+  }
+
+  /**
+   * Returns the number of ranges in this map.
+   *
+   * @return the number of ranges in this map
+   */
+  public int size() {
+    return this.lows.length;
+  }
+
+  @Override
+  public void clear() {
+    throw immutable();
+  }
+
+  @Override
+  public V get(K key) {
+    Objects.requireNonNull(key, "key");
+    int index = this.indexOf(key);
+    if (index < 0) {
+      return null;
+    }
+    return this.valueAt(index);
+  }
+
+  @Override
+  public Entry<Range<K>, V> getEntry(K key) {
+    Objects.requireNonNull(key, "key");
+    int index = this.indexOf(key);
+    if (index < 0) {
+      return null;
+    }
+    return new SimpleImmutableEntry<>(new Range<>(this.lowAt(index), this.highAt(index)), this.valueAt(index));
+  }
+
+  private int indexOf(K key) {
+    int low = 0;
+    int high = this.lows.length - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (this.lowAt(middle).compareTo(key) > 0) {
+        high = middle - 1;
+      } else if (this.highAt(middle).compareTo(key) < 0) {
+        low = middle + 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  @SuppressWarnings("unchecked")
+  private K lowAt(int index) {
+    return (K) this.lows[index];
+  }
+
+  @SuppressWarnings("unchecked")
+  private K highAt(int index) {
+    return (K) this.highs[index];
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(int index) {
+    return (V) this.values[index];
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+    throw immutable();
+  }
+
+  @Override
+  public void put(K low, K high, V value) {
+    throw immutable();
+  }
+
+  @Override
+  public V putIfAbsent(K low, K high, V value) {
+    throw immutable();
+  }
+
+  private static RuntimeException immutable() {
+    return new UnsupportedOperationException("immutable");
+  }
+
+  /**
+   * Builds an {@link ArrayRangeMap} from ranges sorted by the lower bound.
+   *
+   * <p>This object in not thread-safe.</p>
+   *
+   * @param <K> the type of keys in the map
+   * @param <V> the type of values in the map
+   */
+  public static final class Builder<K extends Comparable<? super K>, V> {
+
+    private final List<K> lows;
+    private final List<K> highs;
+    private final List<V> values;
+
+    Builder() {
+      this.lows = new ArrayList<>();
+      this.highs = new ArrayList<>();
+      this.values = new ArrayList<>();
+    }
+
+    /**
+     * Adds a range to the map.
+     *
+     * @param low the lower end of the range, inclusive, not {@code null}
+     * @param high the upper end of the range, inclusive, not {@code null}
+     * @param value the value to associate, possibly {@code null}
+     * @return this builder
+     * @throws IllegalArgumentException if {@code low} is not less than {@code high}
+     * @throws IllegalArgumentException if {@code low} is not greater than
+     *                                  the upper end of the previous range
+     * @throws NullPointerException if {@code low} or {@code high} are {@code null}
+     */
+    public Builder<K, V> add(K low, K high, V value) {
+      Objects.requireNonNull(low, "low");
+      Objects.requireNonNull(high, "high");
+      if (low.compareTo(high) > 0) {
+        throw new IllegalArgumentException("low: " + low
+            + " must be less than high: " + high);
+      }
+      int size = this.lows.size();
+      if (size > 0) {
+        K previousHigh = this.highs.get(size - 1);
+        if (previousHigh.compareTo(low) >= 0) {
+          throw new IllegalArgumentException("can not add range from: " + low
+              + " to: " + high
+              + " because it is not after range from: " + this.lows.get(size - 1)
+              + " to: " + previousHigh);
+        }
+      }
+      this.addUnchecked(low, high, value);
+      return this;
+    }
+
+    void addUnchecked(K low, K high, V value) {
+      this.lows.add(low);
+      this.highs.add(high);
+      this.values.add(value);
+    }
+
+    /**
+     * Creates a new {@link ArrayRangeMap} containing all the ranges
+     * added so far.
+     *
+     * @return the new map
+     */
+    public ArrayRangeMap<K, V> build() {
+      return new ArrayRangeMap<>(this.lows.toArray(), this.highs.toArray(), this.values.toArray());
+    }
+
+  }
+
+}
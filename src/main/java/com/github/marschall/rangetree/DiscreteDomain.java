@@ -0,0 +1,77 @@
+package com.github.marschall.rangetree;
+
+/**
+ * A domain of discrete values where every value except the smallest has
+ * a predecessor and every value except the largest has a successor.
+ *
+ * <p>Needed to compute the bounds of a range that is trimmed because
+ * a range overlapping it is put.</p>
+ *
+ * @param <T> the type of values in the domain
+ * @see LLRBRangeTree#putOverriding(Comparable, Comparable, Object, DiscreteDomain)
+ */
+public interface DiscreteDomain<T> {
+
+  /**
+   * Returns the value immediately following a value.
+   *
+   * @param value the value, not {@code null}
+   * @return the smallest value greater than {@code value}
+   * @throws ArithmeticException if {@code value} is the largest value
+   *                             of the domain
+   */
+  T next(T value);
+
+  /**
+   * Returns the value immediately preceding a value.
+   *
+   * @param value the value, not {@code null}
+   * @return the greatest value less than {@code value}
+   * @throws ArithmeticException if {@code value} is the smallest value
+   *                             of the domain
+   */
+  T previous(T value);
+
+  /**
+   * Returns the domain of all {@link Integer} values.
+   *
+   * @return the domain of all {@link Integer} values
+   */
+  static DiscreteDomain<Integer> integers() {
+    return new DiscreteDomain<Integer>() {
+
+      @Override
+      public Integer next(Integer value) {
+        return Math.incrementExact(value);
+      }
+
+      @Override
+      public Integer previous(Integer value) {
+        return Math.decrementExact(value);
+      }
+
+    };
+  }
+
+  /**
+   * Returns the domain of all {@link Long} values.
+   *
+   * @return the domain of all {@link Long} values
+   */
+  static DiscreteDomain<Long> longs() {
+    return new DiscreteDomain<Long>() {
+
+      @Override
+      public Long next(Long value) {
+        return Math.incrementExact(value);
+      }
+
+      @Override
+      public Long previous(Long value) {
+        return Math.decrementExact(value);
+      }
+
+    };
+  }
+
+}
@@ -0,0 +1,194 @@
+package com.github.marschall.rangetree;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * An immutable range map backed by arrays in Eytzinger order.
+ *
+ * <p>Like {@link ArrayRangeMap} the lower bounds, upper bounds and values
+ * are stored in parallel arrays. However instead of being sorted they are
+ * stored in the order of a breadth first traversal of a complete binary
+ * search tree, the children of the element at index {@code i} are at
+ * {@code 2 * i} and {@code 2 * i + 1}. Compared to a binary search the
+ * first levels of the search share a few cache lines and the elements
+ * visited in the next steps are adjacent in memory, which makes it easier
+ * for the hardware to prefetch them. The search does not exit early and
+ * selects the next index based on the result of the comparison instead
+ * of branching.</p>
+ *
+ * <p>Only the arrays are laid out, the keys themselves remain separate
+ * objects.</p>
+ *
+ * <p>This object is thread-safe, all mutating methods throw
+ * {@link UnsupportedOperationException}.</p>
+ *
+ * @param <K> the type of keys in this map
+ * @param <V> the type of values in this map
+ * @see <a href="https://arxiv.org/abs/1509.05053">Array Layouts for Comparison-Based Searching</a>
+ */
+public final class EytzingerRangeMap<K extends Comparable<? super K>, V> implements RangeMap<K, V> {
+
+  /**
+   * The maximum number of ranges, ensures the index of the children does
+   * not overflow.
+   */
+  private static final int MAX_SIZE = (1 << 30) - 1;
+
+  // one based, the element at index 0 is unused
+  // we can not create generic arrays
+  private final Object[] lows;
+  private final Object[] highs;
+  private final Object[] values;
+
+  private EytzingerRangeMap(Object[] lows, Object[] highs, Object[] values) {
+    this.lows = lows;
+    this.highs = highs;
+    this.values = values;
+  }
+
+  /**
+   * Creates an immutable copy of a {@link LLRBRangeTree}.
+   *
+   * <p>Later modifications of the tree are not reflected in the copy.</p>
+   *
+   * @param <K> the type of keys in the map
+   * @param <V> the type of values in the map
+   * @param tree the tree to copy, not {@code null}
+   * @return the immutable copy
+   * @throws NullPointerException if {@code tree} is {@code null}
+   * @throws IllegalArgumentException if {@code tree} contains
+   *                                  2<sup>30</sup> or more ranges
+   */
+  public static <K extends Comparable<? super K>, V> EytzingerRangeMap<K, V> copyOf(LLRBRangeTree<K, V> tree) {
+    Objects.requireNonNull(tree, "tree");
+    int size = tree.size();
+    if (size > MAX_SIZE) {
+      throw new IllegalArgumentException("too many ranges: " + size);
+    }
+    int[] order = new int[size + 1];
+    eytzingerOrder(order, 0, 1);
+
+    // order maps the index in Eytzinger order to the index in sorted order,
+    // we need the inverse to place every node while visiting them in order
+    int[] positions = new int[size];
+    for (int i = 1; i <= size; i++) {
+      positions[order[i]] = i;
+    }
+    Object[] lows = new Object[size + 1];
+    Object[] highs = new Object[size + 1];
+    Object[] values = new Object[size + 1];
+    int[] sortedIndex = new int[1];
+    tree.forEachNode(node -> {
+      int position = positions[sortedIndex[0]++];
+      lows[position] = node.low;
+      highs[position] = node.high;
+      values[position] = node.value;
+    });
+    return new EytzingerRangeMap<>(lows, highs, values);
+  }
+
+  /**
+   * Assigns the sorted indices to the subtree rooted at {@code index}
+   * using an in-order traversal.
+   *
+   * @return the next sorted index to assign
+   */
+  private static int eytzingerOrder(int[] order, int nextSortedIndex, int index) {
+    // recursion depth is bounded by log2 of the size
+    int next = nextSortedIndex;
+    if (index < order.length) {
+      next = eytzingerOrder(order, next, 2 * index);
+      order[index] = next++;
+      next = eytzingerOrder(order, next, (2 * index) + 1);
+    }
+    return next;
+  }
+
+  /**
+   * Returns the number of ranges in this map.
+   *
+   * @return the number of ranges in this map
+   */
+  public int size() {
+    return this.lows.length - 1;
+  }
+
+  @Override
+  public void clear() {
+    throw immutable();
+  }
+
+  @Override
+  public V get(K key) {
+    Objects.requireNonNull(key, "key");
+    int index = this.indexOf(key);
+    if (index == 0) {
+      return null;
+    }
+    return this.valueAt(index);
+  }
+
+  @Override
+  public Entry<Range<K>, V> getEntry(K key) {
+    Objects.requireNonNull(key, "key");
+    int index = this.indexOf(key);
+    if (index == 0) {
+      return null;
+    }
+    return new SimpleImmutableEntry<>(new Range<>(this.lowAt(index), this.highAt(index)), this.valueAt(index));
+  }
+
+  private int indexOf(K key) {
+    int size = this.highs.length - 1;
+    int index = 1;
+    while (index <= size) {
+      // go right if the range is before the key, otherwise left
+      index = (2 * index) + (this.highAt(index).compareTo(key) < 0 ? 1 : 0);
+    }
+    // the trailing one bits are the right turns after the last left turn,
+    // removing them and the left turn gives the first range with high >= key
+    index >>>= Integer.numberOfTrailingZeros(~index) + 1;
+    if (index == 0 || this.lowAt(index).compareTo(key) > 0) {
+      return 0;
+    }
+    return index;
+  }
+
+  @SuppressWarnings("unchecked")
+  private K lowAt(int index) {
+    return (K) this.lows[index];
+  }
+
+  @SuppressWarnings("unchecked")
+  private K highAt(int index) {
+    return (K) this.highs[index];
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(int index) {
+    return (V) this.values[index];
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+    throw immutable();
+  }
+
+  @Override
+  public void put(K low, K high, V value) {
+    throw immutable();
+  }
+
+  @Override
+  public V putIfAbsent(K low, K high, V value) {
+    throw immutable();
+  }
+
+  private static RuntimeException immutable() {
+    return new UnsupportedOperationException("immutable");
+  }
+
+}
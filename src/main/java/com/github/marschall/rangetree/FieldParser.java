@@ -0,0 +1,51 @@
+package com.github.marschall.rangetree;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Objects;
+
+/**
+ * Parses a field of a line in a byte buffer.
+ *
+ * @param <T> the type of the parsed objects
+ * @see RangeTableLoader
+ */
+@FunctionalInterface
+public interface FieldParser<T> {
+
+  /**
+   * Parses a field.
+   *
+   * <p>Implementations must not modify the position or limit of the buffer
+   * and should avoid creating intermediate objects.</p>
+   *
+   * @param buffer the buffer containing the field, not {@code null}
+   * @param index the index in {@code buffer} of the first byte of the field
+   * @param length the number of bytes of the field
+   * @return the parsed object
+   * @throws IllegalArgumentException if the field can not be parsed
+   */
+  T parse(ByteBuffer buffer, int index, int length);
+
+  /**
+   * Returns a parser that decodes fields into strings.
+   *
+   * @param charset the charset of the fields, not {@code null}
+   * @return a parser that decodes fields into strings
+   * @throws NullPointerException if {@code charset} is {@code null}
+   */
+  static FieldParser<String> strings(Charset charset) {
+    Objects.requireNonNull(charset, "charset");
+    return (buffer, index, length) -> {
+      if (buffer.hasArray()) {
+        return new String(buffer.array(), buffer.arrayOffset() + index, length, charset);
+      }
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++) {
+        bytes[i] = buffer.get(index + i);
+      }
+      return new String(bytes, charset);
+    };
+  }
+
+}
@@ -0,0 +1,212 @@
+package com.github.marschall.rangetree;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Holds a {@link RangeMap} that can be replaced atomically by a new
+ * version built in the background.
+ *
+ * <p>A reload builds the complete replacement first, for example with
+ * {@link LLRBRangeTree#builder()}, and then publishes it through a single
+ * {@code volatile} write. Lookups read the current version once and never
+ * take a lock, so they either see the complete old or the complete new
+ * version. Lookups that are in progress during a reload finish on the old
+ * version.</p>
+ *
+ * <p>{@link #clear()} is not supported, an empty map is published like
+ * any other version with {@link #reload(Supplier)}.</p>
+ *
+ * <p>Writes go to the current version. Writes to a version that is being
+ * replaced are lost unless the replacement includes them. The current
+ * version has to be thread-safe if it is written concurrently with
+ * lookups.</p>
+ *
+ * <p>A reload replaces all ranges behind the back of any wrapper. A
+ * wrapper that remembers ranges returns ranges of the old version unless
+ * it checks {@link #currentVersion()}. {@link LastHitRangeMap} does so
+ * only if it wraps this map directly.</p>
+ *
+ * <p>This object is thread-safe if the versions are.</p>
+ *
+ * @param <K> the type of keys in this map
+ * @param <V> the type of values in this map
+ */
+public final class HotSwapRangeMap<K extends Comparable<? super K>, V> implements RangeMap<K, V> {
+
+  private volatile Version<K, V> current;
+
+  private final Object publishLock;
+
+  /**
+   * Constructs a new {@link HotSwapRangeMap}.
+   *
+   * @param initial the first version, has version number 1, not {@code null}
+   * @throws NullPointerException if {@code initial} is {@code null}
+   */
+  public HotSwapRangeMap(RangeMap<K, V> initial) {
+    Objects.requireNonNull(initial, "initial");
+    this.current = new Version<>(initial, 1L, Instant.now(), Duration.ZERO);
+    this.publishLock = new Object();
+  }
+
+  /**
+   * Returns the current version.
+   *
+   * @return the current version, not {@code null}
+   */
+  public Version<K, V> currentVersion() {
+    return this.current;
+  }
+
+  /**
+   * Builds a new version on the calling thread and publishes it.
+   *
+   * <p>If the supplier fails the current version is kept. If several
+   * reloads run concurrently the last one to finish is published last.</p>
+   *
+   * @param supplier builds the new version, not {@code null}
+   * @return the published version
+   * @throws NullPointerException if {@code supplier} is {@code null}
+   *                              or returns {@code null}
+   */
+  public Version<K, V> reload(Supplier<? extends RangeMap<K, V>> supplier) {
+    Objects.requireNonNull(supplier, "supplier");
+    long start = System.nanoTime();
+    RangeMap<K, V> map = Objects.requireNonNull(supplier.get(), "supplier returned null");
+    Duration buildDuration = Duration.ofNanos(System.nanoTime() - start);
+    synchronized (this.publishLock) {
+      Version<K, V> published = new Version<>(map, this.current.number + 1L, Instant.now(), buildDuration);
+      this.current = published;
+      return published;
+    }
+  }
+
+  /**
+   * Builds a new version on an executor and publishes it.
+   *
+   * @param supplier builds the new version, not {@code null}
+   * @param executor the executor on which to build the new version,
+   *                 not {@code null}
+   * @return a future of the published version, completes exceptionally
+   *         if the supplier fails in which case the current version is kept
+   * @throws NullPointerException if {@code supplier} or {@code executor}
+   *                              is {@code null}
+   * @see #reload(Supplier)
+   */
+  public CompletableFuture<Version<K, V>> reloadAsync(Supplier<? extends RangeMap<K, V>> supplier, Executor executor) {
+    Objects.requireNonNull(supplier, "supplier");
+    Objects.requireNonNull(executor, "executor");
+    return CompletableFuture.supplyAsync(() -> this.reload(supplier), executor);
+  }
+
+  /**
+   * Not supported, clearing the current version in place would expose an
+   * empty map to concurrent lookups. Publish an empty version with
+   * {@link #reload(Supplier)} instead.
+   *
+   * @throws UnsupportedOperationException always
+   */
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException("clear in place, use reload with an empty map");
+  }
+
+  @Override
+  public V get(K key) {
+    return this.current.map.get(key);
+  }
+
+  @Override
+  public Entry<Range<K>, V> getEntry(K key) {
+    return this.current.map.getEntry(key);
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+    return this.current.map.computeIfAbsent(key, mappingFunction);
+  }
+
+  @Override
+  public void put(K low, K high, V value) {
+    this.current.map.put(low, high, value);
+  }
+
+  @Override
+  public V putIfAbsent(K low, K high, V value) {
+    return this.current.map.putIfAbsent(low, high, value);
+  }
+
+  /**
+   * A published version of a {@link HotSwapRangeMap}.
+   *
+   * @param <K> the type of keys in the map
+   * @param <V> the type of values in the map
+   */
+  public static final class Version<K extends Comparable<? super K>, V> {
+
+    private final RangeMap<K, V> map;
+    private final long number;
+    private final Instant publishedAt;
+    private final Duration buildDuration;
+
+    Version(RangeMap<K, V> map, long number, Instant publishedAt, Duration buildDuration) {
+      this.map = map;
+      this.number = number;
+      this.publishedAt = publishedAt;
+      this.buildDuration = buildDuration;
+    }
+
+    /**
+     * Returns the map of this version.
+     *
+     * @return the map of this version
+     */
+    public RangeMap<K, V> getMap() {
+      return this.map;
+    }
+
+    /**
+     * Returns the version number, starts at 1 and increases by 1 with every reload.
+     *
+     * @return the version number
+     */
+    public long getNumber() {
+      return this.number;
+    }
+
+    /**
+     * Returns when this version was published.
+     *
+     * @return when this version was published
+     */
+    public Instant getPublishedAt() {
+      return this.publishedAt;
+    }
+
+    /**
+     * Returns how long it took to build this version.
+     *
+     * @return how long it took to build this version,
+     *         {@link Duration#ZERO} for the initial version
+     */
+    public Duration getBuildDuration() {
+      return this.buildDuration;
+    }
+
+    @Override
+    public String toString() {
+      return "version: " + this.number
+          + ", published at: " + this.publishedAt
+          + ", build duration: " + this.buildDuration;
+    }
+
+  }
+
+}
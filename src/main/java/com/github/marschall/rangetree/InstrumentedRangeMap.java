@@ -0,0 +1,475 @@
+package com.github.marschall.rangetree;
+
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Records metrics of the operations on a {@link RangeMap}.
+ *
+ * <p>The following metrics are recorded:</p>
+ * <ul>
+ *  <li>lookups that found a value (hits) and lookups that did not (misses),
+ *  {@link #computeIfAbsent(Comparable, Function)} counts as a hit only if
+ *  the value is found without loading, callers that wait for a load
+ *  started by an other thread, as coalesced by
+ *  {@link PersistentLLRBRangeTree}, count as misses</li>
+ *  <li>invocations of the mapping function of
+ *  {@link #computeIfAbsent(Comparable, Function)} (loads), how many of them
+ *  failed and a histogram of their latencies</li>
+ *  <li>calls to {@link #putIfAbsent(Comparable, Comparable, Object)} that
+ *  found an existing range (conflicts), an existing range mapping to
+ *  {@code null} is only detected when putting a value that is not
+ *  {@code null} and the delegate supports
+ *  {@link RangeMap#getEntry(Comparable)}</li>
+ *  <li>if the delegate is a {@link LLRBRangeTree} the depth of a sample of
+ *  the lookups. The tree has to be the direct delegate, if it is wrapped,
+ *  for example in a {@link SynchronizedRangeMap} or a
+ *  {@link StampedLockRangeMap}, no depth is recorded. Wrap the tree
+ *  directly and this object in the thread-safe map instead.</li>
+ * </ul>
+ *
+ * <p>Counters use {@link LongAdder} so that concurrent updates do not
+ * contend. When disabled no metrics are recorded and the only overhead
+ * is reading a volatile field.</p>
+ *
+ * <p>This object is thread-safe if the delegate is thread-safe.</p>
+ *
+ * @param <K> the type of keys in this map
+ * @param <V> the type of values in this map
+ */
+public final class InstrumentedRangeMap<K extends Comparable<? super K>, V> implements RangeMap<K, V> {
+
+  /**
+   * The number of buckets of the latency histogram, the last bucket
+   * contains all latencies of 2<sup>39</sup> nanoseconds (about nine
+   * minutes) and more.
+   */
+  static final int HISTOGRAM_BUCKETS = 40;
+
+  private static final int DEFAULT_DEPTH_SAMPLE_INTERVAL = 64;
+
+  private final RangeMap<K, V> delegate;
+
+  // null if the delegate is not a LLRBRangeTree
+  private final LLRBRangeTree<K, V> tree;
+
+  // false if the delegate does not override RangeMap#getEntry
+  private final boolean readsEntries;
+
+  private final int depthSampleMask;
+
+  private volatile boolean enabled;
+
+  private final LongAdder hits;
+  private final LongAdder misses;
+  private final LongAdder loads;
+  private final LongAdder loadFailures;
+  private final LongAdder loadTimeNanos;
+  private final LongAdder[] loadLatencyHistogram;
+  private final LongAdder putIfAbsentConflicts;
+  private final LongAdder depthSamples;
+  private final LongAdder depthSum;
+  private final LongAccumulator maxDepth;
+
+  /**
+   * Constructs a new {@link InstrumentedRangeMap} that samples the depth
+   * of every 64th lookup on average.
+   *
+   * @param delegate the delegate to wrap, not {@code null}
+   * @throws NullPointerException if {@code delegate} is {@code null}
+   */
+  public InstrumentedRangeMap(RangeMap<K, V> delegate) {
+    this(delegate, DEFAULT_DEPTH_SAMPLE_INTERVAL);
+  }
+
+  /**
+   * Constructs a new {@link InstrumentedRangeMap}.
+   *
+   * @param delegate the delegate to wrap, not {@code null}
+   * @param depthSampleInterval on average the depth of every n-th lookup is
+   *                            recorded, has to be a power of two, only used
+   *                            if {@code delegate} is a {@link LLRBRangeTree}
+   * @throws NullPointerException if {@code delegate} is {@code null}
+   * @throws IllegalArgumentException if {@code depthSampleInterval} is not a
+   *                                  power of two
+   */
+  public InstrumentedRangeMap(RangeMap<K, V> delegate, int depthSampleInterval) {
+    Objects.requireNonNull(delegate, "delegate");
+    if (depthSampleInterval <= 0 || Integer.bitCount(depthSampleInterval) != 1) {
+      throw new IllegalArgumentException("depthSampleInterval: " + depthSampleInterval
+          + " must be a power of two");
+    }
+    this.delegate = delegate;
+    this.tree = delegate instanceof LLRBRangeTree ? (LLRBRangeTree<K, V>) delegate : null;
+    this.readsEntries = RangeMaps.supportsGetEntry(delegate);
+    this.depthSampleMask = depthSampleInterval - 1;
+    this.enabled = true;
+    this.hits = new LongAdder();
+    this.misses = new LongAdder();
+    this.loads = new LongAdder();
+    this.loadFailures = new LongAdder();
+    this.loadTimeNanos = new LongAdder();
+    this.loadLatencyHistogram = new LongAdder[HISTOGRAM_BUCKETS];
+    for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+      this.loadLatencyHistogram[i] = new LongAdder();
+    }
+    this.putIfAbsentConflicts = new LongAdder();
+    this.depthSamples = new LongAdder();
+    this.depthSum = new LongAdder();
+    this.maxDepth = new LongAccumulator(Math::max, 0L);
+  }
+
+  /**
+   * Enables or disables recording of metrics. Metrics are enabled by default.
+   *
+   * @param enabled whether metrics should be recorded
+   */
+  public void setEnabled(boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  /**
+   * Returns whether metrics are recorded.
+   *
+   * @return whether metrics are recorded
+   */
+  public boolean isEnabled() {
+    return this.enabled;
+  }
+
+  /**
+   * Returns the current values of the metrics.
+   *
+   * <p>The values are not an atomic snapshot, updates that happen
+   * concurrently may or may not be included.</p>
+   *
+   * @return the current values of the metrics
+   */
+  public Snapshot snapshot() {
+    long[] histogram = new long[HISTOGRAM_BUCKETS];
+    for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+      histogram[i] = this.loadLatencyHistogram[i].sum();
+    }
+    return new Snapshot(this.hits.sum(), this.misses.sum(),
+        this.loads.sum(), this.loadFailures.sum(), this.loadTimeNanos.sum(), histogram,
+        this.putIfAbsentConflicts.sum(),
+        this.depthSamples.sum(), this.depthSum.sum(), this.maxDepth.get());
+  }
+
+  /**
+   * Resets all metrics to zero.
+   *
+   * <p>Updates that happen concurrently may or may not be lost.</p>
+   */
+  public void reset() {
+    this.hits.reset();
+    this.misses.reset();
+    this.loads.reset();
+    this.loadFailures.reset();
+    this.loadTimeNanos.reset();
+    for (LongAdder bucket : this.loadLatencyHistogram) {
+      bucket.reset();
+    }
+    this.putIfAbsentConflicts.reset();
+    this.depthSamples.reset();
+    this.depthSum.reset();
+    this.maxDepth.reset();
+  }
+
+  @Override
+  public void clear() {
+    this.delegate.clear();
+  }
+
+  @Override
+  public V get(K key) {
+    V value = this.delegate.get(key);
+    if (this.enabled) {
+      this.recordLookup(key, value != null);
+    }
+    return value;
+  }
+
+  @Override
+  public Entry<Range<K>, V> getEntry(K key) {
+    Entry<Range<K>, V> entry = this.delegate.getEntry(key);
+    if (this.enabled) {
+      this.recordLookup(key, entry != null);
+    }
+    return entry;
+  }
+
+  private void recordLookup(K key, boolean hit) {
+    if (hit) {
+      this.hits.increment();
+    } else {
+      this.misses.increment();
+    }
+    if (this.tree != null && (ThreadLocalRandom.current().nextInt() & this.depthSampleMask) == 0) {
+      long depth = this.tree.depthOf(key);
+      this.depthSamples.increment();
+      this.depthSum.add(depth);
+      this.maxDepth.accumulate(depth);
+    }
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+    if (!this.enabled) {
+      return this.delegate.computeIfAbsent(key, mappingFunction);
+    }
+    Objects.requireNonNull(mappingFunction, "mappingFunction");
+    // looked up first because the mapping function not being invoked does
+    // not mean the value was found, the delegate may have waited for a load
+    // of an other thread
+    V value = this.delegate.get(key);
+    this.recordLookup(key, value != null);
+    if (value != null) {
+      return value;
+    }
+    return this.delegate.computeIfAbsent(key, new TimedLoader(mappingFunction));
+  }
+
+  @Override
+  public void put(K low, K high, V value) {
+    this.delegate.put(low, high, value);
+  }
+
+  @Override
+  public V putIfAbsent(K low, K high, V value) {
+    V previous = this.delegate.putIfAbsent(low, high, value);
+    if (this.enabled && (previous != null || this.isMappedToNull(low, value))) {
+      this.putIfAbsentConflicts.increment();
+    }
+    return previous;
+  }
+
+  /**
+   * Checks whether a put that returned {@code null} found an existing
+   * range mapping to {@code null} instead of inserting.
+   */
+  private boolean isMappedToNull(K low, V value) {
+    if (value == null || !this.readsEntries) {
+      // can not be told apart from an insert
+      return false;
+    }
+    Entry<Range<K>, V> entry = this.delegate.getEntry(low);
+    // if the put had inserted the range would map to value
+    return entry != null && entry.getValue() == null;
+  }
+
+  void recordLoad(long nanos, boolean failed) {
+    this.loads.increment();
+    if (failed) {
+      this.loadFailures.increment();
+    }
+    this.loadTimeNanos.add(nanos);
+    this.loadLatencyHistogram[bucketOf(nanos)].increment();
+  }
+
+  /**
+   * Returns the histogram bucket of a latency, bucket {@code i} contains the
+   * latencies from 2<sup>i</sup> inclusive to 2<sup>i + 1</sup> exclusive
+   * nanoseconds, bucket 0 also contains 0.
+   */
+  static int bucketOf(long nanos) {
+    if (nanos <= 1L) {
+      return 0;
+    }
+    return Math.min(63 - Long.numberOfLeadingZeros(nanos), HISTOGRAM_BUCKETS - 1);
+  }
+
+  /**
+   * Wraps a mapping function to record how long it took and whether it failed.
+   */
+  final class TimedLoader implements Function<K, Entry<Range<? extends K>, ? extends V>> {
+
+    private final Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction;
+
+    TimedLoader(Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+      this.mappingFunction = mappingFunction;
+    }
+
+    @Override
+    public Entry<Range<? extends K>, ? extends V> apply(K key) {
+      long start = System.nanoTime();
+      boolean failed = true;
+      try {
+        Entry<Range<? extends K>, ? extends V> entry = this.mappingFunction.apply(key);
+        failed = false;
+        return entry;
+      } finally {
+        InstrumentedRangeMap.this.recordLoad(System.nanoTime() - start, failed);
+      }
+    }
+
+  }
+
+  /**
+   * The values of the metrics of an {@link InstrumentedRangeMap} at a point
+   * in time.
+   */
+  public static final class Snapshot {
+
+    private final long hits;
+    private final long misses;
+    private final long loads;
+    private final long loadFailures;
+    private final long loadTimeNanos;
+    private final long[] loadLatencyHistogram;
+    private final long putIfAbsentConflicts;
+    private final long depthSamples;
+    private final long depthSum;
+    private final long maxDepth;
+
+    Snapshot(long hits, long misses,
+        long loads, long loadFailures, long loadTimeNanos, long[] loadLatencyHistogram,
+        long putIfAbsentConflicts,
+        long depthSamples, long depthSum, long maxDepth) {
+      this.hits = hits;
+      this.misses = misses;
+      this.loads = loads;
+      this.loadFailures = loadFailures;
+      this.loadTimeNanos = loadTimeNanos;
+      this.loadLatencyHistogram = loadLatencyHistogram;
+      this.putIfAbsentConflicts = putIfAbsentConflicts;
+      this.depthSamples = depthSamples;
+      this.depthSum = depthSum;
+      this.maxDepth = maxDepth;
+    }
+
+    /**
+     * Returns the number of lookups that found a value.
+     *
+     * @return the number of lookups that found a value
+     */
+    public long getHits() {
+      return this.hits;
+    }
+
+    /**
+     * Returns the number of lookups that did not find a value.
+     *
+     * @return the number of lookups that did not find a value
+     */
+    public long getMisses() {
+      return this.misses;
+    }
+
+    /**
+     * Returns the ratio of misses to all lookups.
+     *
+     * @return the ratio of misses to all lookups, between 0 and 1,
+     *         0 if there were no lookups
+     */
+    public double getMissRate() {
+      long lookups = this.hits + this.misses;
+      if (lookups == 0L) {
+        return 0.0d;
+      }
+      return (double) this.misses / (double) lookups;
+    }
+
+    /**
+     * Returns the number of times the mapping function of
+     * {@link InstrumentedRangeMap#computeIfAbsent(Comparable, Function)}
+     * was invoked.
+     *
+     * @return the number of loads
+     */
+    public long getLoads() {
+      return this.loads;
+    }
+
+    /**
+     * Returns the number of times the mapping function threw an exception.
+     *
+     * @return the number of failed loads
+     */
+    public long getLoadFailures() {
+      return this.loadFailures;
+    }
+
+    /**
+     * Returns the total time spent in the mapping function.
+     *
+     * @return the total time spent loading, in nanoseconds
+     */
+    public long getTotalLoadTimeNanos() {
+      return this.loadTimeNanos;
+    }
+
+    /**
+     * Returns the histogram of the load latencies.
+     *
+     * <p>Element {@code i} contains the number of loads that took
+     * from 2<sup>i</sup> inclusive to 2<sup>i + 1</sup> exclusive
+     * nanoseconds. The first element also contains the loads that took
+     * less, the last element also contains the loads that took longer.</p>
+     *
+     * @return a copy of the histogram of the load latencies
+     */
+    public long[] getLoadLatencyHistogram() {
+      return this.loadLatencyHistogram.clone();
+    }
+
+    /**
+     * Returns the number of calls to
+     * {@link InstrumentedRangeMap#putIfAbsent(Comparable, Comparable, Object)}
+     * that found an existing value.
+     *
+     * @return the number of conflicting puts
+     */
+    public long getPutIfAbsentConflicts() {
+      return this.putIfAbsentConflicts;
+    }
+
+    /**
+     * Returns the number of lookups for which the depth was recorded.
+     *
+     * @return the number of depth samples, 0 if the direct delegate is
+     *         not a {@link LLRBRangeTree}
+     */
+    public long getDepthSamples() {
+      return this.depthSamples;
+    }
+
+    /**
+     * Returns the average number of nodes visited by the sampled lookups.
+     *
+     * @return the average depth, 0 if there are no samples
+     */
+    public double getAverageDepth() {
+      if (this.depthSamples == 0L) {
+        return 0.0d;
+      }
+      return (double) this.depthSum / (double) this.depthSamples;
+    }
+
+    /**
+     * Returns the maximum number of nodes visited by the sampled lookups.
+     *
+     * @return the maximum depth, 0 if there are no samples
+     */
+    public long getMaxDepth() {
+      return this.maxDepth;
+    }
+
+    @Override
+    public String toString() {
+      return "hits: " + this.hits
+          + ", misses: " + this.misses
+          + ", loads: " + this.loads
+          + ", load failures: " + this.loadFailures
+          + ", put if absent conflicts: " + this.putIfAbsentConflicts
+          + ", average depth: " + this.getAverageDepth()
+          + ", max depth: " + this.maxDepth;
+    }
+
+  }
+
+}
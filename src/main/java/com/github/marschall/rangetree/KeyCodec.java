@@ -0,0 +1,124 @@
+package com.github.marschall.rangetree;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes keys into a fixed number of bytes and compares encoded keys
+ * without decoding them.
+ *
+ * @param <K> the type of keys to encode
+ * @see MappedRangeMap
+ */
+public interface KeyCodec<K> {
+
+  /**
+   * Returns the number of bytes of an encoded key.
+   *
+   * @return the number of bytes of an encoded key, positive
+   */
+  int width();
+
+  /**
+   * Writes a key at the current position of a buffer.
+   *
+   * <p>Exactly {@link #width()} bytes have to be written.</p>
+   *
+   * @param key the key to write, not {@code null}
+   * @param buffer the buffer to write to, not {@code null}
+   */
+  void write(K key, ByteBuffer buffer);
+
+  /**
+   * Compares an encoded key to a key.
+   *
+   * <p>Implementations must not modify the position of the buffer
+   * and should not allocate.</p>
+   *
+   * @param buffer the buffer containing the encoded key, not {@code null}
+   * @param index the index in {@code buffer} of the encoded key
+   * @param key the key to compare to, not {@code null}
+   * @return a negative integer, zero, or a positive integer as the
+   *         encoded key is less than, equal to, or greater than {@code key}
+   * @see Comparable#compareTo(Object)
+   */
+  int compare(ByteBuffer buffer, int index, K key);
+
+  /**
+   * Reads an encoded key.
+   *
+   * <p>Implementations must not modify the position of the buffer.
+   * Only needed for {@link MappedRangeMap#getEntry(Comparable)}, the default
+   * implementation throws {@link UnsupportedOperationException}.</p>
+   *
+   * @param buffer the buffer containing the encoded key, not {@code null}
+   * @param index the index in {@code buffer} of the encoded key
+   * @return the decoded key, not {@code null}
+   * @throws UnsupportedOperationException if this codec can not decode keys
+   */
+  default K read(ByteBuffer buffer, int index) {
+    throw new UnsupportedOperationException(this.getClass().getName() + " does not support reading keys");
+  }
+
+  /**
+   * Returns a codec for {@link Long}.
+   *
+   * @return a codec for {@link Long}
+   */
+  static KeyCodec<Long> longs() {
+    return new KeyCodec<Long>() {
+
+      @Override
+      public int width() {
+        return Long.BYTES;
+      }
+
+      @Override
+      public void write(Long key, ByteBuffer buffer) {
+        buffer.putLong(key);
+      }
+
+      @Override
+      public int compare(ByteBuffer buffer, int index, Long key) {
+        return Long.compare(buffer.getLong(index), key);
+      }
+
+      @Override
+      public Long read(ByteBuffer buffer, int index) {
+        return buffer.getLong(index);
+      }
+
+    };
+  }
+
+  /**
+   * Returns a codec for {@link Integer}.
+   *
+   * @return a codec for {@link Integer}
+   */
+  static KeyCodec<Integer> integers() {
+    return new KeyCodec<Integer>() {
+
+      @Override
+      public int width() {
+        return Integer.BYTES;
+      }
+
+      @Override
+      public void write(Integer key, ByteBuffer buffer) {
+        buffer.putInt(key);
+      }
+
+      @Override
+      public int compare(ByteBuffer buffer, int index, Integer key) {
+        return Integer.compare(buffer.getInt(index), key);
+      }
+
+      @Override
+      public Integer read(ByteBuffer buffer, int index) {
+        return buffer.getInt(index);
+      }
+
+    };
+  }
+
+}
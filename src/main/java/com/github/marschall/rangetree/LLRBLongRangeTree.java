@@ -0,0 +1,193 @@
+package com.github.marschall.rangetree;
+
+/**
+ * A {@link LongRangeMap} implementation based on a left-leaning red-black tree.
+ *
+ * <p>The range bounds are stored as {@code long} in the nodes so lookups
+ * neither allocate nor make any megamorphic calls.</p>
+ *
+ * <p>This object in not thread-safe.</p>
+ *
+ * @param <V> the type of values in this tree
+ * @see LLRBRangeTree
+ * @see <a href="https://www.cs.princeton.edu/~rs/talks/LLRB/LLRB.pdf">Left-leaning Red-Black Trees</a>
+ */
+public final class LLRBLongRangeTree<V> implements LongRangeMap<V> {
+
+  private Node<V> root;
+
+  /**
+   * Default constructor.
+   */
+  public LLRBLongRangeTree() {
+    super();
+  }
+
+  @Override
+  public void clear() {
+    this.root = null;
+  }
+
+  @Override
+  public V get(long key) {
+    Node<V> node = this.findNode(key);
+    if (node == null) {
+      return null;
+    }
+    return node.value;
+  }
+
+  @Override
+  public void put(long low, long high, V value) {
+    this.validateRange(low, high);
+    this.root = this.insert(this.root, low, high, value);
+  }
+
+  @Override
+  public V putIfAbsent(long low, long high, V value) {
+    this.validateRange(low, high);
+    Node<V> node = this.findNode(low, high);
+    if (node == null) {
+      // requires to traverse the tree again but the common case (lookup) is non-recursive
+      this.root = this.insert(this.root, low, high, value);
+      // we inserted so previous was always null
+      return null;
+    } else if (!node.containsRange(low, high)) {
+      throw this.overlappingRange(node, low, high);
+    } else {
+      return node.value;
+    }
+  }
+
+  private void validateRange(long low, long high) {
+    if (low > high) {
+      throw this.mustBeLessThan(low, high);
+    }
+  }
+
+  private RuntimeException mustBeLessThan(long low, long high) {
+    return new IllegalArgumentException("low: " + low
+        + " must be less than high: " + high);
+  }
+
+  private Node<V> findNode(long key) {
+    Node<V> current = this.root;
+    while (current != null) {
+      if (current.low > key) {
+        current = current.left;
+      } else if (current.high < key) {
+        current = current.right;
+      } else {
+        return current;
+      }
+    }
+    return null;
+  }
+
+  private Node<V> findNode(long low, long high) {
+    Node<V> current = this.root;
+    while (current != null) {
+      if (current.low > high) {
+        current = current.left;
+      } else if (current.high < low) {
+        current = current.right;
+      } else {
+        return current;
+      }
+    }
+    return null;
+  }
+
+  private Node<V> insert(Node<V> h, long low, long high, V value) {
+    if (h == null) {
+      return new Node<>(low, high, value);
+    }
+    if (isRed(h.left) && isRed(h.right)) {
+      h.flipColor();
+    }
+    if (h.low > high) {
+      h.left = this.insert(h.left, low, high, value);
+    } else if (h.high < low) {
+      h.right = this.insert(h.right, low, high, value);
+    } else {
+      throw this.overlappingRange(h, low, high);
+    }
+    if (isRed(h.right) && !isRed(h.left)) {
+      h = h.rotateLeft();
+    }
+    if (isRed(h.left) && isRed(h.left.left)) {
+      h = h.rotateRight();
+    }
+    return h;
+  }
+
+  private RuntimeException overlappingRange(Node<?> node, long low, long high) {
+    return new IllegalArgumentException("can not insert range from: " + low
+        + " to: " + high
+        + " because range from: " + node.low
+        + " to: " + node.high
+        + " already exists");
+  }
+
+  private static boolean isRed(Node<?> node) {
+    return (node != null) && (node.color == Node.RED);
+  }
+
+
+  static final class Node<V> {
+
+    static final boolean RED   = true;
+    static final boolean BLACK = false;
+
+    final long low;
+    final long high;
+    final V value;
+    boolean color;
+    Node<V> left; // smaller
+    Node<V> right; // larger
+
+    Node(long low, long high, V data) {
+      this.low = low;
+      this.high = high;
+      this.value = data;
+      this.color = RED;
+    }
+
+    boolean containsRange(long a, long b) {
+      return this.low <= a && this.high >= b;
+    }
+
+    void flipColor() {
+      this.color = !this.color;
+      // no need for null check since its only done if both
+      // children are red
+      this.left.color = !this.left.color;
+      this.right.color = !this.right.color;
+    }
+
+    Node<V> rotateLeft() {
+      Node<V> x = this.right;
+      this.right = x.left;
+      x.left = this;
+      x.color = this.color;
+      this.color = RED;
+      return x;
+    }
+
+    Node<V> rotateRight() {
+      Node<V> x = this.left;
+      this.left = x.right;
+      x.right = this;
+      x.color = this.color;
+      this.color = RED;
+      return x;
+    }
+
+    @Override
+    public String toString() {
+      return "[" + this.low + ".." + this.high + "]:" + this.value;
+    }
+
+  }
+
+}
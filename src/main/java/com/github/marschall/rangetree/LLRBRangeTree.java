@@ -1,39 +1,166 @@
 package com.github.marschall.rangetree;
 
+import java.math.BigInteger;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A range tree implementation based on a left-leaning red-black tree.
  *
- * <p>This object in not thread-safe.</p>
+ * <p>This object in not thread-safe. {@link #get(Comparable)} and
+ * {@link #getEntry(Comparable)} racing with a write may observe
+ * inconsistent links but always terminate, they give up with a
+ * {@link ConcurrentModificationException} once it visits more nodes than
+ * the height of the tree can be. This allows optimistic reads as done by
+ * {@link StampedLockRangeMap}.</p>
  *
  * <h2>Adjacency</h2>
- * The implementation currency does not do any adjacency testing and
- * merging. In theory we have the two adjacent ranges that map to the
- * same object we can merge them.
+ * If an {@link AdjacencyTester} is passed at construction time a range
+ * that is adjacent to an existing range mapping to an equal value is
+ * merged into the existing range instead of creating a new node. Values
+ * are compared using {@link Object#equals(Object)}. Trees that have been
+ * created without an {@link AdjacencyTester} can be compacted using
+ * {@link #compact(AdjacencyTester)}.
+ *
+ * <h2>Updates</h2>
+ * Ranges can be removed with {@link #remove(Comparable, Comparable)} or
+ * replaced with {@link #putOverriding(Comparable, Comparable, Object, DiscreteDomain)}
+ * without rebuilding the tree.
+ *
+ * <h2>Iteration</h2>
+ * The ranges are iterated in ascending order, either all of them or only
+ * the ones overlapping a range using {@link #overlapping(Comparable, Comparable)}.
+ * The tree must not be modified while it is iterated.
  *
  * @param <K> the type of keys in this tree
  * @param <V> the type of values in this tree
  * @see <a href="https://www.cs.princeton.edu/~rs/talks/LLRB/LLRB.pdf">Left-leaning Red-Black Trees</a>
  */
-public final class LLRBRangeTree<K extends Comparable<? super K>, V> implements RangeMap<K, V> {
+public final class LLRBRangeTree<K extends Comparable<? super K>, V> implements RangeMap<K, V>, Iterable<Entry<Range<K>, V>> {
+
+  // 12 byte header, 2 references, 1 int
+  private static final long TREE_BYTES = 24L;
 
-  // TODO adjacency testing and merging
+  // 12 byte header, 5 references, 1 boolean
+  private static final long NODE_BYTES = 40L;
+
+  // the height of a left-leaning red-black tree is at most 2 * log2(size + 1),
+  // a longer path can only be observed by a lookup racing with a write
+  private static final int MAX_HEIGHT = 2 * Integer.SIZE;
 
   private Node<K, V> root;
 
+  private int size;
+
+  private final AdjacencyTester<? super K> adjacencyTester;
+
   /**
    * Default constructor.
    */
   public LLRBRangeTree() {
-    super();
+    this.adjacencyTester = null;
+  }
+
+  /**
+   * Constructs a tree that merges adjacent ranges mapping to equal values.
+   *
+   * @param adjacencyTester used to determine whether two ranges are adjacent,
+   *                        not {@code null}
+   * @throws NullPointerException if {@code adjacencyTester} is {@code null}
+   */
+  public LLRBRangeTree(AdjacencyTester<? super K> adjacencyTester) {
+    Objects.requireNonNull(adjacencyTester, "adjacencyTester");
+    this.adjacencyTester = adjacencyTester;
+  }
+
+  private LLRBRangeTree(Node<K, V> root, int size, AdjacencyTester<? super K> adjacencyTester) {
+    this.root = root;
+    this.size = size;
+    this.adjacencyTester = adjacencyTester;
+  }
+
+  /**
+   * Creates a builder for ranges sorted by the lower bound.
+   *
+   * <p>Compared to calling {@link #put(Comparable, Comparable, Object)}
+   * for every range the builder creates a balanced tree in linear time
+   * without any rotations.</p>
+   *
+   * @param <K> the type of keys in the tree
+   * @param <V> the type of values in the tree
+   * @return the new builder
+   */
+  public static <K extends Comparable<? super K>, V> Builder<K, V> builder() {
+    return new Builder<>(null);
+  }
+
+  /**
+   * Creates a builder for ranges sorted by the lower bound that merges
+   * adjacent ranges mapping to equal values.
+   *
+   * <p>The tree created by the builder will continue to merge adjacent
+   * ranges.</p>
+   *
+   * @param <K> the type of keys in the tree
+   * @param <V> the type of values in the tree
+   * @param adjacencyTester used to determine whether two ranges are adjacent,
+   *                        not {@code null}
+   * @return the new builder
+   * @throws NullPointerException if {@code adjacencyTester} is {@code null}
+   * @see #LLRBRangeTree(AdjacencyTester)
+   */
+  public static <K extends Comparable<? super K>, V> Builder<K, V> builder(AdjacencyTester<? super K> adjacencyTester) {
+    Objects.requireNonNull(adjacencyTester, "adjacencyTester");
+    return new Builder<K, V>(adjacencyTester);
+  }
+
+  /**
+   * Merges all adjacent ranges mapping to equal values and rebalances
+   * the tree.
+   *
+   * <p>This operation runs in linear time.</p>
+   *
+   * @param adjacencyTester used to determine whether two ranges are adjacent,
+   *                        not {@code null}
+   * @throws NullPointerException if {@code adjacencyTester} is {@code null}
+   */
+  public void compact(AdjacencyTester<? super K> adjacencyTester) {
+    Objects.requireNonNull(adjacencyTester, "adjacencyTester");
+    List<Node<K, V>> merged = new ArrayList<>();
+    this.forEachNode(node -> {
+      int size = merged.size();
+      if (size > 0) {
+        Node<K, V> previous = merged.get(size - 1);
+        if (previous.canMergeWith(node.low, node.value, adjacencyTester)) {
+          previous.high = node.high;
+          return;
+        }
+      }
+      merged.add(node);
+    });
+    this.root = Builder.buildBalanced(merged);
+    this.size = merged.size();
   }
 
   @Override
   public void clear() {
     this.root = null;
+    this.size = 0;
   }
 
   @Override
@@ -46,6 +173,391 @@ public final class LLRBRangeTree<K extends Comparable<? super K>, V> implements
     return node.value;
   }
 
+  @Override
+  public Entry<Range<K>, V> getEntry(K key) {
+    Objects.requireNonNull(key, "key");
+    return entryOrNull(this.findNode(key));
+  }
+
+  /**
+   * Looks up the values of many keys.
+   *
+   * <p>Instead of searching from the root for every key the tree is
+   * traversed once and every subtree is only visited for the keys falling
+   * into it. This requires the keys to be sorted in ascending order, if
+   * they are not an index of the keys is sorted first.</p>
+   *
+   * @param keys the keys to look up, not {@code null}, no element
+   *             {@code null}
+   * @param values the array to store the values in, the value of
+   *               {@code keys[i]} is stored in {@code values[i]},
+   *               {@code null} if no range contains the key, not {@code null}
+   * @throws NullPointerException if {@code keys}, an element of
+   *                              {@code keys} or {@code values} is {@code null}
+   * @throws IllegalArgumentException if {@code values} is shorter than
+   *                                  {@code keys}
+   */
+  public void getAll(K[] keys, V[] values) {
+    Objects.requireNonNull(keys, "keys");
+    this.getAll((Object[]) keys, values);
+  }
+
+  /**
+   * Looks up the values of many keys.
+   *
+   * @param keys the keys to look up, not {@code null}, no element
+   *             {@code null}
+   * @param values the array to store the values in, the value of
+   *               {@code keys.get(i)} is stored in {@code values[i]},
+   *               {@code null} if no range contains the key, not {@code null}
+   * @throws NullPointerException if {@code keys}, an element of
+   *                              {@code keys} or {@code values} is {@code null}
+   * @throws IllegalArgumentException if {@code values} is shorter than
+   *                                  {@code keys}
+   * @see #getAll(Comparable[], Object[])
+   */
+  public void getAll(List<? extends K> keys, V[] values) {
+    Objects.requireNonNull(keys, "keys");
+    this.getAll(keys.toArray(), values);
+  }
+
+  private void getAll(Object[] keys, V[] values) {
+    Objects.requireNonNull(values, "values");
+    int length = keys.length;
+    if (values.length < length) {
+      throw new IllegalArgumentException("values length: " + values.length
+          + " must not be less than keys length: " + length);
+    }
+    boolean sorted = true;
+    for (int i = 0; i < length; i++) {
+      K key = key(keys, i);
+      Objects.requireNonNull(key, "key");
+      if (sorted && i > 0 && LLRBRangeTree.<K>key(keys, i - 1).compareTo(key) > 0) {
+        sorted = false;
+      }
+    }
+    // null means the keys are sorted and no indirection is needed
+    int[] order = sorted ? null : sortedOrder(keys);
+    getAll(this.root, keys, order, 0, length, values);
+  }
+
+  private static <K extends Comparable<? super K>, V> void getAll(Node<K, V> node, Object[] keys, int[] order, int from, int to, V[] values) {
+    // recursion depth is bounded by the height of the tree
+    Node<K, V> current = node;
+    int start = from;
+    while (start < to) {
+      if (current == null) {
+        for (int i = start; i < to; i++) {
+          values[index(order, i)] = null;
+        }
+        return;
+      }
+      // keys in [start, lowIndex) are in the left subtree, keys in
+      // [lowIndex, highIndex) in the current range and keys in [highIndex, to)
+      // in the right subtree
+      int lowIndex = firstIndexNotLessThan(current.low, keys, order, start, to);
+      int highIndex = firstIndexGreaterThan(current.high, keys, order, lowIndex, to);
+      getAll(current.left, keys, order, start, lowIndex, values);
+      for (int i = lowIndex; i < highIndex; i++) {
+        values[index(order, i)] = current.value;
+      }
+      start = highIndex;
+      current = current.right;
+    }
+  }
+
+  private static <K extends Comparable<? super K>> int firstIndexNotLessThan(K bound, Object[] keys, int[] order, int from, int to) {
+    int lo = from;
+    int hi = to;
+    while (lo < hi) {
+      int middle = (lo + hi) >>> 1;
+      if (LLRBRangeTree.<K>key(keys, index(order, middle)).compareTo(bound) < 0) {
+        lo = middle + 1;
+      } else {
+        hi = middle;
+      }
+    }
+    return lo;
+  }
+
+  private static <K extends Comparable<? super K>> int firstIndexGreaterThan(K bound, Object[] keys, int[] order, int from, int to) {
+    int lo = from;
+    int hi = to;
+    while (lo < hi) {
+      int middle = (lo + hi) >>> 1;
+      if (LLRBRangeTree.<K>key(keys, index(order, middle)).compareTo(bound) <= 0) {
+        lo = middle + 1;
+      } else {
+        hi = middle;
+      }
+    }
+    return lo;
+  }
+
+  private static int index(int[] order, int i) {
+    return order == null ? i : order[i];
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K> K key(Object[] keys, int index) {
+    return (K) keys[index];
+  }
+
+  /**
+   * Sorts the indices of the keys by the keys.
+   */
+  private static <K extends Comparable<? super K>> int[] sortedOrder(Object[] keys) {
+    int length = keys.length;
+    int[] order = new int[length];
+    for (int i = 0; i < length; i++) {
+      order[i] = i;
+    }
+    LLRBRangeTree.<K>mergeSort(keys, order, new int[length], 0, length);
+    return order;
+  }
+
+  private static <K extends Comparable<? super K>> void mergeSort(Object[] keys, int[] order, int[] buffer, int from, int to) {
+    if (to - from < 2) {
+      return;
+    }
+    int middle = (from + to) >>> 1;
+    LLRBRangeTree.<K>mergeSort(keys, order, buffer, from, middle);
+    LLRBRangeTree.<K>mergeSort(keys, order, buffer, middle, to);
+    if (LLRBRangeTree.<K>key(keys, order[middle - 1]).compareTo(key(keys, order[middle])) <= 0) {
+      // already in order, common for partially sorted input
+      return;
+    }
+    System.arraycopy(order, from, buffer, from, to - from);
+    int left = from;
+    int right = middle;
+    for (int i = from; i < to; i++) {
+      if (right >= to || (left < middle && LLRBRangeTree.<K>key(keys, buffer[left]).compareTo(key(keys, buffer[right])) <= 0)) {
+        order[i] = buffer[left++];
+      } else {
+        order[i] = buffer[right++];
+      }
+    }
+  }
+
+  /**
+   * Returns the range containing a key or, if there is none, the closest
+   * range before the key.
+   *
+   * @param key the key, not {@code null}
+   * @return the range with the greatest lower bound less than or equal to
+   *         {@code key} and its value, {@code null} if there is no such range
+   * @throws NullPointerException if {@code key} is {@code null}
+   * @see java.util.NavigableMap#floorEntry(Object)
+   */
+  public Entry<Range<K>, V> floorEntry(K key) {
+    Objects.requireNonNull(key, "key");
+    Node<K, V> floor = null;
+    Node<K, V> current = this.root;
+    while (current != null) {
+      if (current.low.compareTo(key) > 0) {
+        current = current.left;
+      } else {
+        floor = current;
+        current = current.right;
+      }
+    }
+    return entryOrNull(floor);
+  }
+
+  /**
+   * Returns the range containing a key or, if there is none, the closest
+   * range after the key.
+   *
+   * @param key the key, not {@code null}
+   * @return the range with the least upper bound greater than or equal to
+   *         {@code key} and its value, {@code null} if there is no such range
+   * @throws NullPointerException if {@code key} is {@code null}
+   * @see java.util.NavigableMap#ceilingEntry(Object)
+   */
+  public Entry<Range<K>, V> ceilingEntry(K key) {
+    Objects.requireNonNull(key, "key");
+    Node<K, V> ceiling = null;
+    Node<K, V> current = this.root;
+    while (current != null) {
+      if (current.high.compareTo(key) < 0) {
+        current = current.right;
+      } else {
+        ceiling = current;
+        current = current.left;
+      }
+    }
+    return entryOrNull(ceiling);
+  }
+
+  private static <K extends Comparable<? super K>, V> Entry<Range<K>, V> entryOrNull(Node<K, V> node) {
+    if (node == null) {
+      return null;
+    }
+    return node.toEntry();
+  }
+
+  /**
+   * Returns the ranges overlapping a range in ascending order.
+   *
+   * <p>The returned object is a view, every iteration reflects the
+   * current state of the tree. Only the subtrees containing overlapping
+   * ranges are visited.</p>
+   *
+   * @param low the lower end of the range, inclusive, not {@code null}
+   * @param high the upper end of the range, inclusive, not {@code null}
+   * @return the ranges overlapping the range and their values
+   * @throws IllegalArgumentException if {@code low} is not less than {@code high}
+   * @throws NullPointerException if {@code low} or {@code high} are {@code null}
+   */
+  public Iterable<Entry<Range<K>, V>> overlapping(K low, K high) {
+    this.validateRange(low, high);
+    return () -> new EntryIterator<>(this.root, low, high);
+  }
+
+  /**
+   * Returns the number of ranges in this tree.
+   *
+   * @return the number of ranges in this tree
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Computes the shape and estimated memory footprint of this tree.
+   *
+   * <p>The sizes of {@link Integer}, {@link Long}, {@link String} and
+   * {@link BigInteger} keys are estimated, other keys are not included.
+   * Use {@link #statistics(ToLongFunction)} for other key types.</p>
+   *
+   * <p>Runs in linear time without allocating per node.</p>
+   *
+   * @return the statistics of this tree
+   * @see TreeStatistics
+   */
+  public TreeStatistics statistics() {
+    return this.statistics(LLRBRangeTree::estimatedKeySize);
+  }
+
+  /**
+   * Computes the shape and estimated memory footprint of this tree.
+   *
+   * <p>Runs in linear time without allocating per node.</p>
+   *
+   * @param keySize returns the estimated size of a key in bytes,
+   *                not {@code null}
+   * @return the statistics of this tree
+   * @throws NullPointerException if {@code keySize} is {@code null}
+   * @see TreeStatistics
+   */
+  public TreeStatistics statistics(ToLongFunction<? super K> keySize) {
+    Objects.requireNonNull(keySize, "keySize");
+    StatisticsCollector<K> collector = new StatisticsCollector<K>(keySize);
+    collector.collect(this.root, 1);
+    int blackHeight = 0;
+    Node<K, V> current = this.root;
+    while (current != null) {
+      if (!isRed(current)) {
+        blackHeight += 1;
+      }
+      current = current.left;
+    }
+    long nodeBytes = TREE_BYTES + (long) collector.nodeCount * NODE_BYTES;
+    return new TreeStatistics(collector.nodeCount, collector.height, blackHeight,
+        collector.totalDepth, nodeBytes, collector.keyBytes);
+  }
+
+  static long estimatedKeySize(Object key) {
+    if (key instanceof Integer) {
+      // 12 byte header, 1 int
+      return 16L;
+    } else if (key instanceof Long) {
+      // 12 byte header, 1 long
+      return 24L;
+    } else if (key instanceof String) {
+      // 12 byte header, 1 reference, 1 int, 2 booleans, Latin-1 byte[]
+      return 24L + align(16L + ((String) key).length());
+    } else if (key instanceof BigInteger) {
+      // 12 byte header, 1 reference, 5 ints, int[] magnitude
+      int magnitudeLength = (((BigInteger) key).abs().bitLength() + 31) / 32;
+      return 40L + align(16L + (long) magnitudeLength * Integer.BYTES);
+    }
+    return 0L;
+  }
+
+  private static long align(long size) {
+    return (size + 7L) & ~7L;
+  }
+
+  /**
+   * Accumulates statistics during a single traversal.
+   */
+  static final class StatisticsCollector<K extends Comparable<? super K>> {
+
+    private final ToLongFunction<? super K> keySize;
+
+    int nodeCount;
+    int height;
+    long totalDepth;
+    long keyBytes;
+
+    StatisticsCollector(ToLongFunction<? super K> keySize) {
+      this.keySize = keySize;
+    }
+
+    void collect(Node<K, ?> node, int depth) {
+      // recursion depth is bounded by the height of the tree
+      if (node != null) {
+        this.nodeCount += 1;
+        this.height = Math.max(this.height, depth);
+        this.totalDepth += depth;
+        this.keyBytes += this.keySize.applyAsLong(node.low) + this.keySize.applyAsLong(node.high);
+        this.collect(node.left, depth + 1);
+        this.collect(node.right, depth + 1);
+      }
+    }
+
+  }
+
+  /**
+   * Returns an iterator over all ranges in ascending order.
+   *
+   * <p>The iterator does not support removal.</p>
+   */
+  @Override
+  public Iterator<Entry<Range<K>, V>> iterator() {
+    return new EntryIterator<>(this.root, null, null);
+  }
+
+  /**
+   * Returns a spliterator over all ranges in ascending order.
+   *
+   * <p>The spliterator splits off whole subtrees, which allows parallel
+   * streams to scale.</p>
+   */
+  @Override
+  public Spliterator<Entry<Range<K>, V>> spliterator() {
+    return new EntrySpliterator<>(this.root, this.size);
+  }
+
+  /**
+   * Returns a sequential stream over all ranges in ascending order.
+   *
+   * @return a sequential stream over all ranges
+   */
+  public Stream<Entry<Range<K>, V>> stream() {
+    return StreamSupport.stream(this.spliterator(), false);
+  }
+
+  /**
+   * Returns a parallel stream over all ranges.
+   *
+   * @return a parallel stream over all ranges
+   */
+  public Stream<Entry<Range<K>, V>> parallelStream() {
+    return StreamSupport.stream(this.spliterator(), true);
+  }
+
   @Override
   public V computeIfAbsent(K key, Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
     Objects.requireNonNull(key, "key");
@@ -62,7 +574,7 @@ public final class LLRBRangeTree<K extends Comparable<? super K>, V> implements
       if (value == null) {
         return null;
       }
-      this.root = this.insert(this.root, low, high, value);
+      this.insertOrMerge(low, high, value);
       return value;
     } else {
       return node.value;
@@ -72,7 +584,7 @@ public final class LLRBRangeTree<K extends Comparable<? super K>, V> implements
   @Override
   public void put(K low, K high, V value) {
     this.validateRange(low, high);
-    this.root = this.insert(this.root, low, high, value);
+    this.insertOrMerge(low, high, value);
   }
   
   @Override
@@ -81,7 +593,7 @@ public final class LLRBRangeTree<K extends Comparable<? super K>, V> implements
     Node<K, V> node = this.findNode(low, high);
     if (node == null) {
       // requires to traverse the tree again but the common case (lookup) is non-recursive
-      this.root = this.insert(this.root, low, high, value);
+      this.insertOrMerge(low, high, value);
       // we inserted so previous was always null
       return null;
     } else if (!node.containsRange(low, high)) {
@@ -91,6 +603,86 @@ public final class LLRBRangeTree<K extends Comparable<? super K>, V> implements
     }
   }
 
+  /**
+   * Removes a range from this tree.
+   *
+   * <p>Only a range exactly matching an existing range can be removed.
+   * Note that a range may have been merged with adjacent ranges when
+   * it was put. To remove a part of a range use
+   * {@link #putOverriding(Comparable, Comparable, Object, DiscreteDomain)}.</p>
+   *
+   * @param low the lower end of the range, inclusive, not {@code null}
+   * @param high the upper end of the range, inclusive, not {@code null}
+   * @return the value the range mapped to, {@code null} if there was no
+   *         such range
+   * @throws IllegalArgumentException if {@code low} is not less than {@code high}
+   * @throws IllegalArgumentException if the range overlaps an existing
+   *                                  range but is not equal to it
+   * @throws NullPointerException if {@code low} or {@code high} are {@code null}
+   */
+  public V remove(K low, K high) {
+    this.validateRange(low, high);
+    Node<K, V> node = this.findNode(low, high);
+    if (node == null) {
+      return null;
+    }
+    if (node.low.compareTo(low) != 0 || node.high.compareTo(high) != 0) {
+      throw new IllegalArgumentException("can not remove range from: " + low
+          + " to: " + high
+          + " because it is not equal to range from: " + node.low
+          + " to: " + node.high);
+    }
+    this.removeNode(node.low);
+    return node.value;
+  }
+
+  /**
+   * Associates a range with a value, existing ranges overlapping the
+   * range are trimmed, split or removed.
+   *
+   * <p>Unlike {@link #put(Comparable, Comparable, Object)} this method
+   * does not fail if the range overlaps existing ranges. The parts of
+   * existing ranges outside of the range keep their values. For example
+   * putting [5..6] into a tree containing [0..10] results in the ranges
+   * [0..4], [5..6] and [7..10].</p>
+   *
+   * @param low the lower end of the range, inclusive, not {@code null}
+   * @param high the upper end of the range, inclusive, not {@code null}
+   * @param value the value to associate, possibly {@code null}
+   * @param domain used to compute the bounds of trimmed ranges, not {@code null}
+   * @throws IllegalArgumentException if {@code low} is not less than {@code high}
+   * @throws NullPointerException if {@code low}, {@code high} or
+   *                              {@code domain} are {@code null}
+   */
+  public void putOverriding(K low, K high, V value, DiscreteDomain<K> domain) {
+    this.validateRange(low, high);
+    Objects.requireNonNull(domain, "domain");
+    Node<K, V> node = this.findNode(low, high);
+    while (node != null) {
+      boolean startsBefore = node.low.compareTo(low) < 0;
+      boolean endsAfter = node.high.compareTo(high) > 0;
+      if (startsBefore && endsAfter) {
+        // compute both bounds before modifying the tree in case the domain fails
+        K headHigh = domain.previous(low);
+        K tailLow = domain.next(high);
+        K tailHigh = node.high;
+        node.high = headHigh;
+        this.insertOrMerge(tailLow, tailHigh, node.value);
+        // the node contained the whole range, there can not be any other overlapping node
+        break;
+      } else if (startsBefore) {
+        node.high = domain.previous(low);
+      } else if (endsAfter) {
+        node.low = domain.next(high);
+      } else {
+        this.removeNode(node.low);
+      }
+      // trimming keeps the order of the nodes so we can simply search again
+      node = this.findNode(low, high);
+    }
+    this.insertOrMerge(low, high, value);
+  }
+
   private void validateRange(K low, K high) {
     Objects.requireNonNull(low, "low");
     Objects.requireNonNull(high, "high");
@@ -106,7 +698,12 @@ public final class LLRBRangeTree<K extends Comparable<? super K>, V> implements
 
   private Node<K, V> findNode(K key) {
     Node<K, V> current = this.root;
+    int depth = 0;
     while (current != null) {
+      if (++depth > MAX_HEIGHT) {
+        // links rotated by a concurrent write may form a cycle
+        throw new ConcurrentModificationException();
+      }
       int compare = current.compareToKey(key);
       if (compare > 0) {
         current = current.left;
@@ -119,6 +716,33 @@ public final class LLRBRangeTree<K extends Comparable<? super K>, V> implements
     return null;
   }
 
+  /**
+   * Returns the number of nodes visited when looking up a key.
+   *
+   * @param key the key to look up, not {@code null}
+   * @return the number of nodes visited, including the node containing
+   *         the key if there is one
+   */
+  int depthOf(K key) {
+    int depth = 0;
+    Node<K, V> current = this.root;
+    while (current != null) {
+      depth += 1;
+      if (depth > MAX_HEIGHT) {
+        throw new ConcurrentModificationException();
+      }
+      int compare = current.compareToKey(key);
+      if (compare > 0) {
+        current = current.left;
+      } else if (compare < 0) {
+        current = current.right;
+      } else {
+        return depth;
+      }
+    }
+    return depth;
+  }
+
   private Node<K, V> findNode(K low, K high) {
     Node<K, V> current = this.root;
     while (current != null) {
@@ -133,13 +757,60 @@ public final class LLRBRangeTree<K extends Comparable<? super K>, V> implements
     return null;
   }
 
+  private void insertOrMerge(K low, K high, V value) {
+    if (this.adjacencyTester == null || !this.merge(low, high, value)) {
+      Node<K, V> newRoot = this.insert(this.root, low, high, value);
+      newRoot.color = Node.BLACK;
+      this.root = newRoot;
+    }
+  }
+
+  /**
+   * Tries to merge a range into the closest preceding or following range.
+   *
+   * @return {@code true} if the range was merged,
+   *         {@code false} if it has to be inserted
+   */
+  private boolean merge(K low, K high, V value) {
+    Node<K, V> predecessor = null;
+    Node<K, V> successor = null;
+    Node<K, V> current = this.root;
+    while (current != null) {
+      if (current.low.compareTo(high) > 0) {
+        successor = current;
+        current = current.left;
+      } else if (current.high.compareTo(low) < 0) {
+        predecessor = current;
+        current = current.right;
+      } else {
+        throw this.overlappingRange(current, low, high);
+      }
+    }
+    // the range lies between the predecessor and the successor
+    // so widening either of them does not change the order of the nodes
+    if (predecessor != null && predecessor.canMergeWith(low, value, this.adjacencyTester)) {
+      if (successor != null && successor.canBeMergedInto(high, value, this.adjacencyTester)) {
+        // the range closes the gap between the predecessor and the successor
+        K successorHigh = successor.high;
+        this.removeNode(successor.low);
+        predecessor.high = successorHigh;
+      } else {
+        predecessor.high = high;
+      }
+      return true;
+    }
+    if (successor != null && successor.canBeMergedInto(high, value, this.adjacencyTester)) {
+      successor.low = low;
+      return true;
+    }
+    return false;
+  }
+
   private Node<K, V> insert(Node<K, V> h, K low, K high, V value) {
     if (h == null) {
+      this.size += 1;
       return new Node<>(low, high, value);
     }
-    if (isRed(h.left) && isRed(h.right)) {
-      h.flipColor();
-    }
     if (h.low.compareTo(high) > 0) {
       h.left = this.insert(h.left, low, high, value);
     } else if (h.high.compareTo(low) < 0) {
@@ -153,9 +824,78 @@ public final class LLRBRangeTree<K extends Comparable<? super K>, V> implements
     if (isRed(h.left) && isRed(h.left.left)) {
       h = h.rotateRight();
     }
+    if (isRed(h.left) && isRed(h.right)) {
+      h.flipColor();
+    }
     return h;
   }
 
+  /**
+   * Removes the node with the given lower bound, the node has to exist.
+   */
+  private void removeNode(K low) {
+    Node<K, V> h = this.root;
+    if (!isRed(h.left) && !isRed(h.right)) {
+      h.color = Node.RED;
+    }
+    h = remove(h, low);
+    if (h != null) {
+      h.color = Node.BLACK;
+    }
+    this.root = h;
+    this.size -= 1;
+  }
+
+  private static <K extends Comparable<? super K>, V> Node<K, V> remove(Node<K, V> h, K low) {
+    if (low.compareTo(h.low) < 0) {
+      if (!isRed(h.left) && !isRed(h.left.left)) {
+        h = h.moveRedLeft();
+      }
+      h.left = remove(h.left, low);
+    } else {
+      if (isRed(h.left)) {
+        h = h.rotateRight();
+      }
+      if (low.compareTo(h.low) == 0 && h.right == null) {
+        return null;
+      }
+      if (!isRed(h.right) && !isRed(h.right.left)) {
+        h = h.moveRedRight();
+      }
+      if (low.compareTo(h.low) == 0) {
+        // values are final so instead of copying the successor into h
+        // we unlink the successor and put it in the place of h
+        Node<K, V> successor = min(h.right);
+        successor.right = removeMin(h.right);
+        successor.left = h.left;
+        successor.color = h.color;
+        h = successor;
+      } else {
+        h.right = remove(h.right, low);
+      }
+    }
+    return h.fixUp();
+  }
+
+  private static <K extends Comparable<? super K>, V> Node<K, V> removeMin(Node<K, V> h) {
+    if (h.left == null) {
+      return null;
+    }
+    if (!isRed(h.left) && !isRed(h.left.left)) {
+      h = h.moveRedLeft();
+    }
+    h.left = removeMin(h.left);
+    return h.fixUp();
+  }
+
+  private static <K extends Comparable<? super K>, V> Node<K, V> min(Node<K, V> h) {
+    Node<K, V> current = h;
+    while (current.left != null) {
+      current = current.left;
+    }
+    return current;
+  }
+
   private RuntimeException overlappingRange(Node<?, ?> node, K low, K high) {
     return new IllegalArgumentException("can not insert range from: " + low
         + " to: " + high
@@ -168,14 +908,330 @@ public final class LLRBRangeTree<K extends Comparable<? super K>, V> implements
     return (node != null) && (node.color == Node.RED);
   }
 
+  /**
+   * Visits all nodes in ascending order.
+   *
+   * @param action the action to apply to every node, not {@code null}
+   */
+  void forEachNode(Consumer<? super Node<K, V>> action) {
+    forEachNode(this.root, action);
+  }
+
+  private static <K extends Comparable<? super K>, V> void forEachNode(Node<K, V> node, Consumer<? super Node<K, V>> action) {
+    // recursion depth is bounded by the height of the tree
+    if (node != null) {
+      forEachNode(node.left, action);
+      action.accept(node);
+      forEachNode(node.right, action);
+    }
+  }
+
+  /**
+   * Pushes a node and all of its left descendants.
+   */
+  static <K extends Comparable<? super K>, V> void pushLeftSpine(Node<K, V> node, Deque<Node<K, V>> stack) {
+    Node<K, V> current = node;
+    while (current != null) {
+      stack.push(current);
+      current = current.left;
+    }
+  }
+
+  /**
+   * Iterates over the ranges of a subtree in ascending order, optionally
+   * only over the ranges overlapping a range.
+   *
+   * <p>The top of the stack is the next node, all nodes on the stack still
+   * have to visit their right subtree.</p>
+   */
+  static final class EntryIterator<K extends Comparable<? super K>, V> implements Iterator<Entry<Range<K>, V>> {
+
+    private final Deque<Node<K, V>> stack;
+
+    private final K high;
+
+    EntryIterator(Node<K, V> root, K low, K high) {
+      this.stack = new ArrayDeque<>();
+      this.high = high;
+      // skip the subtrees containing only ranges before low
+      Node<K, V> current = root;
+      while (current != null) {
+        if (low != null && current.high.compareTo(low) < 0) {
+          current = current.right;
+        } else {
+          this.stack.push(current);
+          current = current.left;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      Node<K, V> next = this.stack.peek();
+      return next != null && (this.high == null || next.low.compareTo(this.high) <= 0);
+    }
+
+    @Override
+    public Entry<Range<K>, V> next() {
+      if (!this.hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Node<K, V> next = this.stack.pop();
+      pushLeftSpine(next.right, this.stack);
+      return next.toEntry();
+    }
+
+  }
+
+  /**
+   * Splits by handing off all but the bottom node of the stack, the bottom
+   * node and its right subtree stay.
+   *
+   * <p>The encounter order of the nodes on the stack is from the top to the
+   * bottom, every node on the stack is followed by its right subtree.</p>
+   */
+  static final class EntrySpliterator<K extends Comparable<? super K>, V> implements Spliterator<Entry<Range<K>, V>> {
+
+    private final Deque<Node<K, V>> stack;
+
+    private long estimatedSize;
+
+    private boolean exact;
+
+    EntrySpliterator(Node<K, V> root, int size) {
+      this.stack = new ArrayDeque<>();
+      pushLeftSpine(root, this.stack);
+      this.estimatedSize = size;
+      this.exact = true;
+    }
+
+    private EntrySpliterator(Deque<Node<K, V>> stack, long estimatedSize) {
+      this.stack = stack;
+      this.estimatedSize = estimatedSize;
+      this.exact = false;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super Entry<Range<K>, V>> action) {
+      Objects.requireNonNull(action, "action");
+      Node<K, V> next = this.stack.poll();
+      if (next == null) {
+        return false;
+      }
+      pushLeftSpine(next.right, this.stack);
+      if (this.exact) {
+        this.estimatedSize -= 1L;
+      }
+      action.accept(next.toEntry());
+      return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super Entry<Range<K>, V>> action) {
+      Objects.requireNonNull(action, "action");
+      Node<K, V> next = this.stack.poll();
+      while (next != null) {
+        pushLeftSpine(next.right, this.stack);
+        action.accept(next.toEntry());
+        next = this.stack.poll();
+      }
+      this.estimatedSize = 0L;
+    }
+
+    @Override
+    public Spliterator<Entry<Range<K>, V>> trySplit() {
+      int stackSize = this.stack.size();
+      if (stackSize == 0) {
+        return null;
+      }
+      if (stackSize == 1) {
+        Node<K, V> bottom = this.stack.peek();
+        if (bottom.right == null) {
+          return null;
+        }
+        // hand off the node itself and keep its right subtree
+        this.stack.pop();
+        pushLeftSpine(bottom.right, this.stack);
+        this.estimatedSize = Math.max(0L, this.estimatedSize - 1L);
+        this.exact = false;
+        return castSpliterator(Spliterators.spliterator(new Object[] {bottom.toEntry()}, ORDERED | DISTINCT | NONNULL));
+      }
+      Deque<Node<K, V>> prefixStack = new ArrayDeque<>(stackSize);
+      for (int i = 0; i < stackSize - 1; i++) {
+        // from the top, preserves the order
+        prefixStack.addLast(this.stack.pollFirst());
+      }
+      // the bottom node is the highest, its right subtree is about
+      // as large as all the other subtrees on the stack together
+      long prefixSize = this.estimatedSize >>> 1;
+      this.estimatedSize -= prefixSize;
+      this.exact = false;
+      return new EntrySpliterator<>(prefixStack, prefixSize);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Spliterator<T> castSpliterator(Spliterator<?> spliterator) {
+      return (Spliterator<T>) spliterator;
+    }
+
+    @Override
+    public long estimateSize() {
+      return this.estimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+      int characteristics = ORDERED | DISTINCT | NONNULL;
+      if (this.exact) {
+        characteristics |= SIZED;
+      }
+      return characteristics;
+    }
+
+  }
+
+  /**
+   * Builds a {@link LLRBRangeTree} from ranges sorted by the lower bound.
+   *
+   * <p>This object in not thread-safe.</p>
+   *
+   * @param <K> the type of keys in the tree
+   * @param <V> the type of values in the tree
+   */
+  public static final class Builder<K extends Comparable<? super K>, V> {
+
+    private List<Node<K, V>> nodes;
+
+    private final AdjacencyTester<? super K> adjacencyTester;
+
+    Builder(AdjacencyTester<? super K> adjacencyTester) {
+      this.nodes = new ArrayList<>();
+      this.adjacencyTester = adjacencyTester;
+    }
+
+    /**
+     * Adds a range to the tree.
+     *
+     * @param low the lower end of the range, inclusive, not {@code null}
+     * @param high the upper end of the range, inclusive, not {@code null}
+     * @param value the value to associate, possibly {@code null}
+     * @return this builder
+     * @throws IllegalArgumentException if {@code low} is not less than {@code high}
+     * @throws IllegalArgumentException if {@code low} is not greater than
+     *                                  the upper end of the previous range
+     * @throws NullPointerException if {@code low} or {@code high} are {@code null}
+     */
+    public Builder<K, V> add(K low, K high, V value) {
+      Objects.requireNonNull(low, "low");
+      Objects.requireNonNull(high, "high");
+      if (low.compareTo(high) > 0) {
+        throw new IllegalArgumentException("low: " + low
+            + " must be less than high: " + high);
+      }
+      int size = this.nodes.size();
+      if (size > 0) {
+        Node<K, V> previous = this.nodes.get(size - 1);
+        if (previous.high.compareTo(low) >= 0) {
+          throw new IllegalArgumentException("can not add range from: " + low
+              + " to: " + high
+              + " because it is not after range from: " + previous.low
+              + " to: " + previous.high);
+        }
+        if (this.adjacencyTester != null && previous.canMergeWith(low, value, this.adjacencyTester)) {
+          previous.high = high;
+          return this;
+        }
+      }
+      this.nodes.add(new Node<>(low, high, value));
+      return this;
+    }
+
+    /**
+     * Creates a new {@link LLRBRangeTree} containing all the ranges
+     * added so far.
+     *
+     * <p>The builder is reset afterwards.</p>
+     *
+     * @return the new tree
+     */
+    public LLRBRangeTree<K, V> build() {
+      List<Node<K, V>> sorted = this.nodes;
+      // the nodes are now owned by the tree
+      this.nodes = new ArrayList<>();
+      return new LLRBRangeTree<>(buildBalanced(sorted), sorted.size(), this.adjacencyTester);
+    }
+
+    static <K extends Comparable<? super K>, V> Node<K, V> buildBalanced(List<Node<K, V>> sorted) {
+      int size = sorted.size();
+      // the largest black height for which a 2-3 tree with this many nodes exists
+      int blackHeight = 31 - Integer.numberOfLeadingZeros(size + 1);
+      return buildBalanced(sorted, 0, size, blackHeight);
+    }
+
+    /**
+     * Builds a left-leaning red-black tree corresponding to a 2-3 tree
+     * with the given black height, the root is black.
+     *
+     * <p>A 2-3 tree of black height h has between 2<sup>h</sup> - 1 and
+     * 3<sup>h</sup> - 1 nodes.</p>
+     */
+    private static <K extends Comparable<? super K>, V> Node<K, V> buildBalanced(List<Node<K, V>> sorted,
+            int from, int size, int blackHeight) {
+      if (blackHeight == 0) {
+        return null;
+      }
+      long maxChildSize = maxSize(blackHeight - 1);
+      if (size - 1 <= 2 * maxChildSize) {
+        // 2-node, round up so that the left subtree is never smaller than the right one
+        int leftSize = size >>> 1;
+        Node<K, V> node = sorted.get(from + leftSize);
+        node.left = buildBalanced(sorted, from, leftSize, blackHeight - 1);
+        node.right = buildBalanced(sorted, from + leftSize + 1, size - 1 - leftSize, blackHeight - 1);
+        node.color = Node.BLACK;
+        return node;
+      } else {
+        // 3-node, a black node with a red left child
+        int childSize = (size - 2) / 3;
+        int remainder = (size - 2) % 3;
+        int firstSize = childSize + (remainder > 0 ? 1 : 0);
+        int secondSize = childSize + (remainder > 1 ? 1 : 0);
+        int thirdSize = childSize;
+        Node<K, V> red = sorted.get(from + firstSize);
+        red.left = buildBalanced(sorted, from, firstSize, blackHeight - 1);
+        red.right = buildBalanced(sorted, from + firstSize + 1, secondSize, blackHeight - 1);
+        red.color = Node.RED;
+        int blackIndex = from + firstSize + 1 + secondSize;
+        Node<K, V> black = sorted.get(blackIndex);
+        black.left = red;
+        black.right = buildBalanced(sorted, blackIndex + 1, thirdSize, blackHeight - 1);
+        black.color = Node.BLACK;
+        return black;
+      }
+    }
+
+    /**
+     * Returns the maximum number of nodes of a 2-3 tree with the given
+     * black height, 3<sup>h</sup> - 1.
+     */
+    private static long maxSize(int blackHeight) {
+      long power = 1L;
+      for (int i = 0; i < blackHeight && power <= Integer.MAX_VALUE; i++) {
+        power *= 3L;
+      }
+      return power - 1L;
+    }
+
+  }
+
 
   static final class Node<K extends Comparable<? super K>, V> {
 
     static final boolean RED   = true;
     static final boolean BLACK = false;
 
-    final K low;
-    final K high;
+    // bounds are only modified when merging or trimming ranges
+    K low;
+    K high;
     final V value;
     boolean color;
     Node<K, V> left; // smaller
@@ -206,16 +1262,74 @@ public final class LLRBRangeTree<K extends Comparable<? super K>, V> implements
       return this.low.compareTo(a) <= 0 && this.high.compareTo(b) >= 0;
     }
 
+    Entry<Range<K>, V> toEntry() {
+      return new SimpleImmutableEntry<>(new Range<>(this.low, this.high), this.value);
+    }
+
+    boolean canMergeWith(K followingLow, V followingValue, AdjacencyTester<? super K> adjacencyTester) {
+      return Objects.equals(this.value, followingValue) && adjacencyTester.areAdjacent(this.high, followingLow);
+    }
+
+    boolean canBeMergedInto(K precedingHigh, V precedingValue, AdjacencyTester<? super K> adjacencyTester) {
+      return Objects.equals(this.value, precedingValue) && adjacencyTester.areAdjacent(precedingHigh, this.low);
+    }
+
     void flipColor() {
       this.color = !this.color;
       // no need for null check since its only done if both
-      // children are red
-      // and null means leaf which means black
-      // in practice this always sets RED to BLACK
+      // children are red or, when removing, both children are black
+      // and not leaves
       this.left.color = !this.left.color;
       this.right.color = !this.right.color;
     }
 
+    /**
+     * Makes the left child or one of its children red, requires this
+     * node to be red and its left child and left grandchild to be black.
+     */
+    Node<K, V> moveRedLeft() {
+      Node<K, V> h = this;
+      h.flipColor();
+      if (isRed(h.right.left)) {
+        h.right = h.right.rotateRight();
+        h = h.rotateLeft();
+        h.flipColor();
+      }
+      return h;
+    }
+
+    /**
+     * Makes the right child or one of its children red, requires this
+     * node to be red and its right child and right grandchild to be black.
+     */
+    Node<K, V> moveRedRight() {
+      Node<K, V> h = this;
+      h.flipColor();
+      if (isRed(h.left.left)) {
+        h = h.rotateRight();
+        h.flipColor();
+      }
+      return h;
+    }
+
+    /**
+     * Restores the left-leaning red-black invariants on the way up
+     * after a removal.
+     */
+    Node<K, V> fixUp() {
+      Node<K, V> h = this;
+      if (isRed(h.right) && !isRed(h.left)) {
+        h = h.rotateLeft();
+      }
+      if (isRed(h.left) && isRed(h.left.left)) {
+        h = h.rotateRight();
+      }
+      if (isRed(h.left) && isRed(h.right)) {
+        h.flipColor();
+      }
+      return h;
+    }
+
     Node<K, V> rotateLeft() {
       Node<K, V> x = this.right;
       this.right = x.left;
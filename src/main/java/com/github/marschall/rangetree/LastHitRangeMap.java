@@ -0,0 +1,270 @@
+package com.github.marschall.rangetree;
+
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Remembers the range of the last successful lookup in front of a
+ * {@link RangeMap}.
+ *
+ * <p>If consecutive keys often fall into the same range a lookup only
+ * has to compare the key to the bounds of the remembered range instead
+ * of searching the delegate.</p>
+ *
+ * <p>Remembering ranges requires {@link RangeMap#getEntry(Comparable)},
+ * all implementations in this library support it. If the delegate does
+ * not override the default method every lookup goes to
+ * {@link RangeMap#get(Comparable)} of the delegate and nothing is
+ * remembered. A delegate that overrides the method only to forward it to
+ * a map that does not, for example a {@link SynchronizedRangeMap} around
+ * such a map, is not detected and {@link #get(Comparable)} throws
+ * {@link UnsupportedOperationException}.</p>
+ *
+ * <p>Ranges can not be modified through the {@link RangeMap} interface,
+ * only added, so a remembered range stays valid until {@link #clear()}.
+ * All modifications have to go through this object. The delegate must
+ * not remove or replace ranges on its own, otherwise removed or outdated
+ * ranges are returned. This rules out wrapping a {@link RangeCache}, it
+ * evicts, expires and refreshes ranges, and modifying a
+ * {@link LLRBRangeTree} directly while it is wrapped.</p>
+ *
+ * <p>A {@link HotSwapRangeMap} replaces all ranges on reload. If it is
+ * the direct delegate the remembered range is tagged with the
+ * {@linkplain HotSwapRangeMap#currentVersion() current version} and
+ * ignored once a new version is published.</p>
+ *
+ * <p>Instances created by {@link #threadConfined(RangeMap)} are not
+ * thread-safe. Instances created by {@link #concurrent(RangeMap)} are
+ * thread-safe if the delegate is thread-safe, eg. a
+ * {@link StampedLockRangeMap} or a {@link PersistentLLRBRangeTree}.</p>
+ *
+ * @param <K> the type of keys in this map
+ * @param <V> the type of values in this map
+ */
+public final class LastHitRangeMap<K extends Comparable<? super K>, V> implements RangeMap<K, V> {
+
+  private final RangeMap<K, V> delegate;
+
+  private final HitCache<K, V> cache;
+
+  // null if the delegate is not a HotSwapRangeMap
+  private final HotSwapRangeMap<K, V> hotSwap;
+
+  // false if the delegate does not override RangeMap#getEntry
+  private final boolean remembersHits;
+
+  private LastHitRangeMap(RangeMap<K, V> delegate, HitCache<K, V> cache) {
+    this.delegate = delegate;
+    this.cache = cache;
+    this.hotSwap = delegate instanceof HotSwapRangeMap ? (HotSwapRangeMap<K, V>) delegate : null;
+    this.remembersHits = RangeMaps.supportsGetEntry(delegate);
+  }
+
+  /**
+   * Wraps a map that is only accessed by a single thread.
+   *
+   * @param <K> the type of keys in the map
+   * @param <V> the type of values in the map
+   * @param delegate the map to wrap, not {@code null}
+   * @return the wrapping map, not thread-safe
+   * @throws NullPointerException if {@code delegate} is {@code null}
+   */
+  public static <K extends Comparable<? super K>, V> LastHitRangeMap<K, V> threadConfined(RangeMap<K, V> delegate) {
+    Objects.requireNonNull(delegate, "delegate");
+    return new LastHitRangeMap<>(delegate, new ThreadConfinedHitCache<>());
+  }
+
+  /**
+   * Wraps a thread-safe map.
+   *
+   * <p>The last hit is shared between all threads.</p>
+   *
+   * @param <K> the type of keys in the map
+   * @param <V> the type of values in the map
+   * @param delegate the map to wrap, not {@code null}, has to be thread-safe
+   * @return the wrapping map, thread-safe
+   * @throws NullPointerException if {@code delegate} is {@code null}
+   */
+  public static <K extends Comparable<? super K>, V> LastHitRangeMap<K, V> concurrent(RangeMap<K, V> delegate) {
+    Objects.requireNonNull(delegate, "delegate");
+    return new LastHitRangeMap<>(delegate, new ConcurrentHitCache<>());
+  }
+
+  @Override
+  public void clear() {
+    this.delegate.clear();
+    // after clearing the delegate so that no lookup started before can
+    // remember a range that no longer exists
+    this.cache.reset();
+  }
+
+  @Override
+  public V get(K key) {
+    if (!this.remembersHits) {
+      return this.delegate.get(key);
+    }
+    Entry<Range<K>, V> entry = this.getEntry(key);
+    if (entry == null) {
+      return null;
+    }
+    return entry.getValue();
+  }
+
+  @Override
+  public Entry<Range<K>, V> getEntry(K key) {
+    Objects.requireNonNull(key, "key");
+    // read before the lookup, if a new version is published in between
+    // the hit is tagged with the old version and simply not used
+    Object version = this.currentVersion();
+    Hit<K, V> hit = this.cache.get();
+    if (hit.contains(key, version)) {
+      return hit.entry;
+    }
+    Entry<Range<K>, V> entry = this.delegate.getEntry(key);
+    if (entry != null) {
+      this.cache.update(hit, new Hit<>(entry, version));
+    }
+    return entry;
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+    Objects.requireNonNull(key, "key");
+    Hit<K, V> hit = this.cache.get();
+    if (hit.contains(key, this.currentVersion())) {
+      return hit.entry.getValue();
+    }
+    return this.delegate.computeIfAbsent(key, mappingFunction);
+  }
+
+  @Override
+  public void put(K low, K high, V value) {
+    this.delegate.put(low, high, value);
+  }
+
+  @Override
+  public V putIfAbsent(K low, K high, V value) {
+    return this.delegate.putIfAbsent(low, high, value);
+  }
+
+  /**
+   * Returns the version the delegate currently serves.
+   *
+   * @return the current version of a {@link HotSwapRangeMap},
+   *         {@code null} for other delegates
+   */
+  private Object currentVersion() {
+    HotSwapRangeMap<K, V> map = this.hotSwap;
+    return map != null ? map.currentVersion() : null;
+  }
+
+  /**
+   * A range and its value, immutable so that it can be safely shared
+   * between threads.
+   */
+  static final class Hit<K extends Comparable<? super K>, V> {
+
+    final Entry<Range<K>, V> entry;
+
+    // the version of the delegate the range was found in
+    private final Object version;
+
+    // cached to avoid dereferencing the range on every lookup,
+    // null if this is an empty hit
+    private final K low;
+    private final K high;
+
+    Hit(Entry<Range<K>, V> entry, Object version) {
+      this.entry = entry;
+      this.version = version;
+      if (entry != null) {
+        Range<K> range = entry.getKey();
+        this.low = range.getLow();
+        this.high = range.getHigh();
+      } else {
+        this.low = null;
+        this.high = null;
+      }
+    }
+
+    boolean contains(K key, Object currentVersion) {
+      return this.low != null
+          && this.version == currentVersion
+          && this.low.compareTo(key) <= 0
+          && this.high.compareTo(key) >= 0;
+    }
+
+  }
+
+  interface HitCache<K extends Comparable<? super K>, V> {
+
+    Hit<K, V> get();
+
+    /**
+     * Remembers a new hit.
+     *
+     * @param expected the hit returned by {@link #get()} before the lookup
+     * @param hit the new hit
+     */
+    void update(Hit<K, V> expected, Hit<K, V> hit);
+
+    void reset();
+
+  }
+
+  static final class ThreadConfinedHitCache<K extends Comparable<? super K>, V> implements HitCache<K, V> {
+
+    private Hit<K, V> hit;
+
+    ThreadConfinedHitCache() {
+      this.hit = new Hit<>(null, null);
+    }
+
+    @Override
+    public Hit<K, V> get() {
+      return this.hit;
+    }
+
+    @Override
+    public void update(Hit<K, V> expected, Hit<K, V> hit) {
+      this.hit = hit;
+    }
+
+    @Override
+    public void reset() {
+      this.hit = new Hit<>(null, null);
+    }
+
+  }
+
+  static final class ConcurrentHitCache<K extends Comparable<? super K>, V> implements HitCache<K, V> {
+
+    private final AtomicReference<Hit<K, V>> hit;
+
+    ConcurrentHitCache() {
+      this.hit = new AtomicReference<>(new Hit<>(null, null));
+    }
+
+    @Override
+    public Hit<K, V> get() {
+      return this.hit.get();
+    }
+
+    @Override
+    public void update(Hit<K, V> expected, Hit<K, V> hit) {
+      // fails if the cache was reset since the lookup started, every
+      // reset uses a new empty hit so a stale range can not be stored.
+      // losing against a concurrent update is fine, both hits are valid
+      this.hit.compareAndSet(expected, hit);
+    }
+
+    @Override
+    public void reset() {
+      this.hit.set(new Hit<>(null, null));
+    }
+
+  }
+
+}
@@ -0,0 +1,55 @@
+package com.github.marschall.rangetree;
+
+/**
+ * An object that maps ranges of {@code long} keys to values. Cannot contain
+ * duplicate keys or overlapping ranges.
+ *
+ * <p>This is a primitive specialization of {@link RangeMap} that
+ * neither boxes keys nor calls {@link Comparable#compareTo(Object)}.</p>
+ *
+ * @param <V> the type of values in this map
+ * @see RangeMap
+ */
+public interface LongRangeMap<V> {
+
+  /**
+   * Removes all mappings from this object.
+   *
+   * @see RangeMap#clear()
+   */
+  void clear();
+
+  /**
+   * Returns the value associated with a key.
+   *
+   * @param key the key for which to look up a value
+   * @return the value associated with {@code key} or {@code null} if not found
+   * @see RangeMap#get(Comparable)
+   */
+  V get(long key);
+
+  /**
+   * Associates a range of keys with a value.
+   *
+   * @param low the lower end of the range, inclusive
+   * @param high the upper end of the range, inclusive
+   * @param value the value to associate, possibly {@code null}
+   * @throws IllegalArgumentException if a mapping for a part or the whole range already exists
+   * @throws IllegalArgumentException if {@code low} is not less than {@code high}
+   * @see RangeMap#put(Comparable, Comparable, Object)
+   */
+  void put(long low, long high, V value);
+
+  /**
+   * Associates a range of keys with a value only if no existing mapping exists.
+   *
+   * @param low the lower end of the range, inclusive
+   * @param high the upper end of the range, inclusive
+   * @param value the value to associate, possibly {@code null}
+   * @return the value mapped to the key range before this method was called
+   * @throws IllegalArgumentException if {@code low} is not less than {@code high}
+   * @see RangeMap#putIfAbsent(Comparable, Comparable, Object)
+   */
+  V putIfAbsent(long low, long high, V value);
+
+}
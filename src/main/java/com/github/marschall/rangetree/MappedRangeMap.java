@@ -0,0 +1,337 @@
+package com.github.marschall.rangetree;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * An immutable range map that serves lookups directly from a memory
+ * mapped file.
+ *
+ * <p>The file is created once using
+ * {@link #write(Path, LLRBRangeTree, KeyCodec, Function)} and can then
+ * be mapped read-only by any number of processes using
+ * {@link #open(Path, KeyCodec, Function)}. The ranges are not
+ * materialized on the heap, lookups do a binary search directly on the
+ * mapped file. Only the values are decoded when the file is opened.</p>
+ *
+ * <h2>File Format</h2>
+ * All numbers are big endian.
+ * <pre>
+ * header
+ *   int      magic number 0x52414E47
+ *   int      version, currently 1
+ *   int      key width in bytes (w)
+ *   int      number of ranges (n)
+ *   int      number of values (m)
+ * ranges, n records sorted by lower bound
+ *   byte[w]  lower bound, inclusive
+ *   byte[w]  upper bound, inclusive
+ *   int      index into the value table, -1 for {@code null}
+ * value table, m records
+ *   int      length in bytes (l)
+ *   byte[l]  encoded value
+ * </pre>
+ *
+ * <p>This object is thread-safe, all mutating methods throw
+ * {@link UnsupportedOperationException}.</p>
+ *
+ * @param <K> the type of keys in this map
+ * @param <V> the type of values in this map
+ */
+public final class MappedRangeMap<K extends Comparable<? super K>, V> implements RangeMap<K, V> {
+
+  private static final int MAGIC = 0x52414E47;
+
+  private static final int VERSION = 1;
+
+  private static final int HEADER_SIZE = 5 * Integer.BYTES;
+
+  private static final int NULL_VALUE = -1;
+
+  private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+  private final ByteBuffer buffer;
+  private final KeyCodec<K> codec;
+  private final int size;
+  private final int recordSize;
+  // we can not create generic arrays
+  private final Object[] values;
+
+  private MappedRangeMap(ByteBuffer buffer, KeyCodec<K> codec, int size, Object[] values) {
+    this.buffer = buffer;
+    this.codec = codec;
+    this.size = size;
+    this.recordSize = recordSize(codec);
+    this.values = values;
+  }
+
+  private static int recordSize(KeyCodec<?> codec) {
+    return 2 * codec.width() + Integer.BYTES;
+  }
+
+  /**
+   * Writes all the ranges of a tree to a file.
+   *
+   * <p>Equal values are written only once.</p>
+   *
+   * @param <K> the type of keys in the tree
+   * @param <V> the type of values in the tree
+   * @param file the file to write, not {@code null}, will be overwritten
+   *             if it already exists
+   * @param tree the tree to write, not {@code null}
+   * @param codec the codec for the keys, not {@code null}
+   * @param valueEncoder converts values to bytes, not {@code null},
+   *                     will not be called for {@code null} values
+   * @throws IOException if the file can not be written
+   * @throws NullPointerException if any argument is {@code null}
+   */
+  public static <K extends Comparable<? super K>, V> void write(Path file, LLRBRangeTree<K, V> tree,
+          KeyCodec<K> codec, Function<? super V, byte[]> valueEncoder) throws IOException {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(tree, "tree");
+    Objects.requireNonNull(codec, "codec");
+    Objects.requireNonNull(valueEncoder, "valueEncoder");
+
+    List<LLRBRangeTree.Node<K, V>> nodes = new ArrayList<>();
+    tree.forEachNode(nodes::add);
+    Map<V, Integer> valueIndices = new HashMap<>();
+    List<byte[]> encodedValues = new ArrayList<>();
+    for (LLRBRangeTree.Node<K, V> node : nodes) {
+      V value = node.value;
+      if (value != null && !valueIndices.containsKey(value)) {
+        valueIndices.put(value, encodedValues.size());
+        encodedValues.add(valueEncoder.apply(value));
+      }
+    }
+
+    try (FileChannel channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+      ByteBuffer writeBuffer = ByteBuffer.allocate(Math.max(WRITE_BUFFER_SIZE, recordSize(codec)));
+      writeBuffer.putInt(MAGIC);
+      writeBuffer.putInt(VERSION);
+      writeBuffer.putInt(codec.width());
+      writeBuffer.putInt(nodes.size());
+      writeBuffer.putInt(encodedValues.size());
+      for (LLRBRangeTree.Node<K, V> node : nodes) {
+        if (writeBuffer.remaining() < recordSize(codec)) {
+          flush(writeBuffer, channel);
+        }
+        writeKey(node.low, codec, writeBuffer);
+        writeKey(node.high, codec, writeBuffer);
+        V value = node.value;
+        writeBuffer.putInt(value != null ? valueIndices.get(value) : NULL_VALUE);
+      }
+      for (byte[] encodedValue : encodedValues) {
+        if (writeBuffer.remaining() < Integer.BYTES) {
+          flush(writeBuffer, channel);
+        }
+        writeBuffer.putInt(encodedValue.length);
+        int written = 0;
+        while (written < encodedValue.length) {
+          if (!writeBuffer.hasRemaining()) {
+            flush(writeBuffer, channel);
+          }
+          int length = Math.min(writeBuffer.remaining(), encodedValue.length - written);
+          writeBuffer.put(encodedValue, written, length);
+          written += length;
+        }
+      }
+      flush(writeBuffer, channel);
+    }
+  }
+
+  private static <K> void writeKey(K key, KeyCodec<K> codec, ByteBuffer writeBuffer) {
+    int start = writeBuffer.position();
+    codec.write(key, writeBuffer);
+    if (writeBuffer.position() - start != codec.width()) {
+      throw new IllegalStateException("codec did not write " + codec.width() + " bytes for key: " + key);
+    }
+  }
+
+  private static void flush(ByteBuffer writeBuffer, FileChannel channel) throws IOException {
+    // cast to Buffer for Java 8 compatibility when compiled on a newer JDK
+    ((Buffer) writeBuffer).flip();
+    while (writeBuffer.hasRemaining()) {
+      channel.write(writeBuffer);
+    }
+    ((Buffer) writeBuffer).clear();
+  }
+
+  /**
+   * Maps a file written by {@link #write(Path, LLRBRangeTree, KeyCodec, Function)}
+   * into memory.
+   *
+   * <p>The file is mapped read-only and must not be modified while
+   * the returned map is in use.</p>
+   *
+   * @param <K> the type of keys in the map
+   * @param <V> the type of values in the map
+   * @param file the file to map, not {@code null}
+   * @param codec the codec for the keys, not {@code null},
+   *              must be compatible with the codec used for writing
+   * @param valueDecoder converts bytes to values, not {@code null},
+   *                     the position of the buffer passed is 0
+   *                     and the limit is the length of the encoded value
+   * @return the mapped range map
+   * @throws IOException if the file can not be read
+   * @throws IllegalArgumentException if the file is not a valid range table
+   *                                  or was written with a different key width
+   * @throws NullPointerException if any argument is {@code null}
+   */
+  public static <K extends Comparable<? super K>, V> MappedRangeMap<K, V> open(Path file,
+          KeyCodec<K> codec, Function<ByteBuffer, ? extends V> valueDecoder) throws IOException {
+    Objects.requireNonNull(file, "file");
+    Objects.requireNonNull(codec, "codec");
+    Objects.requireNonNull(valueDecoder, "valueDecoder");
+
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, READ)) {
+      // the mapping stays valid after the channel is closed
+      buffer = channel.map(MapMode.READ_ONLY, 0L, channel.size());
+    }
+    if (buffer.limit() < HEADER_SIZE) {
+      throw new IllegalArgumentException("file too short for header");
+    }
+    if (buffer.getInt(0) != MAGIC) {
+      throw new IllegalArgumentException("not a range table");
+    }
+    int version = buffer.getInt(Integer.BYTES);
+    if (version != VERSION) {
+      throw new IllegalArgumentException("unsupported version: " + version);
+    }
+    int width = buffer.getInt(2 * Integer.BYTES);
+    if (width != codec.width()) {
+      throw new IllegalArgumentException("key width: " + width
+          + " does not match codec width: " + codec.width());
+    }
+    int size = buffer.getInt(3 * Integer.BYTES);
+    int valueCount = buffer.getInt(4 * Integer.BYTES);
+
+    long valuesOffset = HEADER_SIZE + ((long) size * recordSize(codec));
+    if (size < 0 || valueCount < 0 || valuesOffset > buffer.limit()) {
+      throw new IllegalArgumentException("file too short for " + size + " ranges");
+    }
+    Object[] values = new Object[valueCount];
+    int offset = (int) valuesOffset;
+    for (int i = 0; i < valueCount; i++) {
+      if (offset + Integer.BYTES > buffer.limit()) {
+        throw new IllegalArgumentException("file too short for " + valueCount + " values");
+      }
+      int length = buffer.getInt(offset);
+      offset += Integer.BYTES;
+      if (length < 0 || length > buffer.limit() - offset) {
+        throw new IllegalArgumentException("file too short for " + valueCount + " values");
+      }
+      ByteBuffer slice = buffer.duplicate();
+      ((Buffer) slice).position(offset);
+      ((Buffer) slice).limit(offset + length);
+      values[i] = valueDecoder.apply(slice.slice());
+      offset += length;
+    }
+    return new MappedRangeMap<>(buffer, codec, size, values);
+  }
+
+  /**
+   * Returns the number of ranges in this map.
+   *
+   * @return the number of ranges in this map
+   */
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public void clear() {
+    throw immutable();
+  }
+
+  @Override
+  public V get(K key) {
+    Objects.requireNonNull(key, "key");
+    int offset = this.offsetOf(key);
+    if (offset < 0) {
+      return null;
+    }
+    return this.valueAt(this.buffer.getInt(offset + 2 * this.codec.width()));
+  }
+
+  @Override
+  public Entry<Range<K>, V> getEntry(K key) {
+    Objects.requireNonNull(key, "key");
+    int offset = this.offsetOf(key);
+    if (offset < 0) {
+      return null;
+    }
+    int width = this.codec.width();
+    Range<K> range = new Range<>(this.codec.read(this.buffer, offset), this.codec.read(this.buffer, offset + width));
+    return new SimpleImmutableEntry<>(range, this.valueAt(this.buffer.getInt(offset + 2 * width)));
+  }
+
+  /**
+   * Returns the offset of the record of the range containing a key.
+   *
+   * @return the offset of the record, -1 if not found
+   */
+  private int offsetOf(K key) {
+    int width = this.codec.width();
+    int low = 0;
+    int high = this.size - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int offset = HEADER_SIZE + middle * this.recordSize;
+      if (this.codec.compare(this.buffer, offset, key) > 0) {
+        high = middle - 1;
+      } else if (this.codec.compare(this.buffer, offset + width, key) < 0) {
+        low = middle + 1;
+      } else {
+        return offset;
+      }
+    }
+    return -1;
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(int index) {
+    if (index == NULL_VALUE) {
+      return null;
+    }
+    return (V) this.values[index];
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+    throw immutable();
+  }
+
+  @Override
+  public void put(K low, K high, V value) {
+    throw immutable();
+  }
+
+  @Override
+  public V putIfAbsent(K low, K high, V value) {
+    throw immutable();
+  }
+
+  private static RuntimeException immutable() {
+    return new UnsupportedOperationException("immutable");
+  }
+
+}
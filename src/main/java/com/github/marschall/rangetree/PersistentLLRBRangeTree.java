@@ -0,0 +1,477 @@
+package com.github.marschall.rangetree;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+
+/**
+ * A persistent range tree implementation based on a left-leaning red-black tree.
+ *
+ * <p>Nodes are never modified once they have been published. Inserts
+ * copy only the nodes on the path to the inserted node and publish the
+ * new root through a {@code volatile} field. Lookups traverse an
+ * immutable snapshot without any locking.</p>
+ *
+ * <p>This object is thread-safe. Writes are serialized.</p>
+ *
+ * <p>{@link #computeIfAbsent(Comparable, Function)} applies the mapping
+ * function outside of any lock. Only concurrent misses for the same key
+ * are coalesced, only one thread applies the mapping function and the
+ * others wait for its result. If the mapping function fails the waiting
+ * threads get the same exception, nothing is stored and the next call
+ * tries again.</p>
+ *
+ * <p>Loads are deduplicated by key, not by range. The range of a key is
+ * only known once it has been loaded, so concurrent misses for different
+ * keys of the same missing range each apply the mapping function, the
+ * first range inserted wins and the other loads return its value. Only
+ * misses that start after the range has been inserted find it. If many
+ * different keys of a range miss at the same time the mapping function
+ * should deduplicate by range itself, for example by the prefix of the
+ * key that determines the range.</p>
+ *
+ * <p>The mapping function must not call
+ * {@link #computeIfAbsent(Comparable, Function)} for the same key.</p>
+ *
+ * <p>{@link #computeIfAbsentAsync(Comparable, Function)} loads on an
+ * {@link Executor} and returns a {@link CompletableFuture} so that the
+ * calling thread never waits for a load.</p>
+ *
+ * @param <K> the type of keys in this tree
+ * @param <V> the type of values in this tree
+ * @see <a href="https://www.cs.princeton.edu/~rs/talks/LLRB/LLRB.pdf">Left-leaning Red-Black Trees</a>
+ */
+public final class PersistentLLRBRangeTree<K extends Comparable<? super K>, V> implements RangeMap<K, V> {
+
+  private volatile Node<K, V> root;
+
+  private final Object writeLock;
+
+  // the loads in flight by key, the range is not known before loading
+  private final ConcurrentMap<K, CompletableFuture<V>> loads;
+
+  private final Executor executor;
+
+  /**
+   * Default constructor, asynchronous loads use
+   * {@link ForkJoinPool#commonPool()}.
+   */
+  public PersistentLLRBRangeTree() {
+    this(ForkJoinPool.commonPool());
+  }
+
+  /**
+   * Constructs a tree that uses the given executor for asynchronous loads.
+   *
+   * <p>Where available an executor starting a virtual thread per task is
+   * a good fit for mapping functions that block.</p>
+   *
+   * @param executor the executor on which
+   *                 {@link #computeIfAbsentAsync(Comparable, Function)}
+   *                 calls the mapping function, not {@code null}
+   * @throws NullPointerException if {@code executor} is {@code null}
+   */
+  public PersistentLLRBRangeTree(Executor executor) {
+    Objects.requireNonNull(executor, "executor");
+    this.writeLock = new Object();
+    this.loads = new ConcurrentHashMap<>();
+    this.executor = executor;
+  }
+
+  @Override
+  public void clear() {
+    synchronized (this.writeLock) {
+      this.root = null;
+    }
+  }
+
+  @Override
+  public V get(K key) {
+    Objects.requireNonNull(key, "key");
+    Node<K, V> node = findNode(this.root, key);
+    if (node == null) {
+      return null;
+    }
+    return node.value;
+  }
+
+  @Override
+  public Entry<Range<K>, V> getEntry(K key) {
+    Objects.requireNonNull(key, "key");
+    Node<K, V> node = findNode(this.root, key);
+    if (node == null) {
+      return null;
+    }
+    return new SimpleImmutableEntry<>(new Range<>(node.low, node.high), node.value);
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(mappingFunction, "mappingFunction");
+    Node<K, V> node = findNode(this.root, key);
+    if (node != null) {
+      return node.value;
+    }
+    CompletableFuture<V> load = new CompletableFuture<>();
+    CompletableFuture<V> inFlight = this.loads.putIfAbsent(key, load);
+    if (inFlight != null) {
+      return join(inFlight);
+    }
+    try {
+      V value = this.load(key, mappingFunction);
+      load.complete(value);
+      return value;
+    } catch (RuntimeException | Error e) {
+      load.completeExceptionally(e);
+      throw e;
+    } finally {
+      this.loads.remove(key, load);
+    }
+  }
+
+  private V load(K key, Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+    // a load for the key may have completed between the lookup and registering our load
+    Node<K, V> node = findNode(this.root, key);
+    if (node != null) {
+      return node.value;
+    }
+    // the mapping function is applied outside the lock so that it does not block other writers
+    return this.insertLoaded(mappingFunction.apply(key));
+  }
+
+  /**
+   * Looks up the value of a key and loads it asynchronously if the key is not
+   * mapped. Similar to {@link #computeIfAbsent(Comparable, Function)} but
+   * the calling thread does not wait for the load.
+   *
+   * <p>The mapping function is called on the executor of this tree and the
+   * loaded range is inserted when the future it returns completes.
+   * Concurrent misses for the same key share the same load, including
+   * misses of {@link #computeIfAbsent(Comparable, Function)}. Misses for
+   * different keys of the same range do not, see the class comment. If the load
+   * fails the returned future completes exceptionally and nothing is
+   * stored.</p>
+   *
+   * @param key the key to look up, not {@code null}
+   * @param mappingFunction returns a future of the range containing the key
+   *                        and its value, not {@code null}
+   * @return a future of the value mapped to the key, the future completes
+   *         with {@code null} if the loaded value is {@code null}
+   * @throws NullPointerException if {@code key} or {@code mappingFunction}
+   *                              is {@code null}
+   * @see #PersistentLLRBRangeTree(Executor)
+   */
+  public CompletableFuture<V> computeIfAbsentAsync(K key,
+      Function<? super K, ? extends CompletionStage<? extends Entry<Range<? extends K>, ? extends V>>> mappingFunction) {
+    Objects.requireNonNull(key, "key");
+    Objects.requireNonNull(mappingFunction, "mappingFunction");
+    Node<K, V> node = findNode(this.root, key);
+    if (node != null) {
+      return CompletableFuture.completedFuture(node.value);
+    }
+    CompletableFuture<V> load = new CompletableFuture<>();
+    CompletableFuture<V> inFlight = this.loads.putIfAbsent(key, load);
+    if (inFlight != null) {
+      return dependent(inFlight);
+    }
+    try {
+      this.executor.execute(() -> this.loadAsync(key, mappingFunction, load));
+    } catch (RuntimeException e) {
+      // usually a RejectedExecutionException
+      this.completeLoad(key, load, null, e);
+    }
+    return dependent(load);
+  }
+
+  private void loadAsync(K key,
+      Function<? super K, ? extends CompletionStage<? extends Entry<Range<? extends K>, ? extends V>>> mappingFunction,
+      CompletableFuture<V> load) {
+    // a load for the key may have completed between the lookup and registering our load
+    Node<K, V> node = findNode(this.root, key);
+    if (node != null) {
+      this.completeLoad(key, load, node.value, null);
+      return;
+    }
+    CompletionStage<? extends Entry<Range<? extends K>, ? extends V>> stage;
+    try {
+      stage = Objects.requireNonNull(mappingFunction.apply(key), "mappingFunction returned null");
+    } catch (RuntimeException | Error e) {
+      this.completeLoad(key, load, null, e);
+      return;
+    }
+    stage.whenComplete((entry, failure) -> {
+      if (failure != null) {
+        this.completeLoad(key, load, null, failure);
+        return;
+      }
+      V value;
+      try {
+        value = this.insertLoaded(entry);
+      } catch (RuntimeException | Error e) {
+        // always complete, otherwise the load stays registered forever
+        this.completeLoad(key, load, null, e);
+        return;
+      }
+      this.completeLoad(key, load, value, null);
+    });
+  }
+
+  private void completeLoad(K key, CompletableFuture<V> load, V value, Throwable failure) {
+    // unregister first so that callbacks of the future can start a new load
+    this.loads.remove(key, load);
+    if (failure == null) {
+      load.complete(value);
+    } else {
+      load.completeExceptionally(failure);
+    }
+  }
+
+  /**
+   * Returns a future that completes with a load but can not complete the load.
+   */
+  private static <V> CompletableFuture<V> dependent(CompletableFuture<V> load) {
+    return load.thenApply(Function.identity());
+  }
+
+  private V insertLoaded(Entry<Range<? extends K>, ? extends V> entry) {
+    Range<? extends K> range = entry.getKey();
+    K low = range.getLow();
+    K high = range.getHigh();
+    this.validateRange(low, high);
+    V value = entry.getValue();
+    if (value == null) {
+      return null;
+    }
+    // another thread may have inserted the range in the meantime
+    return this.insertIfAbsent(low, high, value);
+  }
+
+  private static <V> V join(CompletableFuture<V> load) {
+    try {
+      return load.join();
+    } catch (CompletionException e) {
+      // rethrow the exception of the mapping function unwrapped
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public void put(K low, K high, V value) {
+    this.validateRange(low, high);
+    synchronized (this.writeLock) {
+      this.root = this.insertRoot(this.root, low, high, value);
+    }
+  }
+
+  @Override
+  public V putIfAbsent(K low, K high, V value) {
+    this.validateRange(low, high);
+    Node<K, V> node = findNode(this.root, low, high);
+    if (node != null) {
+      // no need to take the lock if there already is a mapping
+      return this.existingValue(node, low, high);
+    }
+    this.insertIfAbsent(low, high, value);
+    // we inserted so previous was always null
+    return null;
+  }
+
+  private V insertIfAbsent(K low, K high, V value) {
+    synchronized (this.writeLock) {
+      Node<K, V> current = this.root;
+      Node<K, V> node = findNode(current, low, high);
+      if (node == null) {
+        this.root = this.insertRoot(current, low, high, value);
+        return value;
+      } else {
+        return this.existingValue(node, low, high);
+      }
+    }
+  }
+
+  private V existingValue(Node<K, V> node, K low, K high) {
+    if (!node.containsRange(low, high)) {
+      throw this.overlappingRange(node, low, high);
+    }
+    return node.value;
+  }
+
+  private void validateRange(K low, K high) {
+    Objects.requireNonNull(low, "low");
+    Objects.requireNonNull(high, "high");
+    if (low.compareTo(high) > 0) {
+      throw this.mustBeLessThan(low, high);
+    }
+  }
+
+  private RuntimeException mustBeLessThan(K low, K high) {
+    return new IllegalArgumentException("low: " + low
+        + " must be less than high: " + high);
+  }
+
+  private static <K extends Comparable<? super K>, V> Node<K, V> findNode(Node<K, V> root, K key) {
+    Node<K, V> current = root;
+    while (current != null) {
+      int compare = current.compareToKey(key);
+      if (compare > 0) {
+        current = current.left;
+      } else if (compare < 0) {
+        current = current.right;
+      } else {
+        return current;
+      }
+    }
+    return null;
+  }
+
+  private static <K extends Comparable<? super K>, V> Node<K, V> findNode(Node<K, V> root, K low, K high) {
+    Node<K, V> current = root;
+    while (current != null) {
+      if (current.low.compareTo(high) > 0) {
+        current = current.left;
+      } else if (current.high.compareTo(low) < 0) {
+        current = current.right;
+      } else {
+        return current;
+      }
+    }
+    return null;
+  }
+
+  private Node<K, V> insertRoot(Node<K, V> h, K low, K high, V value) {
+    Node<K, V> newRoot = this.insert(h, low, high, value);
+    if (newRoot.color == Node.RED) {
+      newRoot = newRoot.withColor(Node.BLACK);
+    }
+    return newRoot;
+  }
+
+  private Node<K, V> insert(Node<K, V> h, K low, K high, V value) {
+    if (h == null) {
+      return new Node<>(low, high, value, Node.RED, null, null);
+    }
+    if (isRed(h.left) && isRed(h.right)) {
+      h = h.flipColors();
+    }
+    if (h.low.compareTo(high) > 0) {
+      h = h.withLeft(this.insert(h.left, low, high, value));
+    } else if (h.high.compareTo(low) < 0) {
+      h = h.withRight(this.insert(h.right, low, high, value));
+    } else {
+      throw this.overlappingRange(h, low, high);
+    }
+    if (isRed(h.right) && !isRed(h.left)) {
+      h = h.rotateLeft();
+    }
+    if (isRed(h.left) && isRed(h.left.left)) {
+      h = h.rotateRight();
+    }
+    return h;
+  }
+
+  private RuntimeException overlappingRange(Node<?, ?> node, K low, K high) {
+    return new IllegalArgumentException("can not insert range from: " + low
+        + " to: " + high
+        + " because range from: " + node.low
+        + " to: " + node.high
+        + " already exists");
+  }
+
+  private static boolean isRed(Node<?, ?> node) {
+    return (node != null) && (node.color == Node.RED);
+  }
+
+  /**
+   * An immutable node, every modification creates a copy.
+   */
+  static final class Node<K extends Comparable<? super K>, V> {
+
+    static final boolean RED   = true;
+    static final boolean BLACK = false;
+
+    final K low;
+    final K high;
+    final V value;
+    final boolean color;
+    final Node<K, V> left; // smaller
+    final Node<K, V> right; // larger
+
+    Node(K low, K high, V value, boolean color, Node<K, V> left, Node<K, V> right) {
+      this.low = low;
+      this.high = high;
+      this.value = value;
+      this.color = color;
+      this.left = left;
+      this.right = right;
+    }
+
+    int compareToKey(K key) {
+      int lowCompare = this.low.compareTo(key);
+      if (lowCompare > 0) {
+        return lowCompare;
+      }
+      int highCompare = this.high.compareTo(key);
+      if (highCompare < 0) {
+        return highCompare;
+      }
+      return 0;
+    }
+
+    boolean containsRange(K a, K b) {
+      return this.low.compareTo(a) <= 0 && this.high.compareTo(b) >= 0;
+    }
+
+    Node<K, V> withColor(boolean newColor) {
+      return new Node<>(this.low, this.high, this.value, newColor, this.left, this.right);
+    }
+
+    Node<K, V> withLeft(Node<K, V> newLeft) {
+      return new Node<>(this.low, this.high, this.value, this.color, newLeft, this.right);
+    }
+
+    Node<K, V> withRight(Node<K, V> newRight) {
+      return new Node<>(this.low, this.high, this.value, this.color, this.left, newRight);
+    }
+
+    Node<K, V> flipColors() {
+      // no need for null check since its only done if both
+      // children are red
+      return new Node<>(this.low, this.high, this.value, !this.color,
+          this.left.withColor(!this.left.color), this.right.withColor(!this.right.color));
+    }
+
+    Node<K, V> rotateLeft() {
+      Node<K, V> x = this.right;
+      Node<K, V> newLeft = new Node<>(this.low, this.high, this.value, RED, this.left, x.left);
+      return new Node<>(x.low, x.high, x.value, this.color, newLeft, x.right);
+    }
+
+    Node<K, V> rotateRight() {
+      Node<K, V> x = this.left;
+      Node<K, V> newRight = new Node<>(this.low, this.high, this.value, RED, x.right, this.right);
+      return new Node<>(x.low, x.high, x.value, this.color, x.left, newRight);
+    }
+
+    @Override
+    public String toString() {
+      return "[" + this.low + ".." + this.high + "]:" + this.value;
+    }
+
+  }
+
+}
@@ -0,0 +1,269 @@
+package com.github.marschall.rangetree;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * An immutable range map with a direct indexed first level.
+ *
+ * <p>Like {@link ArrayRangeMap} the lower bounds, upper bounds and values
+ * are stored in parallel arrays sorted by lower bound. In addition every
+ * key has a prefix, for example its leading decimal digits, which is used
+ * as index into a table of slots. Every slot contains the first and end
+ * index of the run of ranges that overlap keys with that prefix. A lookup
+ * reads the slot of its prefix, returns immediately if the slot is empty
+ * and otherwise does a binary search over only the ranges of the slot.
+ * This works best if the ranges are dense in the prefix space and the
+ * number of ranges per slot is small.</p>
+ *
+ * <p>The prefix function has to be monotonic, for any two keys
+ * {@code a <= b} {@code prefix(a) <= prefix(b)} has to hold. The prefixes
+ * of the bounds of all ranges have to be in {@code [0, slots)}. Keys with
+ * a prefix outside of that interval are not contained in any range.</p>
+ *
+ * <p>The table needs 8 bytes per slot, for example 8 MB for all six digit
+ * prefixes.</p>
+ *
+ * <p>This object is thread-safe, all mutating methods throw
+ * {@link UnsupportedOperationException}.</p>
+ *
+ * @param <K> the type of keys in this map
+ * @param <V> the type of values in this map
+ * @see com.github.marschall.rangetree.key.U96#prefix(int, int)
+ */
+public final class PrefixIndexedRangeMap<K extends Comparable<? super K>, V> implements RangeMap<K, V> {
+
+  private final ToIntFunction<? super K> prefix;
+
+  // the index of the first range of every slot, inclusive
+  private final int[] first;
+  // the index of the last range of every slot, exclusive
+  private final int[] end;
+
+  // we can not create generic arrays
+  private final Object[] lows;
+  private final Object[] highs;
+  private final Object[] values;
+
+  private PrefixIndexedRangeMap(ToIntFunction<? super K> prefix, int[] first, int[] end,
+      Object[] lows, Object[] highs, Object[] values) {
+    this.prefix = prefix;
+    this.first = first;
+    this.end = end;
+    this.lows = lows;
+    this.highs = highs;
+    this.values = values;
+  }
+
+  /**
+   * Creates an immutable copy of a {@link LLRBRangeTree}.
+   *
+   * <p>Later modifications of the tree are not reflected in the copy.</p>
+   *
+   * @param <K> the type of keys in the map
+   * @param <V> the type of values in the map
+   * @param tree the tree to copy, not {@code null}
+   * @param prefix the monotonic function returning the prefix of a key,
+   *               not {@code null}
+   * @param slots the number of slots, the prefixes of all bounds have to
+   *              be less than this, positive
+   * @return the immutable copy
+   * @throws NullPointerException if {@code tree} or {@code prefix} is {@code null}
+   * @throws IllegalArgumentException if {@code slots} is not positive
+   * @throws IllegalArgumentException if the prefix of a bound is not
+   *                                  in {@code [0, slots)} or the prefix of
+   *                                  a lower bound is greater than the
+   *                                  prefix of its upper bound
+   */
+  public static <K extends Comparable<? super K>, V> PrefixIndexedRangeMap<K, V> copyOf(LLRBRangeTree<K, V> tree,
+      ToIntFunction<? super K> prefix, int slots) {
+    Objects.requireNonNull(tree, "tree");
+    Objects.requireNonNull(prefix, "prefix");
+    if (slots <= 0) {
+      throw new IllegalArgumentException("slots: " + slots + " must be positive");
+    }
+    int size = tree.size();
+    Object[] lows = new Object[size];
+    Object[] highs = new Object[size];
+    Object[] values = new Object[size];
+    int[] first = new int[slots];
+    int[] end = new int[slots];
+    int[] index = new int[1];
+    // nodes are visited in order and can not overlap, no need to validate
+    tree.forEachNode(node -> {
+      int i = index[0]++;
+      lows[i] = node.low;
+      highs[i] = node.high;
+      values[i] = node.value;
+      int lowPrefix = checkPrefix(prefix.applyAsInt(node.low), slots, node.low);
+      int highPrefix = checkPrefix(prefix.applyAsInt(node.high), slots, node.high);
+      if (lowPrefix > highPrefix) {
+        throw new IllegalArgumentException("prefix of: " + node.low
+            + " is greater than prefix of: " + node.high);
+      }
+      for (int slot = lowPrefix; slot <= highPrefix; slot++) {
+        if (first[slot] == end[slot]) {
+          // empty so far
+          first[slot] = i;
+        }
+        end[slot] = i + 1;
+      }
+    });
+    return new PrefixIndexedRangeMap<K, V>(prefix, first, end, lows, highs, values);
+  }
+
+  private static int checkPrefix(int prefix, int slots, Object key) {
+    if (prefix < 0 || prefix >= slots) {
+      throw new IllegalArgumentException("prefix: " + prefix + " of: " + key
+          + " is not in [0, " + slots + ")");
+    }
+    return prefix;
+  }
+
+  /**
+   * Returns a prefix function for non-negative {@link Long} keys.
+   *
+   * <p>The prefix are the {@code prefixDigits} leading digits of a key
+   * padded with leading zeros to {@code totalDigits} digits, the number of
+   * slots is 10<sup>{@code prefixDigits}</sup>. Keys with more than
+   * {@code totalDigits} digits are beyond all slots.</p>
+   *
+   * @param totalDigits the number of digits of the keys, [1..18]
+   * @param prefixDigits the number of leading digits to use, [1..9] and
+   *                     not greater than {@code totalDigits}
+   * @return the prefix function
+   * @throws IllegalArgumentException if {@code totalDigits} or
+   *                                  {@code prefixDigits} is out of range
+   */
+  public static ToIntFunction<Long> longPrefix(int totalDigits, int prefixDigits) {
+    if (totalDigits < 1 || totalDigits > 18) {
+      throw new IllegalArgumentException("totalDigits: " + totalDigits + " must be [1..18]");
+    }
+    if (prefixDigits < 1 || prefixDigits > 9 || prefixDigits > totalDigits) {
+      throw new IllegalArgumentException("prefixDigits: " + prefixDigits
+          + " must be [1..9] and not greater than totalDigits: " + totalDigits);
+    }
+    long limit = powerOfTen(totalDigits);
+    long divisor = powerOfTen(totalDigits - prefixDigits);
+    return key -> {
+      long value = key;
+      if (value < 0L) {
+        return -1;
+      }
+      if (value >= limit) {
+        return Integer.MAX_VALUE;
+      }
+      return (int) (value / divisor);
+    };
+  }
+
+  private static long powerOfTen(int exponent) {
+    long power = 1L;
+    for (int i = 0; i < exponent; i++) {
+      power *= 10L;
+    }
+    return power;
+  }
+
+  /**
+   * Returns the number of ranges in this map.
+   *
+   * @return the number of ranges in this map
+   */
+  public int size() {
+    return this.lows.length;
+  }
+
+  /**
+   * Returns the number of slots.
+   *
+   * @return the number of slots
+   */
+  public int slots() {
+    return this.first.length;
+  }
+
+  @Override
+  public void clear() {
+    throw immutable();
+  }
+
+  @Override
+  public V get(K key) {
+    Objects.requireNonNull(key, "key");
+    int index = this.indexOf(key);
+    if (index < 0) {
+      return null;
+    }
+    return this.valueAt(index);
+  }
+
+  @Override
+  public Entry<Range<K>, V> getEntry(K key) {
+    Objects.requireNonNull(key, "key");
+    int index = this.indexOf(key);
+    if (index < 0) {
+      return null;
+    }
+    return new SimpleImmutableEntry<>(new Range<>(this.lowAt(index), this.highAt(index)), this.valueAt(index));
+  }
+
+  private int indexOf(K key) {
+    int slot = this.prefix.applyAsInt(key);
+    if (slot < 0 || slot >= this.first.length) {
+      return -1;
+    }
+    int low = this.first[slot];
+    int high = this.end[slot] - 1;
+    // empty slots have low > high and fall through
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (this.lowAt(middle).compareTo(key) > 0) {
+        high = middle - 1;
+      } else if (this.highAt(middle).compareTo(key) < 0) {
+        low = middle + 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  @SuppressWarnings("unchecked")
+  private K lowAt(int index) {
+    return (K) this.lows[index];
+  }
+
+  @SuppressWarnings("unchecked")
+  private K highAt(int index) {
+    return (K) this.highs[index];
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(int index) {
+    return (V) this.values[index];
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+    throw immutable();
+  }
+
+  @Override
+  public void put(K low, K high, V value) {
+    throw immutable();
+  }
+
+  @Override
+  public V putIfAbsent(K low, K high, V value) {
+    throw immutable();
+  }
+
+  private static RuntimeException immutable() {
+    return new UnsupportedOperationException("immutable");
+  }
+
+}
@@ -30,7 +30,7 @@ public final class Range<E> {
    *
    * @return the lower bound, not {@code null}
    */
-  E getLow() {
+  public E getLow() {
     return this.low;
   }
 
@@ -39,10 +39,27 @@ public final class Range<E> {
    *
    * @return the upper bound, not {@code null}
    */
-  E getHigh() {
+  public E getHigh() {
     return this.high;
   }
 
+  @Override
+  public boolean equals(Object obj) {
+    if (obj == this) {
+      return true;
+    }
+    if (!(obj instanceof Range)) {
+      return false;
+    }
+    Range<?> other = (Range<?>) obj;
+    return this.low.equals(other.low) && this.high.equals(other.high);
+  }
+
+  @Override
+  public int hashCode() {
+    return (31 * this.low.hashCode()) + this.high.hashCode();
+  }
+
   @Override
   public String toString() {
     return "[" + this.low + ".." + this.high + "]";
@@ -0,0 +1,744 @@
+package com.github.marschall.rangetree;
+
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * A {@link RangeMap} holding a bounded number of ranges, intended as a
+ * read through cache populated with
+ * {@link #computeIfAbsent(Comparable, Function)}.
+ *
+ * <p>The ranges are stored in a {@link LLRBRangeTree}. Once the number
+ * or the total weight of the ranges exceeds the maximum ranges are evicted
+ * one by one using the CLOCK algorithm, an approximation of least recently
+ * used. Every range has an access bit that is set on lookup. The clock
+ * hand sweeps over the ranges clearing the bits and evicts the first range
+ * that has not been accessed since the last sweep.</p>
+ *
+ * <p>Ranges can expire a fixed time after they have been written. Lookups
+ * do not return expired ranges. Expired ranges are removed in small batches
+ * in write order during writes and, if the write lock is free, during
+ * lookups that encounter an expired range. There is no background thread
+ * and no sweep over the whole cache.</p>
+ *
+ * <p>Ranges loaded with {@link #computeIfAbsent(Comparable, Function)} can
+ * be refreshed a fixed time after they have been written. A lookup of such
+ * a range returns the current value and reloads the range asynchronously
+ * with the original mapping function on the executor of the cache. If the
+ * reload fails the current value is kept and a later lookup tries again.
+ * The default executor is {@link ForkJoinPool#commonPool()}, mapping
+ * functions that block, for example on I/O, should use a dedicated
+ * executor set with {@link Builder#executor(Executor)}.</p>
+ *
+ * <p>Lookups use optimistic reads of a {@link StampedLock} and only set the
+ * access bit, they do not take exclusive locks. The mapping function of
+ * {@link #computeIfAbsent(Comparable, Function)} is applied outside of
+ * the lock, inserts, evictions and expiry are done under the write
+ * lock.</p>
+ *
+ * <p>Eviction, expiry and refresh remove or replace ranges behind the
+ * back of any wrapper. Do not wrap a cache in a {@link LastHitRangeMap},
+ * it would keep returning evicted, expired or outdated ranges.</p>
+ *
+ * <p>This object is thread-safe.</p>
+ *
+ * @param <K> the type of keys in this cache
+ * @param <V> the type of values in this cache
+ * @see <a href="https://en.wikipedia.org/wiki/Page_replacement_algorithm#Clock">Clock</a>
+ */
+public final class RangeCache<K extends Comparable<? super K>, V> implements RangeMap<K, V> {
+
+  static final long NEVER = Long.MAX_VALUE;
+
+  // the maximum number of expired ranges removed by a single operation
+  private static final int EXPIRY_BATCH_SIZE = 16;
+
+  private final LLRBRangeTree<K, CacheEntry<K, V>> tree;
+
+  private final StampedLock lock;
+
+  private final long maximumWeight;
+
+  private final Weigher<? super K, ? super V> weigher;
+
+  private final long expireAfterWriteNanos;
+
+  private final long refreshAfterWriteNanos;
+
+  // whether the ticker has to be read at all
+  private final boolean timed;
+
+  private final Executor executor;
+
+  private final LongSupplier ticker;
+
+  // the ranges in the order the clock hand visits them, only accessed under the write lock
+  private CacheEntry<K, V>[] clock;
+
+  private int clockSize;
+
+  private int hand;
+
+  // the ranges in the order they were written, only accessed under the write lock
+  private CacheEntry<K, V> writeOrderHead;
+
+  private CacheEntry<K, V> writeOrderTail;
+
+  private long weightedSize;
+
+  private long evictionCount;
+
+  RangeCache(Builder<K, V> builder) {
+    this.tree = new LLRBRangeTree<>();
+    this.lock = new StampedLock();
+    this.maximumWeight = builder.maximumWeight == Builder.UNSET ? Long.MAX_VALUE : builder.maximumWeight;
+    this.weigher = builder.weigher;
+    this.expireAfterWriteNanos = builder.expireAfterWriteNanos;
+    this.refreshAfterWriteNanos = builder.refreshAfterWriteNanos;
+    this.timed = this.expireAfterWriteNanos != NEVER || this.refreshAfterWriteNanos != NEVER;
+    this.executor = builder.executor;
+    this.ticker = builder.ticker;
+    this.clock = newClock(16);
+  }
+
+  /**
+   * Creates a builder for a cache.
+   *
+   * @param <K> the type of keys in the cache
+   * @param <V> the type of values in the cache
+   * @return the new builder
+   */
+  public static <K extends Comparable<? super K>, V> Builder<K, V> builder() {
+    return new Builder<>();
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static <K extends Comparable<? super K>, V> CacheEntry<K, V>[] newClock(int length) {
+    return new CacheEntry[length];
+  }
+
+  @Override
+  public void clear() {
+    long stamp = this.lock.writeLock();
+    try {
+      this.tree.clear();
+      this.clock = newClock(16);
+      this.clockSize = 0;
+      this.hand = 0;
+      this.writeOrderHead = null;
+      this.writeOrderTail = null;
+      this.weightedSize = 0L;
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public V get(K key) {
+    CacheEntry<K, V> entry = this.read(key);
+    if (entry == null) {
+      return null;
+    }
+    return entry.value;
+  }
+
+  @Override
+  public Entry<Range<K>, V> getEntry(K key) {
+    CacheEntry<K, V> entry = this.read(key);
+    if (entry == null) {
+      return null;
+    }
+    return new SimpleImmutableEntry<>(new Range<>(entry.low, entry.high), entry.value);
+  }
+
+  private CacheEntry<K, V> read(K key) {
+    Objects.requireNonNull(key, "key");
+    CacheEntry<K, V> entry = this.lookUp(key);
+    if (entry == null) {
+      return null;
+    }
+    if (this.timed) {
+      long now = this.ticker.getAsLong();
+      if (this.isExpired(entry, now)) {
+        this.tryExpire(now);
+        return null;
+      }
+      if (now - entry.writeTime >= this.refreshAfterWriteNanos) {
+        this.refresh(key, entry);
+      }
+    }
+    if (!entry.accessed) {
+      // avoid writing to shared memory if the bit is already set,
+      // setting the bit of an entry that was just evicted is harmless
+      entry.accessed = true;
+    }
+    return entry;
+  }
+
+  private CacheEntry<K, V> lookUp(K key) {
+    // same as StampedLockRangeMap, eviction and expiry relink nodes so a
+    // racing lookup may follow inconsistent links, LLRBRangeTree#get gives
+    // up with a ConcurrentModificationException instead of looping. The
+    // entry is only used after the stamp has been validated
+    long stamp = this.lock.tryOptimisticRead();
+    if (stamp != 0L) {
+      try {
+        CacheEntry<K, V> entry = this.tree.get(key);
+        if (this.lock.validate(stamp)) {
+          return entry;
+        }
+      } catch (RuntimeException | Error e) {
+        // the exception may have been caused by reading inconsistent state
+        if (this.lock.validate(stamp)) {
+          throw e;
+        }
+      }
+    }
+    stamp = this.lock.readLock();
+    try {
+      return this.tree.get(key);
+    } finally {
+      this.lock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+    Objects.requireNonNull(mappingFunction, "mappingFunction");
+    CacheEntry<K, V> existing = this.read(key);
+    if (existing != null) {
+      return existing.value;
+    }
+    // the mapping function is applied outside the lock so that it does not block other threads
+    Entry<Range<? extends K>, ? extends V> entry = mappingFunction.apply(key);
+    Range<? extends K> range = entry.getKey();
+    K low = range.getLow();
+    K high = range.getHigh();
+    V value = entry.getValue();
+    if (value == null) {
+      return null;
+    }
+    // another thread may have inserted the range in the meantime
+    V previous = this.putIfAbsent(this.newEntry(low, high, value, mappingFunction));
+    if (previous != null) {
+      return previous;
+    }
+    return value;
+  }
+
+  @Override
+  public void put(K low, K high, V value) {
+    CacheEntry<K, V> entry = this.newEntry(low, high, value, null);
+    long stamp = this.lock.writeLock();
+    try {
+      this.expire(entry.writeTime);
+      this.removeExpiredOverlapping(low, high, entry.writeTime);
+      this.tree.put(low, high, entry);
+      this.added(entry);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public V putIfAbsent(K low, K high, V value) {
+    return this.putIfAbsent(this.newEntry(low, high, value, null));
+  }
+
+  private V putIfAbsent(CacheEntry<K, V> entry) {
+    long stamp = this.lock.writeLock();
+    try {
+      this.expire(entry.writeTime);
+      this.removeExpiredOverlapping(entry.low, entry.high, entry.writeTime);
+      CacheEntry<K, V> previous = this.tree.putIfAbsent(entry.low, entry.high, entry);
+      if (previous != null) {
+        return previous.value;
+      }
+      this.added(entry);
+      return null;
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+  }
+
+  private boolean isExpired(CacheEntry<K, V> entry, long now) {
+    return now - entry.writeTime >= this.expireAfterWriteNanos;
+  }
+
+  /**
+   * Removes expired ranges if the write lock can be acquired without waiting.
+   */
+  private void tryExpire(long now) {
+    long stamp = this.lock.tryWriteLock();
+    if (stamp != 0L) {
+      try {
+        this.expire(now);
+      } finally {
+        this.lock.unlockWrite(stamp);
+      }
+    }
+  }
+
+  /**
+   * Removes a batch of the oldest ranges if they are expired, has to be
+   * called under the write lock.
+   */
+  private void expire(long now) {
+    if (this.expireAfterWriteNanos == NEVER) {
+      return;
+    }
+    // all ranges have the same time to live so the oldest expire first
+    for (int i = 0; i < EXPIRY_BATCH_SIZE; i++) {
+      CacheEntry<K, V> oldest = this.writeOrderHead;
+      if (oldest == null || !this.isExpired(oldest, now)) {
+        return;
+      }
+      this.remove(oldest);
+    }
+  }
+
+  /**
+   * Removes the expired ranges overlapping a range that is about to be
+   * inserted, has to be called under the write lock.
+   */
+  private void removeExpiredOverlapping(K low, K high, long now) {
+    if (this.expireAfterWriteNanos == NEVER) {
+      return;
+    }
+    List<CacheEntry<K, V>> expired = null;
+    for (Entry<Range<K>, CacheEntry<K, V>> overlapping : this.tree.overlapping(low, high)) {
+      CacheEntry<K, V> entry = overlapping.getValue();
+      if (this.isExpired(entry, now)) {
+        if (expired == null) {
+          expired = new ArrayList<>(2);
+        }
+        expired.add(entry);
+      }
+    }
+    if (expired != null) {
+      for (CacheEntry<K, V> entry : expired) {
+        this.remove(entry);
+      }
+    }
+  }
+
+  private void refresh(K key, CacheEntry<K, V> entry) {
+    if (entry.mappingFunction == null || !CacheEntry.REFRESHING.compareAndSet(entry, 0, 1)) {
+      // not loaded or already being refreshed
+      return;
+    }
+    boolean submitted = false;
+    try {
+      this.executor.execute(() -> this.reload(key, entry));
+      submitted = true;
+    } catch (RuntimeException e) {
+      // usually a RejectedExecutionException, a later lookup tries again
+    } finally {
+      // also reset if the executor throws an Error, the Error is rethrown
+      if (!submitted) {
+        entry.refreshing = 0;
+      }
+    }
+  }
+
+  private void reload(K key, CacheEntry<K, V> entry) {
+    try {
+      this.replace(key, entry);
+    } finally {
+      // the entry was either replaced or has to be refreshed by a later
+      // lookup, also if the mapping function threw an Error, otherwise
+      // the entry would keep its stale value without ever being refreshed
+      entry.refreshing = 0;
+    }
+  }
+
+  private void replace(K key, CacheEntry<K, V> entry) {
+    CacheEntry<K, V> reloaded;
+    try {
+      Entry<Range<? extends K>, ? extends V> loaded = entry.mappingFunction.apply(key);
+      Range<? extends K> range = loaded.getKey();
+      reloaded = this.newEntry(range.getLow(), range.getHigh(), loaded.getValue(), entry.mappingFunction);
+    } catch (RuntimeException e) {
+      // keep the current value, a later lookup tries again
+      return;
+    }
+    long stamp = this.lock.writeLock();
+    try {
+      if (this.tree.get(entry.low) != entry) {
+        // evicted, expired or cleared in the meantime
+        return;
+      }
+      this.remove(entry);
+      if (reloaded.value == null) {
+        return;
+      }
+      this.removeExpiredOverlapping(reloaded.low, reloaded.high, reloaded.writeTime);
+      if (this.tree.putIfAbsent(reloaded.low, reloaded.high, reloaded) == null) {
+        this.added(reloaded);
+      }
+    } catch (IllegalArgumentException e) {
+      // the reloaded range overlaps an other range, drop it
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Returns the number of ranges in this cache.
+   *
+   * @return the number of ranges in this cache
+   */
+  public int size() {
+    long stamp = this.lock.readLock();
+    try {
+      return this.clockSize;
+    } finally {
+      this.lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Returns the total weight of the ranges in this cache. If the cache
+   * is bounded by size this is the number of ranges.
+   *
+   * @return the total weight of the ranges in this cache
+   */
+  public long weightedSize() {
+    long stamp = this.lock.readLock();
+    try {
+      return this.weightedSize;
+    } finally {
+      this.lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Returns the number of ranges evicted since this cache was created.
+   *
+   * @return the number of evicted ranges
+   */
+  public long evictionCount() {
+    long stamp = this.lock.readLock();
+    try {
+      return this.evictionCount;
+    } finally {
+      this.lock.unlockRead(stamp);
+    }
+  }
+
+  private CacheEntry<K, V> newEntry(K low, K high, V value,
+      Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+    Objects.requireNonNull(low, "low");
+    Objects.requireNonNull(high, "high");
+    int weight;
+    if (this.weigher != null) {
+      weight = this.weigher.weigh(low, high, value);
+      if (weight < 0) {
+        throw new IllegalArgumentException("weight: " + weight + " must not be negative");
+      }
+    } else {
+      weight = 1;
+    }
+    long writeTime = this.timed ? this.ticker.getAsLong() : 0L;
+    return new CacheEntry<>(low, high, value, weight, writeTime, mappingFunction);
+  }
+
+  private void added(CacheEntry<K, V> entry) {
+    if (this.clockSize == this.clock.length) {
+      CacheEntry<K, V>[] newClock = newClock(this.clock.length * 2);
+      System.arraycopy(this.clock, 0, newClock, 0, this.clockSize);
+      this.clock = newClock;
+    }
+    entry.index = this.clockSize;
+    this.clock[this.clockSize] = entry;
+    this.clockSize += 1;
+    if (this.writeOrderTail == null) {
+      this.writeOrderHead = entry;
+    } else {
+      this.writeOrderTail.nextInWriteOrder = entry;
+      entry.previousInWriteOrder = this.writeOrderTail;
+    }
+    this.writeOrderTail = entry;
+    this.weightedSize += entry.weight;
+    this.evict(entry);
+  }
+
+  private void evict(CacheEntry<K, V> added) {
+    // every sweep clears all access bits so this terminates after at most two sweeps
+    while (this.weightedSize > this.maximumWeight && this.clockSize > 0) {
+      if (this.hand >= this.clockSize) {
+        this.hand = 0;
+      }
+      CacheEntry<K, V> candidate = this.clock[this.hand];
+      if (candidate == added && this.clockSize > 1) {
+        // the range just added has not had a chance to be accessed yet,
+        // it is only evicted if it alone exceeds the maximum
+        this.hand += 1;
+      } else if (candidate.accessed) {
+        candidate.accessed = false;
+        this.hand += 1;
+      } else {
+        this.remove(candidate);
+        this.evictionCount += 1;
+      }
+    }
+  }
+
+  private void remove(CacheEntry<K, V> entry) {
+    this.tree.remove(entry.low, entry.high);
+    // move the last entry into the free slot, the hand visits it next
+    int last = this.clockSize - 1;
+    CacheEntry<K, V> moved = this.clock[last];
+    this.clock[entry.index] = moved;
+    moved.index = entry.index;
+    this.clock[last] = null;
+    this.clockSize = last;
+    CacheEntry<K, V> previous = entry.previousInWriteOrder;
+    CacheEntry<K, V> next = entry.nextInWriteOrder;
+    if (previous == null) {
+      this.writeOrderHead = next;
+    } else {
+      previous.nextInWriteOrder = next;
+    }
+    if (next == null) {
+      this.writeOrderTail = previous;
+    } else {
+      next.previousInWriteOrder = previous;
+    }
+    entry.previousInWriteOrder = null;
+    entry.nextInWriteOrder = null;
+    this.weightedSize -= entry.weight;
+  }
+
+  /**
+   * A range in the cache.
+   */
+  static final class CacheEntry<K, V> {
+
+    @SuppressWarnings("rawtypes")
+    static final AtomicIntegerFieldUpdater<CacheEntry> REFRESHING =
+        AtomicIntegerFieldUpdater.newUpdater(CacheEntry.class, "refreshing");
+
+    final K low;
+    final K high;
+    final V value;
+    final int weight;
+    final long writeTime;
+
+    // null if the range was not loaded
+    final Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction;
+
+    // 1 while a refresh is in progress
+    volatile int refreshing;
+
+    // written by readers without synchronization, a lost update only
+    // affects the eviction order
+    boolean accessed;
+
+    // only accessed under the write lock
+    int index;
+    CacheEntry<K, V> previousInWriteOrder;
+    CacheEntry<K, V> nextInWriteOrder;
+
+    CacheEntry(K low, K high, V value, int weight, long writeTime,
+        Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+      this.low = low;
+      this.high = high;
+      this.value = value;
+      this.weight = weight;
+      this.writeTime = writeTime;
+      this.mappingFunction = mappingFunction;
+    }
+
+    @Override
+    public String toString() {
+      return "[" + this.low + ".." + this.high + "]:" + this.value;
+    }
+
+  }
+
+  /**
+   * Builder for {@link RangeCache}. At least one of {@link #maximumSize(long)},
+   * {@link #maximumWeight(long, Weigher)} or {@link #expireAfterWrite(Duration)}
+   * has to be called.
+   *
+   * @param <K> the type of keys in the cache
+   * @param <V> the type of values in the cache
+   */
+  public static final class Builder<K extends Comparable<? super K>, V> {
+
+    private static final long UNSET = -1L;
+
+    long maximumWeight;
+
+    Weigher<? super K, ? super V> weigher;
+
+    long expireAfterWriteNanos;
+
+    long refreshAfterWriteNanos;
+
+    Executor executor;
+
+    LongSupplier ticker;
+
+    Builder() {
+      this.maximumWeight = UNSET;
+      this.expireAfterWriteNanos = NEVER;
+      this.refreshAfterWriteNanos = NEVER;
+      this.executor = ForkJoinPool.commonPool();
+      this.ticker = System::nanoTime;
+    }
+
+    /**
+     * Limits the number of ranges in the cache.
+     *
+     * @param maximumSize the maximum number of ranges, not negative
+     * @return this builder
+     * @throws IllegalArgumentException if {@code maximumSize} is negative
+     * @throws IllegalStateException if the maximum size or weight has
+     *                               already been set
+     */
+    public Builder<K, V> maximumSize(long maximumSize) {
+      this.setMaximumWeight(maximumSize);
+      return this;
+    }
+
+    /**
+     * Limits the total weight of the ranges in the cache.
+     *
+     * @param maximumWeight the maximum total weight, not negative
+     * @param weigher calculates the weight of a range, not {@code null}
+     * @return this builder
+     * @throws IllegalArgumentException if {@code maximumWeight} is negative
+     * @throws IllegalStateException if the maximum size or weight has
+     *                               already been set
+     * @throws NullPointerException if {@code weigher} is {@code null}
+     */
+    public Builder<K, V> maximumWeight(long maximumWeight, Weigher<? super K, ? super V> weigher) {
+      Objects.requireNonNull(weigher, "weigher");
+      this.setMaximumWeight(maximumWeight);
+      this.weigher = weigher;
+      return this;
+    }
+
+    private void setMaximumWeight(long maximumWeight) {
+      if (maximumWeight < 0L) {
+        throw new IllegalArgumentException("maximum: " + maximumWeight + " must not be negative");
+      }
+      if (this.maximumWeight != UNSET) {
+        throw new IllegalStateException("maximum size or weight already set");
+      }
+      this.maximumWeight = maximumWeight;
+    }
+
+    /**
+     * Expires ranges a fixed time after they have been inserted or reloaded.
+     *
+     * @param duration the time after which a range expires, positive
+     * @return this builder
+     * @throws IllegalArgumentException if {@code duration} is not positive
+     * @throws IllegalStateException if the expiry has already been set
+     * @throws NullPointerException if {@code duration} is {@code null}
+     */
+    public Builder<K, V> expireAfterWrite(Duration duration) {
+      if (this.expireAfterWriteNanos != NEVER) {
+        throw new IllegalStateException("expire after write already set");
+      }
+      this.expireAfterWriteNanos = toNanos(duration);
+      return this;
+    }
+
+    /**
+     * Reloads ranges on lookup a fixed time after they have been loaded or
+     * reloaded. Only ranges loaded with
+     * {@link RangeCache#computeIfAbsent(Comparable, Function)} are reloaded.
+     * Should be shorter than {@link #expireAfterWrite(Duration)} so that
+     * frequently accessed ranges are reloaded before they expire.
+     *
+     * <p>Reloads run on {@link ForkJoinPool#commonPool()} unless an
+     * executor is set, set one if the mapping function blocks.</p>
+     *
+     * @param duration the time after which a range is reloaded, positive
+     * @return this builder
+     * @throws IllegalArgumentException if {@code duration} is not positive
+     * @throws IllegalStateException if the refresh has already been set
+     * @throws NullPointerException if {@code duration} is {@code null}
+     * @see #executor(Executor)
+     */
+    public Builder<K, V> refreshAfterWrite(Duration duration) {
+      if (this.refreshAfterWriteNanos != NEVER) {
+        throw new IllegalStateException("refresh after write already set");
+      }
+      this.refreshAfterWriteNanos = toNanos(duration);
+      return this;
+    }
+
+    private static long toNanos(Duration duration) {
+      Objects.requireNonNull(duration, "duration");
+      if (duration.isNegative() || duration.isZero()) {
+        throw new IllegalArgumentException("duration: " + duration + " must be positive");
+      }
+      return duration.toNanos();
+    }
+
+    /**
+     * Sets the executor on which ranges are reloaded, the default is
+     * {@link ForkJoinPool#commonPool()}.
+     *
+     * <p>The common pool is shared by the whole JVM and has only about as
+     * many threads as there are cores. Mapping functions that block, for
+     * example on I/O, must not run on it and require a dedicated
+     * executor.</p>
+     *
+     * @param executor the executor for reloads, not {@code null}
+     * @return this builder
+     * @throws NullPointerException if {@code executor} is {@code null}
+     */
+    public Builder<K, V> executor(Executor executor) {
+      Objects.requireNonNull(executor, "executor");
+      this.executor = executor;
+      return this;
+    }
+
+    /**
+     * Sets the time source in nanoseconds, the default is
+     * {@link System#nanoTime()}. Mostly useful for testing.
+     *
+     * @param ticker the time source, not {@code null}
+     * @return this builder
+     * @throws NullPointerException if {@code ticker} is {@code null}
+     */
+    public Builder<K, V> ticker(LongSupplier ticker) {
+      Objects.requireNonNull(ticker, "ticker");
+      this.ticker = ticker;
+      return this;
+    }
+
+    /**
+     * Creates a new, empty {@link RangeCache}.
+     *
+     * @return the new cache
+     * @throws IllegalStateException if neither the maximum size, the
+     *                               maximum weight nor the expiry has been
+     *                               set
+     */
+    public RangeCache<K, V> build() {
+      if (this.maximumWeight == UNSET && this.expireAfterWriteNanos == NEVER) {
+        throw new IllegalStateException("maximum size, weight or expiry not set");
+      }
+      return new RangeCache<>(this);
+    }
+
+  }
+
+}
@@ -35,6 +35,26 @@ public interface RangeMap<K extends Comparable<? super K>, V> {
    */
   V get(K key);
 
+  /**
+   * Returns the range containing a key and the value associated with it.
+   *
+   * <p>The default implementation throws
+   * {@link UnsupportedOperationException}, the bounds of a range can not
+   * be derived from the other operations. All implementations in this
+   * library override it.</p>
+   *
+   * @param key the key for which to look up the range, not {@code null}
+   * @return the range containing {@code key} and the value associated with
+   *         it or {@code null} if not found
+   * @throws NullPointerException if {@code key} is {@code null}
+   * @throws UnsupportedOperationException if this map does not support
+   *         returning ranges
+   * @see LastHitRangeMap
+   */
+  default Entry<Range<K>, V> getEntry(K key) {
+    throw new UnsupportedOperationException(this.getClass().getName() + " does not support getEntry");
+  }
+
   /**
    * Looks up a value associated with a key. If none is found the
    * mapping function is applied. If the mapping produces a not
@@ -0,0 +1,31 @@
+package com.github.marschall.rangetree;
+
+/**
+ * Utility methods for {@link RangeMap} implementations.
+ */
+final class RangeMaps {
+
+  private RangeMaps() {
+    throw new AssertionError("not instantiable");
+  }
+
+  /**
+   * Checks whether a map overrides {@link RangeMap#getEntry(Comparable)}.
+   *
+   * <p>A wrapper that only forwards the method to a map that does not
+   * override it is not detected.</p>
+   *
+   * @param map the map to check, not {@code null}
+   * @return {@code false} if the map uses the default method that throws
+   *         {@link UnsupportedOperationException}
+   */
+  static boolean supportsGetEntry(RangeMap<?, ?> map) {
+    try {
+      // the erasure of K is Comparable
+      return !map.getClass().getMethod("getEntry", Comparable.class).isDefault();
+    } catch (NoSuchMethodException e) {
+      throw new AssertionError("RangeMap#getEntry not found", e);
+    }
+  }
+
+}
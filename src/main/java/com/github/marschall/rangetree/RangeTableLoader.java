@@ -0,0 +1,265 @@
+package com.github.marschall.rangetree;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Objects;
+
+/**
+ * Loads a table of ranges from a file into a {@link LLRBRangeTree}.
+ *
+ * <p>Every line of the file contains a range consisting of a lower bound,
+ * an upper bound and a value. The fields are either separated by a
+ * delimiter or have a fixed width. The ranges have to be sorted by the
+ * lower bound as they are passed to a {@link LLRBRangeTree.Builder}.</p>
+ *
+ * <p>The file is read through a {@link ReadableByteChannel} into a large
+ * buffer and the fields are parsed directly from the buffer with
+ * {@link FieldParser}s, no intermediate strings are created. Lines end
+ * with {@code \n} or {@code \r\n}, spaces around fields are ignored and
+ * empty lines are skipped. The encoding has to be ASCII compatible.</p>
+ *
+ * <p>This object is immutable and can be used to load several files
+ * concurrently.</p>
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @see com.github.marschall.rangetree.key.U96#parser()
+ * @see com.github.marschall.rangetree.key.U96#paddedParser(int, int)
+ */
+public final class RangeTableLoader<K extends Comparable<? super K>, V> {
+
+  static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+  private static final int DELIMITED = -1;
+
+  private final FieldParser<? extends K> keyParser;
+
+  private final FieldParser<? extends V> valueParser;
+
+  private final byte delimiter;
+
+  // DELIMITED if the fields are delimited
+  private final int keyWidth;
+
+  private final int bufferSize;
+
+  RangeTableLoader(FieldParser<? extends K> keyParser, FieldParser<? extends V> valueParser,
+      byte delimiter, int keyWidth, int bufferSize) {
+    this.keyParser = keyParser;
+    this.valueParser = valueParser;
+    this.delimiter = delimiter;
+    this.keyWidth = keyWidth;
+    this.bufferSize = bufferSize;
+  }
+
+  /**
+   * Creates a loader for lines with delimited fields, for example
+   * comma separated values.
+   *
+   * <p>The first field is the lower bound, the second field the upper
+   * bound and the third field the value. Further fields are ignored.</p>
+   *
+   * @param <K> the type of keys
+   * @param <V> the type of values
+   * @param delimiter the ASCII character separating the fields
+   * @param keyParser parses the bounds, not {@code null}
+   * @param valueParser parses the value, not {@code null}
+   * @return the new loader
+   * @throws IllegalArgumentException if {@code delimiter} is not ASCII,
+   *                                  a space or a line terminator
+   * @throws NullPointerException if {@code keyParser} or {@code valueParser}
+   *                              is {@code null}
+   */
+  public static <K extends Comparable<? super K>, V> RangeTableLoader<K, V> delimited(char delimiter,
+      FieldParser<? extends K> keyParser, FieldParser<? extends V> valueParser) {
+    Objects.requireNonNull(keyParser, "keyParser");
+    Objects.requireNonNull(valueParser, "valueParser");
+    if (delimiter > 127 || delimiter == ' ' || delimiter == '\r' || delimiter == '\n') {
+      throw new IllegalArgumentException("unsupported delimiter: " + delimiter);
+    }
+    return new RangeTableLoader<>(keyParser, valueParser, (byte) delimiter, DELIMITED, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Creates a loader for lines with fixed width fields.
+   *
+   * <p>The lower bound starts at the beginning of the line and the upper
+   * bound follows it. Both have the same width. The value is the rest of
+   * the line.</p>
+   *
+   * @param <K> the type of keys
+   * @param <V> the type of values
+   * @param keyWidth the number of bytes of each bound, positive
+   * @param keyParser parses the bounds, not {@code null}
+   * @param valueParser parses the value, not {@code null}
+   * @return the new loader
+   * @throws IllegalArgumentException if {@code keyWidth} is not positive
+   * @throws NullPointerException if {@code keyParser} or {@code valueParser}
+   *                              is {@code null}
+   */
+  public static <K extends Comparable<? super K>, V> RangeTableLoader<K, V> fixedWidth(int keyWidth,
+      FieldParser<? extends K> keyParser, FieldParser<? extends V> valueParser) {
+    Objects.requireNonNull(keyParser, "keyParser");
+    Objects.requireNonNull(valueParser, "valueParser");
+    if (keyWidth <= 0) {
+      throw new IllegalArgumentException("keyWidth: " + keyWidth + " must be positive");
+    }
+    return new RangeTableLoader<>(keyParser, valueParser, (byte) 0, keyWidth, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Loads all ranges from a channel into a new tree.
+   *
+   * <p>The channel is read until its end but not closed.</p>
+   *
+   * @param channel the channel to read from, not {@code null}
+   * @return the new tree
+   * @throws IOException if reading from {@code channel} fails
+   * @throws IllegalArgumentException if a line can not be parsed,
+   *                                  the ranges are not sorted or a line is
+   *                                  longer than the internal buffer
+   * @throws NullPointerException if {@code channel} is {@code null}
+   */
+  public LLRBRangeTree<K, V> load(ReadableByteChannel channel) throws IOException {
+    return this.load(channel, LLRBRangeTree.<K, V>builder()).build();
+  }
+
+  /**
+   * Loads all ranges from a channel into a builder.
+   *
+   * <p>The channel is read until its end but not closed.</p>
+   *
+   * @param channel the channel to read from, not {@code null}
+   * @param builder the builder to add the ranges to, not {@code null}
+   * @return {@code builder}
+   * @throws IOException if reading from {@code channel} fails
+   * @throws IllegalArgumentException if a line can not be parsed,
+   *                                  the ranges are not sorted or a line is
+   *                                  longer than the internal buffer
+   * @throws NullPointerException if {@code channel} or {@code builder}
+   *                              is {@code null}
+   */
+  public LLRBRangeTree.Builder<K, V> load(ReadableByteChannel channel, LLRBRangeTree.Builder<K, V> builder) throws IOException {
+    Objects.requireNonNull(channel, "channel");
+    Objects.requireNonNull(builder, "builder");
+    ByteBuffer buffer = ByteBuffer.allocate(this.bufferSize);
+    long lineNumber = 0L;
+    // the index up to which the buffer has been searched for line ends
+    int scanned = 0;
+    while (true) {
+      boolean end = channel.read(buffer) == -1;
+      ((Buffer) buffer).flip();
+      int limit = buffer.limit();
+      int lineStart = 0;
+      for (int i = scanned; i < limit; i++) {
+        if (buffer.get(i) == '\n') {
+          lineNumber += 1;
+          this.parseLine(buffer, lineStart, i, lineNumber, builder);
+          lineStart = i + 1;
+        }
+      }
+      if (end) {
+        if (lineStart < limit) {
+          // last line without a line end
+          this.parseLine(buffer, lineStart, limit, lineNumber + 1L, builder);
+        }
+        return builder;
+      }
+      if (lineStart == 0 && limit == buffer.capacity()) {
+        throw new IllegalArgumentException("line: " + (lineNumber + 1L)
+            + " is longer than the buffer size: " + this.bufferSize);
+      }
+      // move the incomplete line to the start of the buffer
+      ((Buffer) buffer).position(lineStart);
+      buffer.compact();
+      scanned = limit - lineStart;
+    }
+  }
+
+  private void parseLine(ByteBuffer buffer, int start, int end, long lineNumber, LLRBRangeTree.Builder<K, V> builder) {
+    int lineEnd = end;
+    if (lineEnd > start && buffer.get(lineEnd - 1) == '\r') {
+      lineEnd -= 1;
+    }
+    if (trimStart(buffer, start, lineEnd) == lineEnd) {
+      // empty line
+      return;
+    }
+    try {
+      if (this.keyWidth == DELIMITED) {
+        this.parseDelimited(buffer, start, lineEnd, builder);
+      } else {
+        this.parseFixedWidth(buffer, start, lineEnd, builder);
+      }
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("invalid line: " + lineNumber, e);
+    }
+  }
+
+  private void parseDelimited(ByteBuffer buffer, int start, int end, LLRBRangeTree.Builder<K, V> builder) {
+    int lowEnd = this.indexOfDelimiter(buffer, start, end);
+    int highEnd = this.indexOfDelimiter(buffer, lowEnd + 1, end);
+    int valueEnd = this.indexOfDelimiter(buffer, highEnd + 1, end);
+    if (highEnd == end) {
+      throw new IllegalArgumentException("expected three fields");
+    }
+    K low = parse(this.keyParser, buffer, start, lowEnd);
+    K high = parse(this.keyParser, buffer, lowEnd + 1, highEnd);
+    V value = parse(this.valueParser, buffer, highEnd + 1, valueEnd);
+    builder.add(low, high, value);
+  }
+
+  private int indexOfDelimiter(ByteBuffer buffer, int start, int end) {
+    for (int i = start; i < end; i++) {
+      if (buffer.get(i) == this.delimiter) {
+        return i;
+      }
+    }
+    return end;
+  }
+
+  private void parseFixedWidth(ByteBuffer buffer, int start, int end, LLRBRangeTree.Builder<K, V> builder) {
+    int lowEnd = start + this.keyWidth;
+    int highEnd = lowEnd + this.keyWidth;
+    if (highEnd > end) {
+      throw new IllegalArgumentException("line shorter than two keys");
+    }
+    K low = parse(this.keyParser, buffer, start, lowEnd);
+    K high = parse(this.keyParser, buffer, lowEnd, highEnd);
+    V value = parse(this.valueParser, buffer, highEnd, end);
+    builder.add(low, high, value);
+  }
+
+  private static <T> T parse(FieldParser<? extends T> parser, ByteBuffer buffer, int start, int end) {
+    int fieldStart = trimStart(buffer, start, end);
+    int fieldEnd = trimEnd(buffer, fieldStart, end);
+    return parser.parse(buffer, fieldStart, fieldEnd - fieldStart);
+  }
+
+  private static int trimStart(ByteBuffer buffer, int start, int end) {
+    int i = start;
+    while (i < end && buffer.get(i) == ' ') {
+      i += 1;
+    }
+    return i;
+  }
+
+  private static int trimEnd(ByteBuffer buffer, int start, int end) {
+    int i = end;
+    while (i > start && buffer.get(i - 1) == ' ') {
+      i -= 1;
+    }
+    return i;
+  }
+
+  /**
+   * Returns a copy of this loader that uses a different buffer size,
+   * for testing.
+   */
+  RangeTableLoader<K, V> withBufferSize(int newBufferSize) {
+    return new RangeTableLoader<>(this.keyParser, this.valueParser, this.delimiter, this.keyWidth, newBufferSize);
+  }
+
+}
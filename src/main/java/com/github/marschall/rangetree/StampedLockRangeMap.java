@@ -0,0 +1,152 @@
+package com.github.marschall.rangetree;
+
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Adds concurrency control around a {@link RangeMap} using a {@link StampedLock}.
+ *
+ * <p>Lookups first try an optimistic read that does not write to shared
+ * memory and only acquire the read lock if a write happened concurrently.
+ * This allows reader throughput to scale with the number of cores.
+ * Writes are done under the write lock.</p>
+ *
+ * <p>An optimistic read may observe the delegate in an inconsistent state,
+ * the result or exception is discarded in this case and the read is
+ * repeated under the read lock. Optimistic reads are therefore only safe
+ * if the read operations of the delegate terminate without blocking when
+ * they race with a write, even if they follow links that are being
+ * rotated. Delegates with immutable or {@code volatile} links and
+ * {@link LLRBRangeTree}, whose lookups give up after visiting more nodes
+ * than the height of the tree can be, qualify. Other delegates should be
+ * wrapped in a {@link SynchronizedRangeMap} instead.</p>
+ *
+ * <p>{@link #putIfAbsent(Comparable, Comparable, Object)} first checks
+ * with an optimistic read whether exactly the same range is already
+ * mapped and only takes the write lock if not. This requires
+ * {@link RangeMap#getEntry(Comparable)} support from the delegate.</p>
+ *
+ * @param <K> the type of keys in this tree
+ * @param <V> the type of values in this tree
+ * @see SynchronizedRangeMap
+ */
+public final class StampedLockRangeMap<K extends Comparable<? super K>, V> implements RangeMap<K, V> {
+
+  private final RangeMap<K, V> delegate;
+
+  private final StampedLock lock;
+
+  // false if the delegate does not override RangeMap#getEntry
+  private final boolean readsEntries;
+
+  /**
+   * Constructs a new {@link StampedLockRangeMap}.
+   *
+   * @param delegate the delegate to wrap, not {@code null}
+   * @throws NullPointerException if {@code delegate} is {@code null}
+   */
+  public StampedLockRangeMap(RangeMap<K, V> delegate) {
+    Objects.requireNonNull(delegate, "delegate");
+    this.delegate = delegate;
+    this.lock = new StampedLock();
+    this.readsEntries = RangeMaps.supportsGetEntry(delegate);
+  }
+
+  @Override
+  public void clear() {
+    long stamp = this.lock.writeLock();
+    try {
+      this.delegate.clear();
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public V get(K key) {
+    return this.read(key, RangeMap::get);
+  }
+
+  @Override
+  public Entry<Range<K>, V> getEntry(K key) {
+    return this.read(key, RangeMap::getEntry);
+  }
+
+  private <R> R read(K key, BiFunction<RangeMap<K, V>, K, R> reader) {
+    long stamp = this.lock.tryOptimisticRead();
+    if (stamp != 0L) {
+      try {
+        R result = reader.apply(this.delegate, key);
+        if (this.lock.validate(stamp)) {
+          return result;
+        }
+      } catch (RuntimeException | Error e) {
+        // the exception may have been caused by reading inconsistent state,
+        // for example a StackOverflowError from following a cycle
+        if (this.lock.validate(stamp)) {
+          throw e;
+        }
+      }
+    }
+    stamp = this.lock.readLock();
+    try {
+      return reader.apply(this.delegate, key);
+    } finally {
+      this.lock.unlockRead(stamp);
+    }
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+    Objects.requireNonNull(mappingFunction, "mappingFunction");
+    V value = this.get(key);
+    if (value != null) {
+      return value;
+    }
+    // another thread may have added the mapping in the meantime,
+    // the delegate checks again under the write lock
+    long stamp = this.lock.writeLock();
+    try {
+      return this.delegate.computeIfAbsent(key, mappingFunction);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public void put(K low, K high, V value) {
+    long stamp = this.lock.writeLock();
+    try {
+      this.delegate.put(low, high, value);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+  }
+
+  @Override
+  public V putIfAbsent(K low, K high, V value) {
+    Objects.requireNonNull(low, "low");
+    Objects.requireNonNull(high, "high");
+    if (this.readsEntries) {
+      // if exactly this range is already mapped every delegate returns its value,
+      // anything else needs the write lock to insert or to detect an overlap
+      Entry<Range<K>, V> entry = this.read(low, RangeMap::getEntry);
+      if (entry != null) {
+        Range<K> range = entry.getKey();
+        if (range.getLow().compareTo(low) == 0 && range.getHigh().compareTo(high) == 0) {
+          return entry.getValue();
+        }
+      }
+    }
+    long stamp = this.lock.writeLock();
+    try {
+      return this.delegate.putIfAbsent(low, high, value);
+    } finally {
+      this.lock.unlockWrite(stamp);
+    }
+  }
+
+}
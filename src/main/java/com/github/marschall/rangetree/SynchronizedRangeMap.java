@@ -42,6 +42,13 @@ public final class SynchronizedRangeMap<K extends Comparable<? super K>, V> impl
     }
   }
 
+  @Override
+  public Entry<Range<K>, V> getEntry(K key) {
+    synchronized (this.lock) {
+      return this.delegate.getEntry(key);
+    }
+  }
+
   @Override
   public V computeIfAbsent(K key, Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
     synchronized (this.lock) {
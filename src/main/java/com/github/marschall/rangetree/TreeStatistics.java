@@ -0,0 +1,122 @@
+package com.github.marschall.rangetree;
+
+/**
+ * Shape and estimated memory footprint of a {@link LLRBRangeTree}.
+ *
+ * <p>Memory estimates assume a 64-bit HotSpot JVM with compressed oops,
+ * 8 byte object alignment and compact strings. They include the tree, its
+ * nodes and their keys but not the values. Keys shared between nodes are
+ * counted for every node referencing them.</p>
+ *
+ * @see LLRBRangeTree#statistics()
+ */
+public final class TreeStatistics {
+
+  private final int nodeCount;
+  private final int height;
+  private final int blackHeight;
+  private final long totalDepth;
+  private final long nodeBytes;
+  private final long keyBytes;
+
+  TreeStatistics(int nodeCount, int height, int blackHeight, long totalDepth, long nodeBytes, long keyBytes) {
+    this.nodeCount = nodeCount;
+    this.height = height;
+    this.blackHeight = blackHeight;
+    this.totalDepth = totalDepth;
+    this.nodeBytes = nodeBytes;
+    this.keyBytes = keyBytes;
+  }
+
+  /**
+   * Returns the number of nodes, which is the number of ranges.
+   *
+   * @return the number of nodes
+   */
+  public int getNodeCount() {
+    return this.nodeCount;
+  }
+
+  /**
+   * Returns the number of nodes on the longest path from the root to a leaf.
+   * This is the maximum number of nodes a lookup visits.
+   *
+   * @return the height of the tree, 0 for an empty tree
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Returns the number of black nodes on every path from the root to a leaf.
+   *
+   * @return the black height of the tree, 0 for an empty tree
+   */
+  public int getBlackHeight() {
+    return this.blackHeight;
+  }
+
+  /**
+   * Returns the average number of nodes visited by a lookup that finds
+   * a range, assuming every range is looked up equally often.
+   *
+   * @return the average lookup depth, 0 for an empty tree
+   */
+  public double getAverageDepth() {
+    if (this.nodeCount == 0) {
+      return 0.0d;
+    }
+    return (double) this.totalDepth / (double) this.nodeCount;
+  }
+
+  /**
+   * Returns the estimated size of the tree and its nodes excluding keys
+   * and values.
+   *
+   * @return the estimated size of the tree and its nodes in bytes
+   */
+  public long getEstimatedNodeBytes() {
+    return this.nodeBytes;
+  }
+
+  /**
+   * Returns the estimated size of all keys.
+   *
+   * @return the estimated size of all keys in bytes
+   */
+  public long getEstimatedKeyBytes() {
+    return this.keyBytes;
+  }
+
+  /**
+   * Returns the estimated size of the tree, its nodes and keys excluding
+   * the values.
+   *
+   * @return the estimated size in bytes
+   */
+  public long getEstimatedBytes() {
+    return this.nodeBytes + this.keyBytes;
+  }
+
+  /**
+   * Returns the estimated size per range of a node and its keys.
+   *
+   * @return the estimated size per range in bytes, 0 for an empty tree
+   */
+  public double getEstimatedBytesPerNode() {
+    if (this.nodeCount == 0) {
+      return 0.0d;
+    }
+    return (double) this.getEstimatedBytes() / (double) this.nodeCount;
+  }
+
+  @Override
+  public String toString() {
+    return "nodes: " + this.nodeCount
+        + ", height: " + this.height
+        + ", black height: " + this.blackHeight
+        + ", average depth: " + this.getAverageDepth()
+        + ", estimated bytes: " + this.getEstimatedBytes();
+  }
+
+}
@@ -0,0 +1,26 @@
+package com.github.marschall.rangetree;
+
+/**
+ * Calculates the weight of a range in a {@link RangeCache}.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @see RangeCache.Builder#maximumWeight(long, Weigher)
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+  /**
+   * Calculates the weight of a range.
+   *
+   * <p>The weight of a range is calculated once when the range is
+   * inserted and is not recalculated afterwards.</p>
+   *
+   * @param low the lower end of the range, inclusive
+   * @param high the upper end of the range, inclusive
+   * @param value the value associated with the range, possibly {@code null}
+   * @return the weight, not negative
+   */
+  int weigh(K low, K high, V value);
+
+}
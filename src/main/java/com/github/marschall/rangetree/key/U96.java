@@ -4,9 +4,14 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodHandles.Lookup;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.util.Objects;
+import java.util.function.ToIntFunction;
 
 import com.github.marschall.rangetree.AdjacencyTester;
+import com.github.marschall.rangetree.DiscreteDomain;
+import com.github.marschall.rangetree.FieldParser;
+import com.github.marschall.rangetree.KeyCodec;
 import com.github.marschall.rangetree.RangeMap;
 
 /**
@@ -65,6 +70,16 @@ public final class U96 implements Comparable<U96> {
    */
   public static final int MAX_LENGTH = 9 + 18;
 
+  /**
+   * The number of bytes of a key encoded by {@link #keyCodec()}.
+   */
+  private static final int ENCODED_LENGTH = Integer.BYTES + Long.BYTES;
+
+  /**
+   * The number of decimal digits stored in {@link #low}.
+   */
+  private static final int LOW_DIGITS = 18;
+
   private final int high;
   private final long low;
 
@@ -73,6 +88,17 @@ public final class U96 implements Comparable<U96> {
     this.low = low;
   }
 
+  /**
+   * Creates an {@link U96} from its internal representation.
+   *
+   * @param high the upper digits, see {@link #getHigh()}
+   * @param low the lower {@value #LOW_DIGITS} digits, see {@link #getLow()}
+   * @return the instance
+   */
+  static U96 fromParts(int high, long low) {
+    return new U96(high, low);
+  }
+
   /**
    * Returns an adjacency tester for {@link U96}.
    * 
@@ -90,8 +116,123 @@ public final class U96 implements Comparable<U96> {
     };
   }
 
+  /**
+   * Returns the estimated size of a {@link U96} instance for
+   * {@link com.github.marschall.rangetree.LLRBRangeTree#statistics(java.util.function.ToLongFunction)}.
+   *
+   * <p>Assumes a 64-bit HotSpot JVM with compressed oops.</p>
+   *
+   * @param key the key, ignored
+   * @return the estimated size in bytes
+   */
+  public static long estimatedSize(U96 key) {
+    // 12 byte header, 1 int, 1 long
+    return 24L;
+  }
+
+  /**
+   * Returns a prefix function for
+   * {@link com.github.marschall.rangetree.PrefixIndexedRangeMap}.
+   *
+   * <p>The prefix are the {@code prefixDigits} leading digits of a key
+   * padded with leading zeros to {@code totalDigits} digits, the number of
+   * slots is 10<sup>{@code prefixDigits}</sup>. Keys with more than
+   * {@code totalDigits} digits are beyond all slots. For example with
+   * 19 total and 6 prefix digits the prefix of the 19 digit card number
+   * {@code 4000001234567890123} is {@code 400000}.</p>
+   *
+   * @param totalDigits the number of digits of the keys, [1..{@value #MAX_LENGTH}]
+   * @param prefixDigits the number of leading digits to use, [1..9] and
+   *                     not greater than {@code totalDigits}
+   * @return the prefix function
+   * @throws IllegalArgumentException if {@code totalDigits} or
+   *                                  {@code prefixDigits} is out of range
+   */
+  public static ToIntFunction<U96> prefix(int totalDigits, int prefixDigits) {
+    if (totalDigits < 1 || totalDigits > MAX_LENGTH) {
+      throw new IllegalArgumentException("totalDigits: " + totalDigits + " must be [1.." + MAX_LENGTH + "]");
+    }
+    if (prefixDigits < 1 || prefixDigits > 9 || prefixDigits > totalDigits) {
+      throw new IllegalArgumentException("prefixDigits: " + prefixDigits
+          + " must be [1..9] and not greater than totalDigits: " + totalDigits);
+    }
+    int droppedDigits = totalDigits - prefixDigits;
+    if (totalDigits > LOW_DIGITS) {
+      int highLimit = (int) powerOfTen(totalDigits - LOW_DIGITS);
+      if (droppedDigits >= LOW_DIGITS) {
+        // the prefix is contained in high
+        int divisor = (int) powerOfTen(droppedDigits - LOW_DIGITS);
+        return key -> key.high >= highLimit ? Integer.MAX_VALUE : key.high / divisor;
+      }
+      long highFactor = powerOfTen(LOW_DIGITS - droppedDigits);
+      long divisor = powerOfTen(droppedDigits);
+      // the result is less than 10^prefixDigits so it fits in an int
+      return key -> key.high >= highLimit ? Integer.MAX_VALUE : (int) (key.high * highFactor + key.low / divisor);
+    }
+    long lowLimit = powerOfTen(totalDigits);
+    long divisor = powerOfTen(droppedDigits);
+    return key -> key.high != 0 || key.low >= lowLimit ? Integer.MAX_VALUE : (int) (key.low / divisor);
+  }
+
+  private static long powerOfTen(int exponent) {
+    long power = 1L;
+    for (int i = 0; i < exponent; i++) {
+      power *= 10L;
+    }
+    return power;
+  }
+
+  /**
+   * Returns a discrete domain for {@link U96}.
+   *
+   * @return a discrete domain for {@link U96}
+   */
+  public static DiscreteDomain<U96> discreteDomain() {
+    return U96DiscreteDomain.INSTANCE;
+  }
+
+  /**
+   * Returns a key codec for {@link U96}.
+   *
+   * <p>Encoded keys are 12 bytes long.</p>
+   *
+   * @return a key codec for {@link U96}
+   */
+  public static KeyCodec<U96> keyCodec() {
+    return U96KeyCodec.INSTANCE;
+  }
+
+  /**
+   * Returns a parser for fields of ASCII digits.
+   *
+   * @return a parser for fields of ASCII digits
+   * @see #valueOf(ByteBuffer, int, int)
+   * @see com.github.marschall.rangetree.RangeTableLoader
+   */
+  public static FieldParser<U96> parser() {
+    return U96::valueOf;
+  }
+
+  /**
+   * Returns a parser for fields of ASCII digits that pads them to a fixed length.
+   *
+   * @param paddedLength the length to with to pad
+   * @param pad the number to pad with
+   * @return a parser for fields of ASCII digits
+   * @throws IllegalArgumentException if {@code paddedLength} is not [1..{@value #MAX_LENGTH}]
+   * @throws IllegalArgumentException if {@code pad} is not [0..9]
+   * @see #valueOfPadded(ByteBuffer, int, int, int, int)
+   * @see com.github.marschall.rangetree.RangeTableLoader
+   */
+  public static FieldParser<U96> paddedParser(int paddedLength, int pad) {
+    checkPadding(1, paddedLength, pad);
+    return (buffer, index, length) -> valueOfPadded(buffer, index, length, paddedLength, pad);
+  }
+
   /**
    * Creates an {@link U96} from a string with padding.
+   *
+   * <p>A leading plus sign is accepted and counts towards the length.</p>
    * 
    * @param s a numeric string
    * @param length the length to with to pad
@@ -107,6 +248,197 @@ public final class U96 implements Comparable<U96> {
    * @throws IllegalArgumentException if {@code pad} is not [0..9]
    */
   public static U96 valueOfPadded(String s, int length, int pad) {
+    Objects.requireNonNull(s, "s");
+    if (!s.isEmpty() && s.charAt(0) == '+') {
+      // a leading plus sign was accepted by Long#parseLong, as before it
+      // counts towards the length
+      if (length > MAX_LENGTH) {
+        throw new IllegalArgumentException("length must not exceed " + MAX_LENGTH);
+      }
+      return valueOfPadded(s, 1, s.length(), length - 1, pad);
+    }
+    return valueOfPadded(s, 0, s.length(), length, pad);
+  }
+
+  /**
+   * Creates an {@link U96} from a range of a character sequence with padding.
+   *
+   * <p>The digits are parsed and padded in a single pass without
+   * creating any intermediate objects.</p>
+   *
+   * @param s the character sequence containing the decimal digits
+   * @param beginIndex the index of the first digit, inclusive
+   * @param endIndex the index of the last digit, exclusive
+   * @param length the length to with to pad
+   * @param pad the number to pad with
+   * @return the parsed instance
+   * @throws NullPointerException if {@code s} is {@code null}
+   * @throws IndexOutOfBoundsException if {@code beginIndex} or
+   *                                   {@code endIndex} are not within {@code s}
+   * @throws IllegalArgumentException if the digits are empty or contain a non-digit
+   * @throws IllegalArgumentException if {@code length} is not [1..{@value #MAX_LENGTH}]
+   * @throws IllegalArgumentException if {@code length} is less than the number of digits
+   * @throws IllegalArgumentException if {@code pad} is not [0..9]
+   */
+  public static U96 valueOfPadded(CharSequence s, int beginIndex, int endIndex, int length, int pad) {
+    checkRange(s, beginIndex, endIndex);
+    int digits = endIndex - beginIndex;
+    checkPadding(digits, length, pad);
+    int highDigits = length - LOW_DIGITS;
+    int high = 0;
+    long low = 0L;
+    for (int i = 0; i < length; i++) {
+      int digit = i < digits ? digit(s.charAt(beginIndex + i)) : pad;
+      if (i < highDigits) {
+        high = high * 10 + digit;
+      } else {
+        low = low * 10L + digit;
+      }
+    }
+    return new U96(high, low);
+  }
+
+  /**
+   * Creates an {@link U96} from a range of a character sequence.
+   *
+   * <p>The digits are parsed without creating any intermediate objects.</p>
+   *
+   * @param s the character sequence containing the decimal digits
+   * @param beginIndex the index of the first digit, inclusive
+   * @param endIndex the index of the last digit, exclusive
+   * @return the parsed instance
+   * @throws NullPointerException if {@code s} is {@code null}
+   * @throws IndexOutOfBoundsException if {@code beginIndex} or
+   *                                   {@code endIndex} are not within {@code s}
+   * @throws IllegalArgumentException if the digits are empty or contain a non-digit
+   * @throws IllegalArgumentException if there are more than {@value #MAX_LENGTH} digits
+   */
+  public static U96 valueOf(CharSequence s, int beginIndex, int endIndex) {
+    return new U96(parseHigh(s, beginIndex, endIndex), parseLow(s, beginIndex, endIndex));
+  }
+
+  /**
+   * Creates an {@link U96} from ASCII digits in a byte array with padding.
+   *
+   * <p>The digits are parsed and padded in a single pass without
+   * creating any intermediate objects.</p>
+   *
+   * @param b the byte array containing the ASCII digits
+   * @param offset the index of the first digit
+   * @param length the number of digits
+   * @param paddedLength the length to with to pad
+   * @param pad the number to pad with
+   * @return the parsed instance
+   * @throws NullPointerException if {@code b} is {@code null}
+   * @throws IndexOutOfBoundsException if {@code offset} or
+   *                                   {@code length} are not within {@code b}
+   * @throws IllegalArgumentException if the digits are empty or contain a non-digit
+   * @throws IllegalArgumentException if {@code paddedLength} is not [1..{@value #MAX_LENGTH}]
+   * @throws IllegalArgumentException if {@code paddedLength} is less than {@code length}
+   * @throws IllegalArgumentException if {@code pad} is not [0..9]
+   */
+  public static U96 valueOfPadded(byte[] b, int offset, int length, int paddedLength, int pad) {
+    Objects.requireNonNull(b, "b");
+    checkFromIndexSize(offset, length, b.length);
+    checkPadding(length, paddedLength, pad);
+    int highDigits = paddedLength - LOW_DIGITS;
+    int high = 0;
+    long low = 0L;
+    for (int i = 0; i < paddedLength; i++) {
+      int digit = i < length ? digit(b[offset + i]) : pad;
+      if (i < highDigits) {
+        high = high * 10 + digit;
+      } else {
+        low = low * 10L + digit;
+      }
+    }
+    return new U96(high, low);
+  }
+
+  /**
+   * Creates an {@link U96} from ASCII digits in a byte array.
+   *
+   * <p>The digits are parsed without creating any intermediate objects.</p>
+   *
+   * @param b the byte array containing the ASCII digits
+   * @param offset the index of the first digit
+   * @param length the number of digits
+   * @return the parsed instance
+   * @throws NullPointerException if {@code b} is {@code null}
+   * @throws IndexOutOfBoundsException if {@code offset} or
+   *                                   {@code length} are not within {@code b}
+   * @throws IllegalArgumentException if the digits are empty or contain a non-digit
+   * @throws IllegalArgumentException if there are more than {@value #MAX_LENGTH} digits
+   */
+  public static U96 valueOf(byte[] b, int offset, int length) {
+    checkLength(length);
+    return valueOfPadded(b, offset, length, length, 0);
+  }
+
+  /**
+   * Creates an {@link U96} from ASCII digits in a byte buffer with padding.
+   *
+   * <p>The digits are read using absolute get operations, the position
+   * of the buffer is not changed. The digits are parsed and padded in a
+   * single pass without creating any intermediate objects.</p>
+   *
+   * @param buffer the byte buffer containing the ASCII digits
+   * @param index the index of the first digit
+   * @param length the number of digits
+   * @param paddedLength the length to with to pad
+   * @param pad the number to pad with
+   * @return the parsed instance
+   * @throws NullPointerException if {@code buffer} is {@code null}
+   * @throws IndexOutOfBoundsException if {@code index} or
+   *                                   {@code length} are not within the
+   *                                   limit of {@code buffer}
+   * @throws IllegalArgumentException if the digits are empty or contain a non-digit
+   * @throws IllegalArgumentException if {@code paddedLength} is not [1..{@value #MAX_LENGTH}]
+   * @throws IllegalArgumentException if {@code paddedLength} is less than {@code length}
+   * @throws IllegalArgumentException if {@code pad} is not [0..9]
+   */
+  public static U96 valueOfPadded(ByteBuffer buffer, int index, int length, int paddedLength, int pad) {
+    Objects.requireNonNull(buffer, "buffer");
+    checkFromIndexSize(index, length, buffer.limit());
+    checkPadding(length, paddedLength, pad);
+    int highDigits = paddedLength - LOW_DIGITS;
+    int high = 0;
+    long low = 0L;
+    for (int i = 0; i < paddedLength; i++) {
+      int digit = i < length ? digit(buffer.get(index + i)) : pad;
+      if (i < highDigits) {
+        high = high * 10 + digit;
+      } else {
+        low = low * 10L + digit;
+      }
+    }
+    return new U96(high, low);
+  }
+
+  /**
+   * Creates an {@link U96} from ASCII digits in a byte buffer.
+   *
+   * <p>The digits are read using absolute get operations, the position
+   * of the buffer is not changed. The digits are parsed without
+   * creating any intermediate objects.</p>
+   *
+   * @param buffer the byte buffer containing the ASCII digits
+   * @param index the index of the first digit
+   * @param length the number of digits
+   * @return the parsed instance
+   * @throws NullPointerException if {@code buffer} is {@code null}
+   * @throws IndexOutOfBoundsException if {@code index} or
+   *                                   {@code length} are not within the
+   *                                   limit of {@code buffer}
+   * @throws IllegalArgumentException if the digits are empty or contain a non-digit
+   * @throws IllegalArgumentException if there are more than {@value #MAX_LENGTH} digits
+   */
+  public static U96 valueOf(ByteBuffer buffer, int index, int length) {
+    checkLength(length);
+    return valueOfPadded(buffer, index, length, length, 0);
+  }
+
+  private static void checkPadding(int digits, int length, int pad) {
     if (length <= 0) {
       throw new IllegalArgumentException("length must be greater than 0");
     }
@@ -116,20 +448,27 @@ public final class U96 implements Comparable<U96> {
     if (pad < 0 || pad > 9) {
       throw new IllegalArgumentException("pad must be [0..9]");
     }
-    if (length < s.length()) {
+    if (length < digits) {
       throw new IllegalArgumentException("value exceeds padding");
     }
-    U96 unscaled = valueOf(s);
-    int high = unscaled.high;
-    long low = unscaled.low;
-    int iterations = length - s.length();
-    for (int i = 0; i < iterations; i++) {
-      long carry = low / 100_000_000_000_000_000L;
-      // prevent an overflow by subtracting first
-      low = (low - carry * 100_000_000_000_000_000L) * 10 + pad;
-      high = high * 10 + (int) carry;
+    if (digits == 0) {
+      throw new IllegalArgumentException("input string empty");
+    }
+  }
+
+  private static void checkLength(int length) {
+    if (length > MAX_LENGTH) {
+      throw new IllegalArgumentException("input string too long");
+    }
+    if (length == 0) {
+      throw new IllegalArgumentException("input string empty");
+    }
+  }
+
+  private static void checkFromIndexSize(int fromIndex, int size, int length) {
+    if ((fromIndex | size) < 0 || size > length - fromIndex) {
+      throw new IndexOutOfBoundsException("index " + fromIndex + ", size " + size + ", length " + length);
     }
-    return new U96(high, low);
   }
 
   /**
@@ -196,6 +535,61 @@ public final class U96 implements Comparable<U96> {
     }
   }
 
+  /**
+   * Parses the digits that make up the high part of a {@link U96}
+   * without allocating.
+   *
+   * @param s the digits to parse
+   * @param beginIndex the index of the first digit, inclusive
+   * @param endIndex the index of the last digit, exclusive
+   * @return the high part
+   * @throws IllegalArgumentException if the range is empty, too long or contains a non-digit
+   * @throws IndexOutOfBoundsException if the range is not within {@code s}
+   */
+  static int parseHigh(CharSequence s, int beginIndex, int endIndex) {
+    checkRange(s, beginIndex, endIndex);
+    int high = 0;
+    for (int i = beginIndex; i < endIndex - LOW_DIGITS; i++) {
+      high = high * 10 + digit(s.charAt(i));
+    }
+    return high;
+  }
+
+  /**
+   * Parses the digits that make up the low part of a {@link U96}
+   * without allocating.
+   *
+   * @param s the digits to parse
+   * @param beginIndex the index of the first digit, inclusive
+   * @param endIndex the index of the last digit, exclusive
+   * @return the low part
+   * @throws IllegalArgumentException if the range is empty, too long or contains a non-digit
+   * @throws IndexOutOfBoundsException if the range is not within {@code s}
+   */
+  static long parseLow(CharSequence s, int beginIndex, int endIndex) {
+    checkRange(s, beginIndex, endIndex);
+    long low = 0L;
+    for (int i = Math.max(beginIndex, endIndex - LOW_DIGITS); i < endIndex; i++) {
+      low = low * 10L + digit(s.charAt(i));
+    }
+    return low;
+  }
+
+  private static void checkRange(CharSequence s, int beginIndex, int endIndex) {
+    Objects.requireNonNull(s, "s");
+    if (beginIndex < 0 || beginIndex > endIndex || endIndex > s.length()) {
+      throw new IndexOutOfBoundsException("begin " + beginIndex + ", end " + endIndex + ", length " + s.length());
+    }
+    checkLength(endIndex - beginIndex);
+  }
+
+  private static int digit(int c) {
+    if (c < '0' || c > '9') {
+      throw new NumberFormatException("not a digit: " + (char) c);
+    }
+    return c - '0';
+  }
+
   private static int parseIntFallback(CharSequence s, int beginIndex, int endIndex) {
     return Integer.parseInt(s.toString().substring(beginIndex, endIndex));
   }
@@ -204,6 +598,14 @@ public final class U96 implements Comparable<U96> {
     return Long.parseLong(s.toString().substring(beginIndex, endIndex));
   }
 
+  int getHigh() {
+    return this.high;
+  }
+
+  long getLow() {
+    return this.low;
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (obj == this) {
@@ -230,20 +632,143 @@ public final class U96 implements Comparable<U96> {
     return Long.compare(this.low, o.low);
   }
 
-  @Override
-  public String toString() {
+  /**
+   * Appends the decimal digits of this object to a string builder.
+   *
+   * <p>Unlike {@link #toString()} this method does not create any
+   * intermediate objects.</p>
+   *
+   * @param builder the builder to append to, not {@code null}
+   * @return {@code builder}
+   * @throws NullPointerException if {@code builder} is {@code null}
+   */
+  public StringBuilder appendTo(StringBuilder builder) {
+    Objects.requireNonNull(builder, "builder");
     if (this.high == 0) {
-      return Long.toString(this.low);
+      return builder.append(this.low);
     } else {
-      StringBuilder buffer = new StringBuilder(18 + 9);
-      buffer.append(this.high);
-      String lowString = Long.toString(this.low);
-      for (int i = 0; i < (18 - lowString.length()); i++) {
-        buffer.append('0');
+      builder.append(this.high);
+      for (int i = digitCount(this.low); i < LOW_DIGITS; i++) {
+        builder.append('0');
       }
-      buffer.append(lowString);
-      return buffer.toString();
+      return builder.append(this.low);
+    }
+  }
+
+  /**
+   * Writes the decimal digits of this object as ASCII to a byte array.
+   *
+   * <p>At most {@value #MAX_LENGTH} bytes are written.</p>
+   *
+   * @param b the byte array to write to, not {@code null}
+   * @param offset the index at which to write the first digit
+   * @return the number of bytes written
+   * @throws NullPointerException if {@code b} is {@code null}
+   * @throws IndexOutOfBoundsException if the digits do not fit into
+   *                                   {@code b} starting at {@code offset}
+   */
+  public int appendTo(byte[] b, int offset) {
+    Objects.requireNonNull(b, "b");
+    int length;
+    if (this.high == 0) {
+      length = digitCount(this.low);
+    } else {
+      length = digitCount(this.high) + LOW_DIGITS;
     }
+    checkFromIndexSize(offset, length, b.length);
+    // write from right to left
+    int index = offset + length - 1;
+    long remaining = this.low;
+    int lowEnd = this.high == 0 ? offset : index - LOW_DIGITS + 1;
+    while (index >= lowEnd) {
+      b[index--] = (byte) ('0' + (remaining % 10L));
+      remaining /= 10L;
+    }
+    int remainingHigh = this.high;
+    while (index >= offset) {
+      b[index--] = (byte) ('0' + (remainingHigh % 10));
+      remainingHigh /= 10;
+    }
+    return length;
+  }
+
+  private static int digitCount(long value) {
+    int count = 1;
+    long limit = 10L;
+    // 10^18 still fits into a long
+    while (count < 19 && value >= limit) {
+      count += 1;
+      limit *= 10L;
+    }
+    return count;
+  }
+
+  @Override
+  public String toString() {
+    return this.appendTo(new StringBuilder(MAX_LENGTH)).toString();
+  }
+
+  static final class U96DiscreteDomain implements DiscreteDomain<U96> {
+
+    static final DiscreteDomain<U96> INSTANCE = new U96DiscreteDomain();
+
+    private static final long MAX_LOW = 999_999_999_999_999_999L;
+
+    private static final int MAX_HIGH = 999_999_999;
+
+    @Override
+    public U96 next(U96 value) {
+      if (value.low < MAX_LOW) {
+        return new U96(value.high, value.low + 1L);
+      } else if (value.high < MAX_HIGH) {
+        return new U96(value.high + 1, 0L);
+      } else {
+        throw new ArithmeticException(value + " is the largest value");
+      }
+    }
+
+    @Override
+    public U96 previous(U96 value) {
+      if (value.low > 0L) {
+        return new U96(value.high, value.low - 1L);
+      } else if (value.high > 0) {
+        return new U96(value.high - 1, MAX_LOW);
+      } else {
+        throw new ArithmeticException(value + " is the smallest value");
+      }
+    }
+
+  }
+
+  static final class U96KeyCodec implements KeyCodec<U96> {
+
+    static final KeyCodec<U96> INSTANCE = new U96KeyCodec();
+
+    @Override
+    public int width() {
+      return ENCODED_LENGTH;
+    }
+
+    @Override
+    public void write(U96 key, ByteBuffer buffer) {
+      buffer.putInt(key.high);
+      buffer.putLong(key.low);
+    }
+
+    @Override
+    public int compare(ByteBuffer buffer, int index, U96 key) {
+      int highCompare = Integer.compare(buffer.getInt(index), key.high);
+      if (highCompare != 0) {
+        return highCompare;
+      }
+      return Long.compare(buffer.getLong(index + Integer.BYTES), key.low);
+    }
+
+    @Override
+    public U96 read(ByteBuffer buffer, int index) {
+      return new U96(buffer.getInt(index), buffer.getLong(index + Integer.BYTES));
+    }
+
   }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,246 @@
+package com.github.marschall.rangetree.key;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.function.Function;
+
+import com.github.marschall.rangetree.Range;
+import com.github.marschall.rangetree.RangeMap;
+
+/**
+ * An immutable range map dedicated to {@link U96} keys.
+ *
+ * <p>The range bounds are not stored as {@link U96} objects but packed
+ * into {@code int[]} and {@code long[]} arrays sorted by lower bound.
+ * Lookups are done using a binary search. In addition to looking up
+ * {@link U96} objects this map also supports looking up a key directly
+ * from its decimal digits without creating a {@link U96} object, see
+ * {@link #get(CharSequence, int, int)}.</p>
+ *
+ * <p>This object is thread-safe, all mutating methods throw
+ * {@link UnsupportedOperationException}.</p>
+ *
+ * @param <V> the type of values in this map
+ */
+public final class U96RangeMap<V> implements RangeMap<U96, V> {
+
+  private final int[] lowHighs;
+  private final long[] lowLows;
+  private final int[] highHighs;
+  private final long[] highLows;
+  // we can not create generic arrays
+  private final Object[] values;
+
+  private U96RangeMap(int[] lowHighs, long[] lowLows, int[] highHighs, long[] highLows, Object[] values) {
+    this.lowHighs = lowHighs;
+    this.lowLows = lowLows;
+    this.highHighs = highHighs;
+    this.highLows = highLows;
+    this.values = values;
+  }
+
+  /**
+   * Creates a builder for ranges sorted by the lower bound.
+   *
+   * @param <V> the type of values in the map
+   * @return the new builder
+   */
+  public static <V> Builder<V> builder() {
+    return new Builder<>();
+  }
+
+  /**
+   * Returns the number of ranges in this map.
+   *
+   * @return the number of ranges in this map
+   */
+  public int size() {
+    return this.values.length;
+  }
+
+  @Override
+  public void clear() {
+    throw immutable();
+  }
+
+  @Override
+  public V get(U96 key) {
+    Objects.requireNonNull(key, "key");
+    return this.get(key.getHigh(), key.getLow());
+  }
+
+  /**
+   * Returns the value associated with a key given as decimal digits.
+   *
+   * <p>Unlike {@link U96#valueOf(String)} this method does not
+   * allocate.</p>
+   *
+   * @param s the character sequence containing the decimal digits of the key,
+   *          not {@code null}
+   * @param beginIndex the index of the first digit, inclusive
+   * @param endIndex the index of the last digit, exclusive
+   * @return the value associated with the key or {@code null} if not found
+   * @throws NullPointerException if {@code s} is {@code null}
+   * @throws IllegalArgumentException if the digits are empty, longer than
+   *                                  {@value U96#MAX_LENGTH} or contain
+   *                                  a non-digit
+   * @throws IndexOutOfBoundsException if {@code beginIndex} or
+   *                                   {@code endIndex} are not within {@code s}
+   */
+  public V get(CharSequence s, int beginIndex, int endIndex) {
+    int high = U96.parseHigh(s, beginIndex, endIndex);
+    long low = U96.parseLow(s, beginIndex, endIndex);
+    return this.get(high, low);
+  }
+
+  @Override
+  public Entry<Range<U96>, V> getEntry(U96 key) {
+    Objects.requireNonNull(key, "key");
+    int index = this.indexOf(key.getHigh(), key.getLow());
+    if (index < 0) {
+      return null;
+    }
+    Range<U96> range = new Range<>(U96.fromParts(this.lowHighs[index], this.lowLows[index]),
+        U96.fromParts(this.highHighs[index], this.highLows[index]));
+    return new SimpleImmutableEntry<>(range, this.valueAt(index));
+  }
+
+  private V get(int keyHigh, long keyLow) {
+    int index = this.indexOf(keyHigh, keyLow);
+    if (index < 0) {
+      return null;
+    }
+    return this.valueAt(index);
+  }
+
+  private int indexOf(int keyHigh, long keyLow) {
+    int low = 0;
+    int high = this.values.length - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      if (compare(this.lowHighs[middle], this.lowLows[middle], keyHigh, keyLow) > 0) {
+        high = middle - 1;
+      } else if (compare(this.highHighs[middle], this.highLows[middle], keyHigh, keyLow) < 0) {
+        low = middle + 1;
+      } else {
+        return middle;
+      }
+    }
+    return -1;
+  }
+
+  private static int compare(int high1, long low1, int high2, long low2) {
+    int highCompare = Integer.compare(high1, high2);
+    if (highCompare != 0) {
+      return highCompare;
+    }
+    return Long.compare(low1, low2);
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(int index) {
+    return (V) this.values[index];
+  }
+
+  @Override
+  public V computeIfAbsent(U96 key, Function<? super U96, Entry<Range<? extends U96>, ? extends V>> mappingFunction) {
+    throw immutable();
+  }
+
+  @Override
+  public void put(U96 low, U96 high, V value) {
+    throw immutable();
+  }
+
+  @Override
+  public V putIfAbsent(U96 low, U96 high, V value) {
+    throw immutable();
+  }
+
+  private static RuntimeException immutable() {
+    return new UnsupportedOperationException("immutable");
+  }
+
+  /**
+   * Builds an {@link U96RangeMap} from ranges sorted by the lower bound.
+   *
+   * <p>This object in not thread-safe.</p>
+   *
+   * @param <V> the type of values in the map
+   */
+  public static final class Builder<V> {
+
+    private final List<U96> lows;
+    private final List<U96> highs;
+    private final List<V> values;
+
+    Builder() {
+      this.lows = new ArrayList<>();
+      this.highs = new ArrayList<>();
+      this.values = new ArrayList<>();
+    }
+
+    /**
+     * Adds a range to the map.
+     *
+     * @param low the lower end of the range, inclusive, not {@code null}
+     * @param high the upper end of the range, inclusive, not {@code null}
+     * @param value the value to associate, possibly {@code null}
+     * @return this builder
+     * @throws IllegalArgumentException if {@code low} is not less than {@code high}
+     * @throws IllegalArgumentException if {@code low} is not greater than
+     *                                  the upper end of the previous range
+     * @throws NullPointerException if {@code low} or {@code high} are {@code null}
+     */
+    public Builder<V> add(U96 low, U96 high, V value) {
+      Objects.requireNonNull(low, "low");
+      Objects.requireNonNull(high, "high");
+      if (low.compareTo(high) > 0) {
+        throw new IllegalArgumentException("low: " + low
+            + " must be less than high: " + high);
+      }
+      int size = this.lows.size();
+      if (size > 0) {
+        U96 previousHigh = this.highs.get(size - 1);
+        if (previousHigh.compareTo(low) >= 0) {
+          throw new IllegalArgumentException("can not add range from: " + low
+              + " to: " + high
+              + " because it is not after range from: " + this.lows.get(size - 1)
+              + " to: " + previousHigh);
+        }
+      }
+      this.lows.add(low);
+      this.highs.add(high);
+      this.values.add(value);
+      return this;
+    }
+
+    /**
+     * Creates a new {@link U96RangeMap} containing all the ranges
+     * added so far.
+     *
+     * @return the new map
+     */
+    public U96RangeMap<V> build() {
+      int size = this.values.size();
+      int[] lowHighs = new int[size];
+      long[] lowLows = new long[size];
+      int[] highHighs = new int[size];
+      long[] highLows = new long[size];
+      for (int i = 0; i < size; i++) {
+        U96 low = this.lows.get(i);
+        lowHighs[i] = low.getHigh();
+        lowLows[i] = low.getLow();
+        U96 high = this.highs.get(i);
+        highHighs[i] = high.getHigh();
+        highLows[i] = high.getLow();
+      }
+      return new U96RangeMap<>(lowHighs, lowLows, highHighs, highLows, this.values.toArray());
+    }
+
+  }
+
+}
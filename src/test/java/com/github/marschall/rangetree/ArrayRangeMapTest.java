@@ -0,0 +1,92 @@
+package com.github.marschall.rangetree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class ArrayRangeMapTest {
+
+  @Test
+  void copyOf() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    for (int i = 99; i >= 0; i--) {
+      tree.put(i * 10, i * 10 + 8, "Range " + i);
+    }
+    ArrayRangeMap<Integer, String> map = ArrayRangeMap.copyOf(tree);
+
+    assertEquals(100, map.size());
+    assertNull(map.get(-1));
+    for (int i = 0; i < 100; i++) {
+      assertEquals("Range " + i, map.get(i * 10));
+      assertEquals("Range " + i, map.get(i * 10 + 4));
+      assertEquals("Range " + i, map.get(i * 10 + 8));
+      assertNull(map.get(i * 10 + 9));
+    }
+  }
+
+  @Test
+  void copyOfEmpty() {
+    ArrayRangeMap<Integer, String> map = ArrayRangeMap.copyOf(new LLRBRangeTree<Integer, String>());
+
+    assertEquals(0, map.size());
+    assertNull(map.get(1));
+  }
+
+  @Test
+  void builder() {
+    RangeMap<Integer, String> map = ArrayRangeMap.<Integer, String>builder()
+        .add(0, 9, "Range 0")
+        .add(10, 10, "Range 1")
+        .add(20, 29, "Range 2")
+        .build();
+
+    assertEquals("Range 0", map.get(0));
+    assertEquals("Range 0", map.get(9));
+    assertEquals("Range 1", map.get(10));
+    assertNull(map.get(11));
+    assertNull(map.get(19));
+    assertEquals("Range 2", map.get(20));
+    assertEquals("Range 2", map.get(29));
+    assertNull(map.get(30));
+  }
+
+  @Test
+  void builderIllegalArgumentException() {
+    ArrayRangeMap.Builder<Integer, String> builder = ArrayRangeMap.builder();
+    builder.add(10, 19, "Range 1");
+
+    assertThrows(IllegalArgumentException.class, () -> builder.add(25, 20, "Range 2"));
+    assertThrows(IllegalArgumentException.class, () -> builder.add(19, 29, "Range 2"));
+    assertThrows(IllegalArgumentException.class, () -> builder.add(0, 9, "Range 0"));
+    assertThrows(NullPointerException.class, () -> builder.add(null, 29, "Range 2"));
+  }
+
+  @Test
+  void getEntry() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    tree.put(10, 19, "Range 1");
+    tree.put(30, 39, "Range 3");
+    RangeMap<Integer, String> map = ArrayRangeMap.copyOf(tree);
+
+    assertNull(map.getEntry(20));
+    assertEquals(new Range<>(10, 19), map.getEntry(10).getKey());
+    assertEquals("Range 1", map.getEntry(10).getValue());
+    assertEquals(new Range<>(30, 39), map.getEntry(39).getKey());
+  }
+
+  @Test
+  void immutable() {
+    RangeMap<Integer, String> map = ArrayRangeMap.<Integer, String>builder()
+        .add(10, 19, "Range 1")
+        .build();
+
+    assertThrows(UnsupportedOperationException.class, () -> map.clear());
+    assertThrows(UnsupportedOperationException.class, () -> map.put(20, 29, "Range 2"));
+    assertThrows(UnsupportedOperationException.class, () -> map.putIfAbsent(20, 29, "Range 2"));
+    assertThrows(UnsupportedOperationException.class, () -> map.computeIfAbsent(20, key -> null));
+    assertEquals("Range 1", map.get(15));
+  }
+
+}
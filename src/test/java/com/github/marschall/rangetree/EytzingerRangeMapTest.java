@@ -0,0 +1,71 @@
+package com.github.marschall.rangetree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+class EytzingerRangeMapTest {
+
+  @Test
+  void copyOf() {
+    // cover complete and incomplete last levels
+    for (int size = 0; size < 130; size++) {
+      LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+      for (int i = 0; i < size; i++) {
+        tree.put(i * 10, i * 10 + 8, "Range " + i);
+      }
+      EytzingerRangeMap<Integer, String> map = EytzingerRangeMap.copyOf(tree);
+
+      assertEquals(size, map.size());
+      assertNull(map.get(-1));
+      for (int i = 0; i < size; i++) {
+        assertEquals("Range " + i, map.get(i * 10));
+        assertEquals("Range " + i, map.get(i * 10 + 4));
+        assertEquals("Range " + i, map.get(i * 10 + 8));
+        assertNull(map.get(i * 10 + 9));
+      }
+    }
+  }
+
+  @Test
+  void rangeOfOne() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    tree.put(10, 10, "Range 1");
+    tree.put(11, 11, null);
+    tree.put(12, 12, "Range 3");
+    RangeMap<Integer, String> map = EytzingerRangeMap.copyOf(tree);
+
+    assertNull(map.get(9));
+    assertEquals("Range 1", map.get(10));
+    assertNull(map.get(11));
+    assertEquals("Range 3", map.get(12));
+    assertNull(map.get(13));
+  }
+
+  @Test
+  void getEntry() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    tree.put(10, 19, "Range 1");
+    tree.put(30, 39, "Range 3");
+    RangeMap<Integer, String> map = EytzingerRangeMap.copyOf(tree);
+
+    assertNull(map.getEntry(20));
+    assertEquals(new Range<>(10, 19), map.getEntry(10).getKey());
+    assertEquals("Range 1", map.getEntry(10).getValue());
+    assertEquals(new Range<>(30, 39), map.getEntry(39).getKey());
+  }
+
+  @Test
+  void immutable() {
+    RangeMap<Integer, String> map = EytzingerRangeMap.copyOf(new LLRBRangeTree<Integer, String>());
+
+    assertThrows(UnsupportedOperationException.class, () -> map.clear());
+    assertThrows(UnsupportedOperationException.class, () -> map.put(20, 29, "Range 2"));
+    assertThrows(UnsupportedOperationException.class, () -> map.putIfAbsent(20, 29, "Range 2"));
+    assertThrows(UnsupportedOperationException.class, () -> map.computeIfAbsent(20, key -> null));
+    assertThrows(NullPointerException.class, () -> map.get(null));
+  }
+
+}
@@ -0,0 +1,129 @@
+package com.github.marschall.rangetree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class HotSwapRangeMapTest {
+
+  private HotSwapRangeMap<Integer, String> map;
+
+  @BeforeEach
+  void setUp() {
+    LLRBRangeTree<Integer, String> initial = new LLRBRangeTree<>();
+    initial.put(10, 19, "Range 1");
+    this.map = new HotSwapRangeMap<Integer, String>(initial);
+  }
+
+  @Test
+  void delegates() {
+    assertEquals("Range 1", this.map.get(15));
+    assertEquals(new Range<>(10, 19), this.map.getEntry(15).getKey());
+    this.map.put(20, 29, "Range 2");
+    assertEquals("Range 2", this.map.get(25));
+    assertEquals("Range 2", this.map.putIfAbsent(20, 29, "Range 3"));
+    assertEquals("Range 3", this.map.computeIfAbsent(35, key -> new SimpleImmutableEntry<>(new Range<>(30, 39), "Range 3")));
+  }
+
+  @Test
+  void clear() {
+    assertThrows(UnsupportedOperationException.class, () -> this.map.clear());
+    assertEquals("Range 1", this.map.get(15));
+
+    this.map.reload(LLRBRangeTree::new);
+    assertNull(this.map.get(15));
+  }
+
+  @Test
+  void reload() {
+    HotSwapRangeMap.Version<Integer, String> initial = this.map.currentVersion();
+    assertEquals(1L, initial.getNumber());
+    assertEquals(Duration.ZERO, initial.getBuildDuration());
+
+    HotSwapRangeMap.Version<Integer, String> reloaded = this.map.reload(() -> LLRBRangeTree.<Integer, String>builder()
+        .add(10, 19, "Range 2")
+        .add(20, 29, "Range 3")
+        .build());
+    assertEquals(2L, reloaded.getNumber());
+    assertSame(reloaded, this.map.currentVersion());
+    assertNotNull(reloaded.getPublishedAt());
+    assertEquals("Range 2", this.map.get(15));
+    assertEquals("Range 3", this.map.get(25));
+
+    // the old version is unchanged
+    assertEquals("Range 1", initial.getMap().get(15));
+  }
+
+  @Test
+  void failedReload() {
+    assertThrows(IllegalStateException.class, () -> this.map.reload(() -> {
+      throw new IllegalStateException("load failed");
+    }));
+    assertThrows(NullPointerException.class, () -> this.map.reload(() -> null));
+    assertEquals(1L, this.map.currentVersion().getNumber());
+    assertEquals("Range 1", this.map.get(15));
+  }
+
+  @Test
+  void reloadAsync() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      CompletableFuture<HotSwapRangeMap.Version<Integer, String>> future = this.map.reloadAsync(() -> LLRBRangeTree.<Integer, String>builder()
+          .add(10, 19, "Range 2")
+          .build(), executor);
+      assertEquals(2L, future.get().getNumber());
+      assertEquals("Range 2", this.map.get(15));
+
+      CompletableFuture<HotSwapRangeMap.Version<Integer, String>> failed = this.map.reloadAsync(() -> {
+        throw new IllegalStateException("load failed");
+      }, executor);
+      ExecutionException e = assertThrows(ExecutionException.class, failed::get);
+      assertEquals(IllegalStateException.class, e.getCause().getClass());
+      assertEquals(2L, this.map.currentVersion().getNumber());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void lookupsDuringReload() throws Exception {
+    AtomicBoolean done = new AtomicBoolean();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<?> reader = executor.submit(() -> {
+        while (!done.get()) {
+          String value = this.map.get(15);
+          if (value == null || !value.startsWith("Range ")) {
+            throw new AssertionError("unexpected value: " + value);
+          }
+        }
+      });
+      for (int i = 2; i < 100; i++) {
+        String value = "Range " + i;
+        this.map.reload(() -> LLRBRangeTree.<Integer, String>builder()
+            .add(10, 19, value)
+            .build());
+      }
+      done.set(true);
+      reader.get();
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(99L, this.map.currentVersion().getNumber());
+  }
+
+}
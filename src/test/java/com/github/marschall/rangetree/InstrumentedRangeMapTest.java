@@ -0,0 +1,180 @@
+package com.github.marschall.rangetree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class InstrumentedRangeMapTest {
+
+  private static final String VALUE = "Range 1";
+
+  private InstrumentedRangeMap<Integer, String> map;
+
+  @BeforeEach
+  void setUp() {
+    this.map = new InstrumentedRangeMap<Integer, String>(new LLRBRangeTree<>(), 1);
+    this.map.put(10, 19, VALUE);
+  }
+
+  @Test
+  void hitsAndMisses() {
+    assertEquals(VALUE, this.map.get(15));
+    assertEquals(VALUE, this.map.getEntry(19).getValue());
+    assertNull(this.map.get(20));
+
+    InstrumentedRangeMap.Snapshot snapshot = this.map.snapshot();
+    assertEquals(2L, snapshot.getHits());
+    assertEquals(1L, snapshot.getMisses());
+    assertEquals(1.0d / 3.0d, snapshot.getMissRate(), 0.0001d);
+  }
+
+  @Test
+  void depth() {
+    for (int i = 2; i < 100; i++) {
+      this.map.put(i * 10, i * 10 + 9, "Range " + i);
+    }
+    for (int i = 0; i < 1000; i++) {
+      this.map.get(i);
+    }
+
+    InstrumentedRangeMap.Snapshot snapshot = this.map.snapshot();
+    assertEquals(1000L, snapshot.getDepthSamples());
+    assertTrue(snapshot.getAverageDepth() >= 1.0d);
+    assertTrue(snapshot.getMaxDepth() >= 7L);
+    assertTrue(snapshot.getMaxDepth() <= 14L);
+  }
+
+  @Test
+  void noDepthForOtherDelegates() {
+    InstrumentedRangeMap<Integer, String> synchronizedMap = new InstrumentedRangeMap<Integer, String>(
+        new SynchronizedRangeMap<Integer, String>(new LLRBRangeTree<>()), 1);
+    synchronizedMap.get(1);
+    assertEquals(0L, synchronizedMap.snapshot().getDepthSamples());
+    assertEquals(1L, synchronizedMap.snapshot().getMisses());
+  }
+
+  @Test
+  void loads() {
+    assertEquals(VALUE, this.map.computeIfAbsent(15, key -> null));
+    assertEquals("Range 2", this.map.computeIfAbsent(20, key -> new SimpleImmutableEntry<>(new Range<>(20, 29), "Range 2")));
+    assertThrows(IllegalStateException.class, () -> this.map.computeIfAbsent(30, key -> {
+      throw new IllegalStateException();
+    }));
+
+    InstrumentedRangeMap.Snapshot snapshot = this.map.snapshot();
+    assertEquals(1L, snapshot.getHits());
+    assertEquals(2L, snapshot.getMisses());
+    assertEquals(2L, snapshot.getLoads());
+    assertEquals(1L, snapshot.getLoadFailures());
+    long histogramCount = 0L;
+    for (long count : snapshot.getLoadLatencyHistogram()) {
+      histogramCount += count;
+    }
+    assertEquals(2L, histogramCount);
+  }
+
+  @Test
+  void coalescedLoadsAreMisses() throws InterruptedException {
+    InstrumentedRangeMap<Integer, String> coalescing = new InstrumentedRangeMap<Integer, String>(new PersistentLLRBRangeTree<>());
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread loader = new Thread(() -> coalescing.computeIfAbsent(15, key -> {
+      loading.countDown();
+      await(release);
+      return new SimpleImmutableEntry<>(new Range<>(10, 19), VALUE);
+    }));
+    loader.start();
+    loading.await();
+    AtomicReference<String> waited = new AtomicReference<>();
+    Thread waiter = new Thread(() -> waited.set(coalescing.computeIfAbsent(15, key -> {
+      throw new AssertionError("load not coalesced");
+    })));
+    waiter.start();
+    while (waiter.getState() != Thread.State.WAITING) {
+      Thread.yield();
+    }
+    release.countDown();
+    loader.join();
+    waiter.join();
+    assertEquals(VALUE, waited.get());
+
+    InstrumentedRangeMap.Snapshot snapshot = coalescing.snapshot();
+    assertEquals(0L, snapshot.getHits());
+    assertEquals(2L, snapshot.getMisses());
+    assertEquals(1L, snapshot.getLoads());
+  }
+
+  @Test
+  void putIfAbsentConflicts() {
+    assertEquals(VALUE, this.map.putIfAbsent(10, 19, "Range 2"));
+    assertNull(this.map.putIfAbsent(20, 29, "Range 2"));
+    assertEquals(1L, this.map.snapshot().getPutIfAbsentConflicts());
+
+    // an existing range mapping to null
+    this.map.put(30, 39, null);
+    assertNull(this.map.putIfAbsent(30, 39, "Range 3"));
+    assertEquals(2L, this.map.snapshot().getPutIfAbsentConflicts());
+    assertNull(this.map.get(35));
+  }
+
+  @Test
+  void disabled() {
+    this.map.setEnabled(false);
+    assertFalse(this.map.isEnabled());
+    assertEquals(VALUE, this.map.get(15));
+    assertEquals("Range 2", this.map.computeIfAbsent(20, key -> new SimpleImmutableEntry<>(new Range<>(20, 29), "Range 2")));
+    this.map.putIfAbsent(10, 19, "Range 3");
+
+    InstrumentedRangeMap.Snapshot snapshot = this.map.snapshot();
+    assertEquals(0L, snapshot.getHits());
+    assertEquals(0L, snapshot.getMisses());
+    assertEquals(0L, snapshot.getLoads());
+    assertEquals(0L, snapshot.getPutIfAbsentConflicts());
+  }
+
+  @Test
+  void reset() {
+    this.map.get(15);
+    this.map.get(25);
+    this.map.reset();
+    InstrumentedRangeMap.Snapshot snapshot = this.map.snapshot();
+    assertEquals(0L, snapshot.getHits());
+    assertEquals(0L, snapshot.getMisses());
+    assertEquals(0L, snapshot.getDepthSamples());
+    assertEquals(0.0d, snapshot.getMissRate());
+  }
+
+  @Test
+  void bucketOf() {
+    assertEquals(0, InstrumentedRangeMap.bucketOf(0L));
+    assertEquals(0, InstrumentedRangeMap.bucketOf(1L));
+    assertEquals(1, InstrumentedRangeMap.bucketOf(2L));
+    assertEquals(1, InstrumentedRangeMap.bucketOf(3L));
+    assertEquals(10, InstrumentedRangeMap.bucketOf(1024L));
+    assertEquals(InstrumentedRangeMap.HISTOGRAM_BUCKETS - 1, InstrumentedRangeMap.bucketOf(Long.MAX_VALUE));
+  }
+
+  @Test
+  void invalidSampleInterval() {
+    assertThrows(IllegalArgumentException.class, () -> new InstrumentedRangeMap<Integer, String>(new LLRBRangeTree<>(), 3));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted", e);
+    }
+  }
+
+}
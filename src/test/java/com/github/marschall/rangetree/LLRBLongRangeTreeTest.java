@@ -0,0 +1,90 @@
+package com.github.marschall.rangetree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class LLRBLongRangeTreeTest {
+
+  private LongRangeMap<String> tree;
+
+  @BeforeEach
+  void setUp() {
+    this.tree = new LLRBLongRangeTree<>();
+  }
+
+  @Test
+  void oneNode() {
+    this.tree.put(10L, 19L, "Range 1");
+
+    assertNull(this.tree.get(9L));
+    assertEquals("Range 1", this.tree.get(10L));
+    assertEquals("Range 1", this.tree.get(19L));
+    assertNull(this.tree.get(20L));
+  }
+
+  @Test
+  void clear() {
+    this.tree.put(10L, 19L, "Range 1");
+
+    assertEquals("Range 1", this.tree.get(10L));
+    this.tree.clear();
+    assertNull(this.tree.get(10L));
+  }
+
+  @Test
+  void wrongKeyOrder() {
+    assertThrows(IllegalArgumentException.class, () -> this.tree.put(20L, 10L, "Range 1"));
+  }
+
+  @Test
+  void extremeValues() {
+    this.tree.put(Long.MIN_VALUE, -1L, "negative");
+    this.tree.put(0L, Long.MAX_VALUE, "positive");
+
+    assertEquals("negative", this.tree.get(Long.MIN_VALUE));
+    assertEquals("negative", this.tree.get(-1L));
+    assertEquals("positive", this.tree.get(0L));
+    assertEquals("positive", this.tree.get(Long.MAX_VALUE));
+  }
+
+  @Test
+  void overlap() {
+    this.tree.put(10L, 19L, "Range 1");
+
+    assertThrows(IllegalArgumentException.class, () -> this.tree.put(1L, 10L, "Range 2"));
+    assertThrows(IllegalArgumentException.class, () -> this.tree.put(10L, 12L, "Range 2"));
+    assertThrows(IllegalArgumentException.class, () -> this.tree.put(12L, 14L, "Range 2"));
+    assertThrows(IllegalArgumentException.class, () -> this.tree.put(19L, 22L, "Range 2"));
+  }
+
+  @Test
+  void putIfAbsent() {
+    this.tree.put(10L, 19L, "Range 1");
+    assertEquals("Range 1", this.tree.putIfAbsent(10L, 19L, "Range 2"));
+    assertEquals("Range 1", this.tree.putIfAbsent(12L, 16L, "Range 2"));
+    assertNull(this.tree.putIfAbsent(20L, 29L, "Range 3"));
+
+    assertEquals("Range 1", this.tree.get(10L));
+    assertEquals("Range 3", this.tree.get(20L));
+
+    assertThrows(IllegalArgumentException.class, () -> this.tree.putIfAbsent(1L, 10L, "Range 1"));
+    assertThrows(IllegalArgumentException.class, () -> this.tree.putIfAbsent(19L, 20L, "Range 1"));
+  }
+
+  @Test
+  void manyPut() {
+    for (long i = 0; i < 100; i++) {
+      this.tree.put(i * 10L, i * 10L + 8L, "Range " + i);
+    }
+    for (long i = 0; i < 100; i++) {
+      assertEquals("Range " + i, this.tree.get(i * 10L));
+      assertEquals("Range " + i, this.tree.get(i * 10L + 8L));
+      assertNull(this.tree.get(i * 10L + 9L));
+    }
+  }
+
+}
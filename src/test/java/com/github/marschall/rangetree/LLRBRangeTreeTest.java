@@ -1,10 +1,25 @@
 package com.github.marschall.rangetree;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.math.BigInteger;
 import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.Random;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -183,4 +198,488 @@ class LLRBRangeTreeTest {
     }
   }
 
+  @Test
+  void builder() {
+    for (int size = 0; size < 100; size++) {
+      LLRBRangeTree.Builder<Integer, String> builder = LLRBRangeTree.builder();
+      for (int i = 0; i < size; i++) {
+        builder.add(i * 10, i * 10 + 8, "Range " + i);
+      }
+      LLRBRangeTree<Integer, String> built = builder.build();
+      for (int i = 0; i < size; i++) {
+        assertEquals("Range " + i, built.get(i * 10));
+        assertEquals("Range " + i, built.get(i * 10 + 8));
+        assertNull(built.get(i * 10 + 9));
+      }
+      // the tree has to remain valid for inserts
+      for (int i = 0; i < size; i++) {
+        built.put(i * 10 + 9, i * 10 + 9, "Gap " + i);
+      }
+      built.put(-10, -1, "Range -1");
+      for (int i = 0; i < size; i++) {
+        assertEquals("Range " + i, built.get(i * 10 + 8));
+        assertEquals("Gap " + i, built.get(i * 10 + 9));
+      }
+      assertEquals("Range -1", built.get(-1));
+    }
+  }
+
+  @Test
+  void builderIllegalArgumentException() {
+    LLRBRangeTree.Builder<Integer, String> builder = LLRBRangeTree.builder();
+    builder.add(10, 19, "Range 1");
+
+    assertThrows(IllegalArgumentException.class, () -> builder.add(25, 20, "Range 2"));
+    assertThrows(IllegalArgumentException.class, () -> builder.add(19, 29, "Range 2"));
+    assertThrows(IllegalArgumentException.class, () -> builder.add(0, 9, "Range 0"));
+    assertThrows(NullPointerException.class, () -> builder.add(null, 29, "Range 2"));
+  }
+
+  @Test
+  void adjacencyMerging() {
+    LLRBRangeTree<Integer, String> merging = new LLRBRangeTree<>(LLRBRangeTreeTest::areAdjacent);
+    merging.put(10, 19, "Range 1");
+    merging.put(20, 29, "Range 1");
+    merging.put(0, 9, "Range 1");
+    merging.put(30, 39, "Range 2");
+    merging.putIfAbsent(41, 49, "Range 2");
+
+    // only a single range can contain the whole range
+    assertEquals("Range 1", merging.putIfAbsent(0, 29, "Range 3"));
+    assertThrows(IllegalArgumentException.class, () -> merging.putIfAbsent(0, 39, "Range 3"));
+    assertEquals("Range 2", merging.get(39));
+    assertNull(merging.get(40));
+    assertEquals("Range 2", merging.get(41));
+  }
+
+  @Test
+  void adjacencyMergingComputeIfAbsent() {
+    LLRBRangeTree<Integer, String> merging = new LLRBRangeTree<>(LLRBRangeTreeTest::areAdjacent);
+    merging.put(10, 19, "Range 1");
+    assertEquals("Range 1", merging.computeIfAbsent(20, key -> new SimpleImmutableEntry<>(new Range<>(20, 29), "Range 1")));
+
+    assertEquals("Range 1", merging.putIfAbsent(10, 29, "Range 2"));
+  }
+
+  @Test
+  void adjacencyMergingOverlap() {
+    LLRBRangeTree<Integer, String> merging = new LLRBRangeTree<>(LLRBRangeTreeTest::areAdjacent);
+    merging.put(10, 19, "Range 1");
+
+    assertThrows(IllegalArgumentException.class, () -> merging.put(19, 22, "Range 1"));
+    assertThrows(IllegalArgumentException.class, () -> merging.put(5, 10, "Range 1"));
+  }
+
+  @Test
+  void builderAdjacencyMerging() {
+    LLRBRangeTree<Integer, String> built = LLRBRangeTree.<Integer, String>builder(LLRBRangeTreeTest::areAdjacent)
+        .add(0, 9, "Range 1")
+        .add(10, 19, "Range 1")
+        .add(20, 29, "Range 2")
+        .add(31, 39, "Range 2")
+        .build();
+
+    assertEquals("Range 1", built.putIfAbsent(0, 19, "Range 3"));
+    assertThrows(IllegalArgumentException.class, () -> built.putIfAbsent(20, 39, "Range 3"));
+
+    // the built tree continues to merge
+    built.put(30, 30, "Range 2");
+    assertEquals("Range 2", built.putIfAbsent(20, 30, "Range 3"));
+  }
+
+  @Test
+  void compact() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    for (int i = 0; i < 100; i++) {
+      tree.put(i * 10, i * 10 + 9, "Range " + (i / 10));
+    }
+    tree.compact(LLRBRangeTreeTest::areAdjacent);
+
+    for (int i = 0; i < 10; i++) {
+      assertEquals("Range " + i, tree.putIfAbsent(i * 100, i * 100 + 99, "Other"));
+    }
+    assertThrows(IllegalArgumentException.class, () -> tree.putIfAbsent(0, 100, "Other"));
+    tree.put(1000, 1009, "Range 10");
+    assertEquals("Range 10", tree.get(1005));
+  }
+
+  @Test
+  void adjacencyMergingBothSides() {
+    LLRBRangeTree<Integer, String> merging = new LLRBRangeTree<>(LLRBRangeTreeTest::areAdjacent);
+    merging.put(0, 9, "Range 1");
+    merging.put(20, 29, "Range 1");
+    merging.put(10, 19, "Range 1");
+
+    assertEquals("Range 1", merging.putIfAbsent(0, 29, "Range 2"));
+    assertEquals("Range 1", merging.remove(0, 29));
+    assertNull(merging.get(15));
+  }
+
+  @Test
+  void remove() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    for (int i = 0; i < 100; i++) {
+      tree.put(i * 10, i * 10 + 8, "Range " + i);
+    }
+    for (int i = 0; i < 100; i += 2) {
+      assertEquals("Range " + i, tree.remove(i * 10, i * 10 + 8));
+    }
+    for (int i = 0; i < 100; i++) {
+      if (i % 2 == 0) {
+        assertNull(tree.get(i * 10 + 4));
+      } else {
+        assertEquals("Range " + i, tree.get(i * 10 + 4));
+      }
+    }
+    assertNull(tree.remove(0, 8));
+    assertNull(tree.remove(1000, 1008));
+
+    // removed ranges can be put again
+    tree.put(0, 9, "Range 0");
+    assertEquals("Range 0", tree.get(9));
+  }
+
+  @Test
+  void removeIllegalArgumentException() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    tree.put(10, 19, "Range 1");
+
+    assertThrows(IllegalArgumentException.class, () -> tree.remove(10, 18));
+    assertThrows(IllegalArgumentException.class, () -> tree.remove(5, 25));
+    assertThrows(IllegalArgumentException.class, () -> tree.remove(19, 10));
+    assertThrows(NullPointerException.class, () -> tree.remove(null, 19));
+    assertEquals("Range 1", tree.get(15));
+  }
+
+  @Test
+  void removeAll() {
+    LLRBRangeTree<Integer, String> tree = LLRBRangeTree.<Integer, String>builder()
+        .add(0, 9, "Range 0")
+        .add(10, 19, "Range 1")
+        .add(20, 29, "Range 2")
+        .add(30, 39, "Range 3")
+        .build();
+    assertEquals("Range 2", tree.remove(20, 29));
+    assertEquals("Range 0", tree.remove(0, 9));
+    assertEquals("Range 3", tree.remove(30, 39));
+    assertEquals("Range 1", tree.remove(10, 19));
+    assertNull(tree.get(15));
+    tree.put(10, 19, "Range 1");
+    assertEquals("Range 1", tree.get(15));
+  }
+
+  @Test
+  void putOverriding() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    tree.put(0, 99, "Range 1");
+
+    // split
+    tree.putOverriding(40, 49, "Range 2", DiscreteDomain.integers());
+    assertEquals("Range 1", tree.remove(0, 39));
+    assertEquals("Range 2", tree.get(40));
+    assertEquals("Range 2", tree.get(49));
+    assertEquals("Range 1", tree.get(50));
+
+    // trim both sides and remove the range in between
+    tree.put(0, 39, "Range 1");
+    tree.putOverriding(30, 59, "Range 3", DiscreteDomain.integers());
+    assertEquals("Range 1", tree.remove(0, 29));
+    assertEquals("Range 3", tree.remove(30, 59));
+    assertEquals("Range 1", tree.remove(60, 99));
+    assertNull(tree.get(45));
+
+    // no overlap
+    tree.putOverriding(0, 9, "Range 4", DiscreteDomain.integers());
+    assertEquals("Range 4", tree.get(5));
+  }
+
+  @Test
+  void putOverridingAdjacencyMerging() {
+    LLRBRangeTree<Integer, String> merging = new LLRBRangeTree<>(LLRBRangeTreeTest::areAdjacent);
+    merging.put(0, 99, "Range 1");
+    merging.putOverriding(40, 49, "Range 2", DiscreteDomain.integers());
+    merging.putOverriding(40, 49, "Range 1", DiscreteDomain.integers());
+
+    assertEquals("Range 1", merging.remove(0, 99));
+  }
+
+  @Test
+  void randomUpdates() {
+    // compare against a trivial model mapping every key to a value
+    Random random = new Random(1L);
+    int domainSize = 1_000;
+    for (int round = 0; round < 20; round++) {
+      String[] model = new String[domainSize];
+      LLRBRangeTree<Integer, String> tree = round % 2 == 0 ? new LLRBRangeTree<>() : new LLRBRangeTree<>(LLRBRangeTreeTest::areAdjacent);
+      for (int operation = 0; operation < 2_000; operation++) {
+        int low = random.nextInt(domainSize);
+        int high = Math.min(domainSize - 1, low + random.nextInt(10));
+        String value = "Range " + random.nextInt(3);
+        if (random.nextBoolean()) {
+          tree.putOverriding(low, high, value, DiscreteDomain.integers());
+          for (int i = low; i <= high; i++) {
+            model[i] = value;
+          }
+        } else {
+          List<Range<Integer>> ranges = new ArrayList<>();
+          tree.forEachNode(node -> ranges.add(new Range<>(node.low, node.high)));
+          if (!ranges.isEmpty()) {
+            Range<Integer> range = ranges.get(random.nextInt(ranges.size()));
+            assertEquals(model[range.getLow()], tree.remove(range.getLow(), range.getHigh()));
+            for (int i = range.getLow(); i <= range.getHigh(); i++) {
+              model[i] = null;
+            }
+          }
+        }
+      }
+      for (int i = 0; i < domainSize; i++) {
+        assertEquals(model[i], tree.get(i));
+      }
+    }
+  }
+
+  @Test
+  void getAllSorted() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    for (int i = 0; i < 100; i++) {
+      tree.put(i * 10, i * 10 + 8, "Range " + i);
+    }
+    Integer[] keys = new Integer[] {-1, 0, 0, 8, 9, 10, 500, 509, 998, 999, 1000};
+    String[] values = new String[keys.length];
+    Arrays.fill(values, "Stale");
+    tree.getAll(keys, values);
+
+    assertArrayEquals(new String[] {null, "Range 0", "Range 0", "Range 0", null, "Range 1", "Range 50", null, "Range 99", null, null}, values);
+  }
+
+  @Test
+  void getAllUnsorted() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    for (int i = 0; i < 100; i++) {
+      tree.put(i * 10, i * 10 + 8, "Range " + i);
+    }
+    List<Integer> keys = new ArrayList<>();
+    for (int i = -10; i < 1010; i++) {
+      keys.add(i);
+    }
+    Collections.shuffle(keys, new Random(1L));
+    String[] values = new String[keys.size() + 1];
+    tree.getAll(keys, values);
+
+    for (int i = 0; i < keys.size(); i++) {
+      assertEquals(tree.get(keys.get(i)), values[i]);
+    }
+    assertNull(values[keys.size()]);
+  }
+
+  @Test
+  void getAllIllegalArgumentException() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    tree.put(10, 19, "Range 1");
+
+    assertThrows(IllegalArgumentException.class, () -> tree.getAll(new Integer[] {10, 11}, new String[1]));
+    assertThrows(NullPointerException.class, () -> tree.getAll(new Integer[] {10, null}, new String[2]));
+    assertThrows(NullPointerException.class, () -> tree.getAll(new Integer[] {10}, null));
+
+    String[] values = new String[0];
+    tree.getAll(new Integer[0], values);
+    new LLRBRangeTree<Integer, String>().getAll(new Integer[0], values);
+  }
+
+  @Test
+  void iterator() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    assertFalse(tree.iterator().hasNext());
+    assertThrows(NoSuchElementException.class, () -> tree.iterator().next());
+
+    List<Integer> lows = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      lows.add(i * 10);
+    }
+    Collections.shuffle(lows, new Random(1L));
+    for (Integer low : lows) {
+      tree.put(low, low + 8, "Range " + low);
+    }
+    assertEquals(100, tree.size());
+
+    int expectedLow = 0;
+    for (Entry<Range<Integer>, String> entry : tree) {
+      assertEquals(new Range<>(expectedLow, expectedLow + 8), entry.getKey());
+      assertEquals("Range " + expectedLow, entry.getValue());
+      expectedLow += 10;
+    }
+    assertEquals(1000, expectedLow);
+  }
+
+  @Test
+  void overlapping() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    for (int i = 0; i < 100; i++) {
+      tree.put(i * 10, i * 10 + 8, "Range " + i);
+    }
+    Iterable<Entry<Range<Integer>, String>> overlapping = tree.overlapping(18, 40);
+    assertEquals(Arrays.asList("Range 1", "Range 2", "Range 3", "Range 4"), values(overlapping));
+    assertEquals(Arrays.asList("Range 2"), values(tree.overlapping(20, 20)));
+    assertEquals(Collections.emptyList(), values(tree.overlapping(9, 9)));
+    assertEquals(Collections.emptyList(), values(tree.overlapping(1000, 2000)));
+    assertEquals(Arrays.asList("Range 0"), values(tree.overlapping(-10, 0)));
+    assertThrows(IllegalArgumentException.class, () -> tree.overlapping(20, 10));
+
+    // the view reflects later modifications
+    tree.remove(20, 28);
+    assertEquals(Arrays.asList("Range 1", "Range 3", "Range 4"), values(overlapping));
+  }
+
+  @Test
+  void floorAndCeilingEntry() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    assertNull(tree.floorEntry(10));
+    assertNull(tree.ceilingEntry(10));
+
+    tree.put(10, 19, "Range 1");
+    tree.put(30, 39, "Range 3");
+
+    assertNull(tree.floorEntry(9));
+    assertEquals(new Range<>(10, 19), tree.floorEntry(10).getKey());
+    assertEquals("Range 1", tree.floorEntry(25).getValue());
+    assertEquals("Range 3", tree.floorEntry(35).getValue());
+    assertEquals("Range 3", tree.floorEntry(100).getValue());
+
+    assertEquals("Range 1", tree.ceilingEntry(0).getValue());
+    assertEquals("Range 1", tree.ceilingEntry(19).getValue());
+    assertEquals(new Range<>(30, 39), tree.ceilingEntry(20).getKey());
+    assertNull(tree.ceilingEntry(40));
+
+    assertEquals(new Range<>(10, 19), tree.getEntry(10).getKey());
+    assertEquals("Range 3", tree.getEntry(39).getValue());
+    assertNull(tree.getEntry(25));
+  }
+
+  @Test
+  void size() {
+    LLRBRangeTree<Integer, String> merging = new LLRBRangeTree<>(LLRBRangeTreeTest::areAdjacent);
+    assertEquals(0, merging.size());
+    merging.put(0, 9, "Range 1");
+    merging.put(20, 29, "Range 1");
+    assertEquals(2, merging.size());
+    merging.put(10, 19, "Range 1");
+    assertEquals(1, merging.size());
+    merging.putOverriding(5, 5, "Range 2", DiscreteDomain.integers());
+    assertEquals(3, merging.size());
+    merging.remove(5, 5);
+    assertEquals(2, merging.size());
+    merging.clear();
+    assertEquals(0, merging.size());
+
+    LLRBRangeTree<Integer, String> built = LLRBRangeTree.<Integer, String>builder()
+        .add(0, 9, "Range 0")
+        .add(10, 19, "Range 1")
+        .build();
+    assertEquals(2, built.size());
+  }
+
+  @Test
+  void streams() {
+    LLRBRangeTree.Builder<Integer, String> builder = LLRBRangeTree.builder();
+    for (int i = 0; i < 10_000; i++) {
+      builder.add(i * 10, i * 10 + 8, "Range " + i);
+    }
+    LLRBRangeTree<Integer, String> tree = builder.build();
+
+    List<String> expected = new ArrayList<>();
+    for (int i = 0; i < 10_000; i++) {
+      expected.add("Range " + i);
+    }
+    assertEquals(expected, tree.stream().map(Entry::getValue).collect(Collectors.toList()));
+    assertEquals(expected, tree.parallelStream().map(Entry::getValue).collect(Collectors.toList()));
+    assertEquals(10_000L, tree.parallelStream().filter(entry -> entry.getKey().getHigh() - entry.getKey().getLow() == 8).count());
+  }
+
+  @Test
+  void spliterator() {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    for (int i = 0; i < 3; i++) {
+      tree.put(i * 10, i * 10 + 8, "Range " + i);
+    }
+    Spliterator<Entry<Range<Integer>, String>> suffix = tree.spliterator();
+    assertEquals(3L, suffix.getExactSizeIfKnown());
+    List<String> values = new ArrayList<>();
+    Spliterator<Entry<Range<Integer>, String>> prefix = suffix.trySplit();
+    while (prefix != null) {
+      assertEquals(-1L, suffix.getExactSizeIfKnown());
+      prefix.forEachRemaining(entry -> values.add(entry.getValue()));
+      prefix = suffix.trySplit();
+    }
+    suffix.forEachRemaining(entry -> values.add(entry.getValue()));
+    assertEquals(Arrays.asList("Range 0", "Range 1", "Range 2"), values);
+    assertFalse(suffix.tryAdvance(entry -> values.add(entry.getValue())));
+  }
+
+  @Test
+  void statisticsEmpty() {
+    TreeStatistics statistics = new LLRBRangeTree<Integer, String>().statistics();
+    assertEquals(0, statistics.getNodeCount());
+    assertEquals(0, statistics.getHeight());
+    assertEquals(0, statistics.getBlackHeight());
+    assertEquals(0.0d, statistics.getAverageDepth());
+    assertEquals(0L, statistics.getEstimatedKeyBytes());
+    assertEquals(24L, statistics.getEstimatedBytes());
+  }
+
+  @Test
+  void statistics() {
+    LLRBRangeTree<Integer, String> rangeTree = new LLRBRangeTree<>();
+    for (int i = 0; i < 1000; i++) {
+      rangeTree.put(i * 10, i * 10 + 9, "Range " + i);
+    }
+    TreeStatistics statistics = rangeTree.statistics();
+    assertEquals(1000, statistics.getNodeCount());
+    assertTrue(statistics.getHeight() >= 10);
+    assertTrue(statistics.getHeight() <= 2 * statistics.getBlackHeight());
+    assertTrue(statistics.getBlackHeight() <= statistics.getHeight());
+    assertTrue(statistics.getAverageDepth() >= 1.0d);
+    assertTrue(statistics.getAverageDepth() <= statistics.getHeight());
+    assertEquals(24L + 1000L * 40L, statistics.getEstimatedNodeBytes());
+    assertEquals(2000L * 16L, statistics.getEstimatedKeyBytes());
+    assertEquals(72.0d, statistics.getEstimatedBytesPerNode(), 0.1d);
+
+    assertEquals(1000L, rangeTree.statistics(key -> 1L).getEstimatedKeyBytes() / 2L);
+  }
+
+  @Test
+  void statisticsBuilder() {
+    LLRBRangeTree.Builder<Integer, String> builder = LLRBRangeTree.builder();
+    for (int i = 0; i < 7; i++) {
+      builder.add(i * 10, i * 10 + 9, "Range " + i);
+    }
+    TreeStatistics statistics = builder.build().statistics();
+    assertEquals(7, statistics.getNodeCount());
+    assertEquals(3, statistics.getHeight());
+    assertEquals(17.0d / 7.0d, statistics.getAverageDepth(), 0.0001d);
+  }
+
+  @Test
+  void estimatedKeySize() {
+    assertEquals(16L, LLRBRangeTree.estimatedKeySize(1));
+    assertEquals(24L, LLRBRangeTree.estimatedKeySize(1L));
+    assertEquals(24L + 32L, LLRBRangeTree.estimatedKeySize("123456789012"));
+    assertEquals(40L + 24L, LLRBRangeTree.estimatedKeySize(new BigInteger("123456789012")));
+    assertEquals(0L, LLRBRangeTree.estimatedKeySize(new Object()));
+  }
+
+  private static List<String> values(Iterable<Entry<Range<Integer>, String>> entries) {
+    List<String> values = new ArrayList<>();
+    Iterator<Entry<Range<Integer>, String>> iterator = entries.iterator();
+    while (iterator.hasNext()) {
+      Entry<Range<Integer>, String> entry = iterator.next();
+      assertNotNull(entry.getKey());
+      values.add(entry.getValue());
+    }
+    return values;
+  }
+
+  private static boolean areAdjacent(Integer low, Integer high) {
+    return low + 1 == high;
+  }
+
 }
@@ -0,0 +1,163 @@
+package com.github.marschall.rangetree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+
+class LastHitRangeMapTest {
+
+  @Test
+  void threadConfined() {
+    CountingRangeMap<Integer, String> delegate = new CountingRangeMap<>(new LLRBRangeTree<Integer, String>());
+    RangeMap<Integer, String> map = LastHitRangeMap.threadConfined(delegate);
+    map.put(10, 19, "Range 1");
+    map.put(20, 29, "Range 2");
+
+    assertEquals("Range 1", map.get(10));
+    assertEquals("Range 1", map.get(15));
+    assertEquals("Range 1", map.get(19));
+    assertEquals(1, delegate.lookups);
+
+    assertEquals("Range 2", map.get(20));
+    assertEquals(new Range<>(20, 29), map.getEntry(25).getKey());
+    assertEquals(2, delegate.lookups);
+
+    // misses are not remembered
+    assertNull(map.get(30));
+    assertEquals("Range 2", map.get(21));
+    assertEquals(3, delegate.lookups);
+
+    assertEquals("Range 2", map.computeIfAbsent(22, key -> null));
+    assertEquals(3, delegate.lookups);
+  }
+
+  @Test
+  void clear() {
+    RangeMap<Integer, String> map = LastHitRangeMap.threadConfined(new LLRBRangeTree<Integer, String>());
+    map.put(10, 19, "Range 1");
+    assertEquals("Range 1", map.get(15));
+
+    map.clear();
+    assertNull(map.get(15));
+    assertEquals("Range 2", map.computeIfAbsent(15, key -> new SimpleImmutableEntry<>(new Range<>(15, 15), "Range 2")));
+    assertEquals("Range 2", map.get(15));
+  }
+
+  @Test
+  void delegateWithoutGetEntry() {
+    // RWLockRangeMap does not override RangeMap#getEntry
+    RangeMap<Integer, String> map = LastHitRangeMap.concurrent(new RWLockRangeMap<Integer, String>(new LLRBRangeTree<>()));
+    map.put(10, 19, "Range 1");
+
+    assertEquals("Range 1", map.get(15));
+    assertEquals("Range 1", map.get(16));
+    assertNull(map.get(20));
+    assertThrows(UnsupportedOperationException.class, () -> map.getEntry(15));
+  }
+
+  @Test
+  void hotSwap() {
+    LLRBRangeTree<Integer, String> initial = new LLRBRangeTree<>();
+    initial.put(10, 19, "Range 1");
+    HotSwapRangeMap<Integer, String> hotSwap = new HotSwapRangeMap<>(initial);
+    RangeMap<Integer, String> map = LastHitRangeMap.concurrent(hotSwap);
+    assertEquals("Range 1", map.get(15));
+
+    hotSwap.reload(() -> {
+      LLRBRangeTree<Integer, String> reloaded = new LLRBRangeTree<>();
+      reloaded.put(10, 14, "Range 2");
+      return reloaded;
+    });
+    assertEquals("Range 2", map.get(12));
+    assertNull(map.get(15));
+    assertEquals("Range 2", map.computeIfAbsent(13, key -> null));
+  }
+
+  @Test
+  void concurrent() throws Exception {
+    RangeMap<Integer, String> map = LastHitRangeMap.concurrent(new StampedLockRangeMap<Integer, String>(new LLRBRangeTree<>()));
+    for (int i = 0; i < 100; i++) {
+      map.put(i * 10, i * 10 + 8, "Range " + i);
+    }
+    int threads = 4;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 100; i++) {
+              // every thread walks the ranges in a different order
+              int range = (i * (thread * 2 + 1)) % 100;
+              assertEquals("Range " + range, map.get(range * 10 + (round % 9)));
+              assertNull(map.get(range * 10 + 9));
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  static final class CountingRangeMap<K extends Comparable<? super K>, V> implements RangeMap<K, V> {
+
+    private final RangeMap<K, V> delegate;
+
+    int lookups;
+
+    CountingRangeMap(RangeMap<K, V> delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public void clear() {
+      this.delegate.clear();
+    }
+
+    @Override
+    public V get(K key) {
+      this.lookups += 1;
+      return this.delegate.get(key);
+    }
+
+    @Override
+    public Entry<Range<K>, V> getEntry(K key) {
+      this.lookups += 1;
+      return this.delegate.getEntry(key);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, Entry<Range<? extends K>, ? extends V>> mappingFunction) {
+      this.lookups += 1;
+      return this.delegate.computeIfAbsent(key, mappingFunction);
+    }
+
+    @Override
+    public void put(K low, K high, V value) {
+      this.delegate.put(low, high, value);
+    }
+
+    @Override
+    public V putIfAbsent(K low, K high, V value) {
+      return this.delegate.putIfAbsent(low, high, value);
+    }
+
+  }
+
+}
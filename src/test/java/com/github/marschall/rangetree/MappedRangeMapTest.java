@@ -0,0 +1,143 @@
+package com.github.marschall.rangetree;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.github.marschall.rangetree.key.U96;
+
+class MappedRangeMapTest {
+
+  @TempDir
+  Path temporaryFolder;
+
+  @Test
+  void writeAndOpen() throws IOException {
+    LLRBRangeTree<Integer, String> tree = new LLRBRangeTree<>();
+    for (int i = 0; i < 10_000; i++) {
+      // only few distinct values
+      tree.put(i * 10, i * 10 + 8, "Range " + (i % 100));
+    }
+    tree.put(-10, -1, null);
+    Path file = this.temporaryFolder.resolve("integers.bin");
+    MappedRangeMap.write(file, tree, KeyCodec.integers(), MappedRangeMapTest::encode);
+
+    MappedRangeMap<Integer, String> map = MappedRangeMap.open(file, KeyCodec.integers(), MappedRangeMapTest::decode);
+
+    assertEquals(10_001, map.size());
+    assertEquals(new Range<>(-10, -1), map.getEntry(-5).getKey());
+    assertNull(map.getEntry(-5).getValue());
+    assertEquals(new Range<>(20, 28), map.getEntry(25).getKey());
+    assertNull(map.getEntry(29));
+    assertNull(map.get(-11));
+    assertNull(map.get(-5));
+    for (int i = 0; i < 10_000; i++) {
+      assertEquals("Range " + (i % 100), map.get(i * 10));
+      assertEquals("Range " + (i % 100), map.get(i * 10 + 8));
+      assertNull(map.get(i * 10 + 9));
+    }
+  }
+
+  @Test
+  void u96() throws IOException {
+    LLRBRangeTree<U96, String> tree = new LLRBRangeTree<>();
+    tree.put(U96.valueOfPadded("411111", 19, 0), U96.valueOfPadded("411111", 19, 9), "Issuer 1");
+    tree.put(U96.valueOf("999999999999999999"), U96.valueOf("1000000000000000000"), "Issuer 2");
+    Path file = this.temporaryFolder.resolve("u96.bin");
+    MappedRangeMap.write(file, tree, U96.keyCodec(), MappedRangeMapTest::encode);
+
+    RangeMap<U96, String> map = MappedRangeMap.open(file, U96.keyCodec(), MappedRangeMapTest::decode);
+
+    assertEquals("Issuer 1", map.get(U96.valueOf("4111111111111111111")));
+    assertNull(map.get(U96.valueOf("4111120000000000000")));
+    assertEquals("Issuer 2", map.get(U96.valueOf("999999999999999999")));
+    assertEquals("Issuer 2", map.get(U96.valueOf("1000000000000000000")));
+    assertNull(map.get(U96.valueOf("1000000000000000001")));
+    assertEquals(new Range<>(U96.valueOf("999999999999999999"), U96.valueOf("1000000000000000000")),
+        map.getEntry(U96.valueOf("999999999999999999")).getKey());
+  }
+
+  @Test
+  void empty() throws IOException {
+    Path file = this.temporaryFolder.resolve("empty.bin");
+    MappedRangeMap.write(file, new LLRBRangeTree<Long, String>(), KeyCodec.longs(), MappedRangeMapTest::encode);
+
+    MappedRangeMap<Long, String> map = MappedRangeMap.open(file, KeyCodec.longs(), MappedRangeMapTest::decode);
+
+    assertEquals(0, map.size());
+    assertNull(map.get(1L));
+  }
+
+  @Test
+  void invalidFile() throws IOException {
+    Path file = this.temporaryFolder.resolve("invalid.bin");
+    Files.write(file, "not a range table".getBytes(UTF_8));
+    assertThrows(IllegalArgumentException.class, () -> MappedRangeMap.open(file, KeyCodec.longs(), MappedRangeMapTest::decode));
+
+    LLRBRangeTree<Long, String> tree = new LLRBRangeTree<>();
+    tree.put(1L, 2L, "Range 1");
+    MappedRangeMap.write(file, tree, KeyCodec.longs(), MappedRangeMapTest::encode);
+    assertThrows(IllegalArgumentException.class, () -> MappedRangeMap.open(file, KeyCodec.integers(), MappedRangeMapTest::decode));
+  }
+
+  @Test
+  void immutable() throws IOException {
+    Path file = this.temporaryFolder.resolve("immutable.bin");
+    MappedRangeMap.write(file, new LLRBRangeTree<Long, String>(), KeyCodec.longs(), MappedRangeMapTest::encode);
+    RangeMap<Long, String> map = MappedRangeMap.open(file, KeyCodec.longs(), MappedRangeMapTest::decode);
+
+    assertThrows(UnsupportedOperationException.class, () -> map.clear());
+    assertThrows(UnsupportedOperationException.class, () -> map.put(20L, 29L, "Range 2"));
+    assertThrows(UnsupportedOperationException.class, () -> map.putIfAbsent(20L, 29L, "Range 2"));
+    assertThrows(UnsupportedOperationException.class, () -> map.computeIfAbsent(20L, key -> null));
+  }
+
+  @Test
+  void codecWithoutRead() throws IOException {
+    KeyCodec<Long> longs = KeyCodec.longs();
+    KeyCodec<Long> codec = new KeyCodec<Long>() {
+
+      @Override
+      public int width() {
+        return longs.width();
+      }
+
+      @Override
+      public void write(Long key, ByteBuffer buffer) {
+        longs.write(key, buffer);
+      }
+
+      @Override
+      public int compare(ByteBuffer buffer, int index, Long key) {
+        return longs.compare(buffer, index, key);
+      }
+
+    };
+    LLRBRangeTree<Long, String> tree = new LLRBRangeTree<>();
+    tree.put(1L, 2L, "Range 1");
+    Path file = this.temporaryFolder.resolve("write-only.bin");
+    MappedRangeMap.write(file, tree, codec, MappedRangeMapTest::encode);
+    RangeMap<Long, String> map = MappedRangeMap.open(file, codec, MappedRangeMapTest::decode);
+
+    assertEquals("Range 1", map.get(1L));
+    assertThrows(UnsupportedOperationException.class, () -> map.getEntry(1L));
+  }
+
+  private static byte[] encode(String s) {
+    return s.getBytes(UTF_8);
+  }
+
+  private static String decode(ByteBuffer buffer) {
+    return UTF_8.decode(buffer).toString();
+  }
+
+}
@@ -0,0 +1,349 @@
+package com.github.marschall.rangetree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PersistentLLRBRangeTreeTest {
+
+  private RangeMap<Integer, String> tree;
+
+  @BeforeEach
+  void setUp() {
+    this.tree = new PersistentLLRBRangeTree<>();
+  }
+
+  @Test
+  void oneNode() {
+    this.tree.put(10, 19, "Range 1");
+
+    assertNull(this.tree.get(9));
+    assertEquals("Range 1", this.tree.get(10));
+    assertEquals("Range 1", this.tree.get(19));
+    assertNull(this.tree.get(20));
+  }
+
+  @Test
+  void getEntry() {
+    this.tree.put(10, 19, "Range 1");
+    this.tree.put(30, 39, "Range 3");
+
+    assertNull(this.tree.getEntry(20));
+    assertEquals(new Range<>(10, 19), this.tree.getEntry(10).getKey());
+    assertEquals("Range 3", this.tree.getEntry(39).getValue());
+  }
+
+  @Test
+  void clear() {
+    this.tree.put(10, 19, "Range 1");
+
+    assertEquals("Range 1", this.tree.get(10));
+    this.tree.clear();
+    assertNull(this.tree.get(10));
+  }
+
+  @Test
+  void wrongKeyOrder() {
+    assertThrows(IllegalArgumentException.class, () -> this.tree.put(20, 10, "Range 1"));
+  }
+
+  @Test
+  void overlap() {
+    this.tree.put(10, 19, "Range 1");
+
+    assertThrows(IllegalArgumentException.class, () -> this.tree.put(1, 10, "Range 2"));
+    assertThrows(IllegalArgumentException.class, () -> this.tree.put(10, 12, "Range 2"));
+    assertThrows(IllegalArgumentException.class, () -> this.tree.put(12, 14, "Range 2"));
+    assertThrows(IllegalArgumentException.class, () -> this.tree.put(19, 22, "Range 2"));
+  }
+
+  @Test
+  void computeIfAbsent() {
+    this.tree.put(10, 19, "Range 1");
+
+    assertEquals("Range 1", this.tree.computeIfAbsent(10, key ->
+    new SimpleImmutableEntry<>(new Range<>(10, 19), "Range 2")
+        ));
+
+    assertEquals("Range 3", this.tree.computeIfAbsent(20, key ->
+    new SimpleImmutableEntry<>(new Range<>(20, 29), "Range 3")
+        ));
+
+    assertEquals("Range 3", this.tree.get(29));
+
+    assertNull(this.tree.computeIfAbsent(30, key ->
+    new SimpleImmutableEntry<>(new Range<>(30, 39), null)
+        ));
+    // would throw an exception if already mapped
+    this.tree.put(30, 39, "Range 4");
+  }
+
+  @Test
+  void putIfAbsent() {
+    this.tree.put(10, 19, "Range 1");
+    assertEquals("Range 1", this.tree.putIfAbsent(10, 19, "Range 2"));
+    assertEquals("Range 1", this.tree.putIfAbsent(12, 16, "Range 2"));
+    assertNull(this.tree.putIfAbsent(20, 29, "Range 3"));
+
+    assertEquals("Range 1", this.tree.get(10));
+    assertEquals("Range 3", this.tree.get(20));
+
+    assertThrows(IllegalArgumentException.class, () -> this.tree.putIfAbsent(1, 10, "Range 1"));
+    assertThrows(IllegalArgumentException.class, () -> this.tree.putIfAbsent(19, 20, "Range 1"));
+  }
+
+  @Test
+  void manyPut() {
+    for (int i = 0; i < 100; i++) {
+      this.tree.put(i * 10, i * 10 + 8, "Range " + i);
+    }
+    for (int i = 0; i < 100; i++) {
+      assertEquals("Range " + i, this.tree.get(i * 10));
+      assertEquals("Range " + i, this.tree.get(i * 10 + 8));
+      assertNull(this.tree.get(i * 10 + 9));
+    }
+  }
+
+  @Test
+  void concurrentReadsAndWrites() throws Exception {
+    int threads = 4;
+    int rangesPerThread = 1_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < rangesPerThread; i++) {
+            int low = (i * threads + thread) * 10;
+            this.tree.put(low, low + 8, "Range " + low);
+            assertEquals("Range " + low, this.tree.get(low + 4));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    for (int i = 0; i < threads * rangesPerThread; i++) {
+      assertEquals("Range " + (i * 10), this.tree.get(i * 10 + 8));
+      assertNull(this.tree.get(i * 10 + 9));
+    }
+  }
+
+  @Test
+  void concurrentMissesLoadOnce() throws Exception {
+    int threads = 4;
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<String>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(executor.submit(() -> this.tree.computeIfAbsent(15, key -> {
+          loads.incrementAndGet();
+          loading.countDown();
+          await(release);
+          return new SimpleImmutableEntry<>(new Range<>(10, 19), "Range 1");
+        })));
+      }
+      loading.await();
+      release.countDown();
+      for (Future<String> future : futures) {
+        assertEquals("Range 1", future.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  void concurrentMissesOfDifferentKeysLoadEach() throws Exception {
+    // loads are coalesced by key, the range is only known after loading
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch loading = new CountDownLatch(2);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      List<Future<String>> futures = new ArrayList<>();
+      for (int key = 14; key <= 15; key++) {
+        int k = key;
+        futures.add(executor.submit(() -> this.tree.computeIfAbsent(k, ignored -> {
+          int load = loads.incrementAndGet();
+          loading.countDown();
+          await(release);
+          return new SimpleImmutableEntry<>(new Range<>(10, 19), "Load " + load);
+        })));
+      }
+      loading.await();
+      release.countDown();
+      // the first range inserted wins
+      String first = futures.get(0).get();
+      assertEquals(first, futures.get(1).get());
+      assertEquals(first, this.tree.get(10));
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(2, loads.get());
+  }
+
+  @Test
+  void failedLoad() throws Exception {
+    CountDownLatch loading = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      Future<String> first = executor.submit(() -> this.tree.computeIfAbsent(15, key -> {
+        loading.countDown();
+        await(release);
+        throw new IllegalStateException("load failed");
+      }));
+      loading.await();
+      Future<String> second = executor.submit(() -> this.tree.computeIfAbsent(15, key -> {
+        throw new IllegalStateException("load failed");
+      }));
+      release.countDown();
+      for (Future<String> future : Arrays.asList(first, second)) {
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertEquals(IllegalStateException.class, e.getCause().getClass());
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertNull(this.tree.get(15));
+    assertEquals("Range 1", this.tree.computeIfAbsent(15, key -> new SimpleImmutableEntry<>(new Range<>(10, 19), "Range 1")));
+  }
+
+  @Test
+  void computeIfAbsentAsync() throws Exception {
+    AtomicInteger loads = new AtomicInteger();
+    CompletableFuture<Entry<Range<? extends Integer>, String>> loaded = new CompletableFuture<>();
+    PersistentLLRBRangeTree<Integer, String> asyncTree = new PersistentLLRBRangeTree<>(Runnable::run);
+
+    CompletableFuture<String> first = asyncTree.computeIfAbsentAsync(15, key -> {
+      loads.incrementAndGet();
+      return loaded;
+    });
+    CompletableFuture<String> second = asyncTree.computeIfAbsentAsync(12, key -> {
+      loads.incrementAndGet();
+      return loaded;
+    });
+    CompletableFuture<String> third = asyncTree.computeIfAbsentAsync(15, key -> {
+      loads.incrementAndGet();
+      return loaded;
+    });
+    assertFalse(first.isDone());
+    assertEquals(2, loads.get());
+
+    loaded.complete(new SimpleImmutableEntry<>(new Range<>(10, 19), "Range 1"));
+    assertEquals("Range 1", first.get());
+    assertEquals("Range 1", second.get());
+    assertEquals("Range 1", third.get());
+    assertEquals("Range 1", asyncTree.get(19));
+
+    CompletableFuture<String> hit = asyncTree.computeIfAbsentAsync(10, key -> {
+      throw new AssertionError("should not load");
+    });
+    assertTrue(hit.isDone());
+    assertEquals("Range 1", hit.get());
+  }
+
+  @Test
+  void computeIfAbsentAsyncFailure() throws Exception {
+    CompletableFuture<Entry<Range<? extends Integer>, String>> loaded = new CompletableFuture<>();
+    PersistentLLRBRangeTree<Integer, String> asyncTree = new PersistentLLRBRangeTree<>(Runnable::run);
+
+    CompletableFuture<String> first = asyncTree.computeIfAbsentAsync(15, key -> loaded);
+    CompletableFuture<String> second = asyncTree.computeIfAbsentAsync(15, key -> loaded);
+    loaded.completeExceptionally(new IllegalStateException("load failed"));
+
+    for (CompletableFuture<String> future : Arrays.asList(first, second)) {
+      ExecutionException e = assertThrows(ExecutionException.class, future::get);
+      assertEquals(IllegalStateException.class, e.getCause().getClass());
+    }
+    assertNull(asyncTree.get(15));
+
+    CompletableFuture<String> retry = asyncTree.computeIfAbsentAsync(15,
+        key -> CompletableFuture.completedFuture(new SimpleImmutableEntry<>(new Range<>(10, 19), "Range 1")));
+    assertEquals("Range 1", retry.get());
+  }
+
+  @Test
+  void computeIfAbsentAsyncInsertError() throws Exception {
+    PersistentLLRBRangeTree<Integer, String> asyncTree = new PersistentLLRBRangeTree<>(Runnable::run);
+    Entry<Range<? extends Integer>, String> broken = new SimpleImmutableEntry<Range<? extends Integer>, String>(new Range<>(10, 19), "Range 1") {
+
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      public Range<? extends Integer> getKey() {
+        throw new AssertionError("broken entry");
+      }
+
+    };
+
+    CompletableFuture<String> future = asyncTree.computeIfAbsentAsync(15, key -> CompletableFuture.completedFuture(broken));
+    assertTrue(future.isDone());
+    ExecutionException e = assertThrows(ExecutionException.class, future::get);
+    assertEquals(AssertionError.class, e.getCause().getClass());
+
+    // the failed load has to be unregistered
+    CompletableFuture<String> retry = asyncTree.computeIfAbsentAsync(15,
+        key -> CompletableFuture.completedFuture(new SimpleImmutableEntry<>(new Range<>(10, 19), "Range 1")));
+    assertEquals("Range 1", retry.get());
+  }
+
+  @Test
+  void computeIfAbsentAsyncRejected() {
+    PersistentLLRBRangeTree<Integer, String> asyncTree = new PersistentLLRBRangeTree<>(command -> {
+      throw new RejectedExecutionException();
+    });
+    CompletableFuture<String> future = asyncTree.computeIfAbsentAsync(15,
+        key -> CompletableFuture.completedFuture(new SimpleImmutableEntry<>(new Range<>(10, 19), "Range 1")));
+    ExecutionException e = assertThrows(ExecutionException.class, future::get);
+    assertEquals(RejectedExecutionException.class, e.getCause().getClass());
+  }
+
+  @Test
+  void computeIfAbsentAsyncDefaultExecutor() throws Exception {
+    PersistentLLRBRangeTree<Integer, String> asyncTree = new PersistentLLRBRangeTree<>();
+    CompletableFuture<String> future = asyncTree.computeIfAbsentAsync(15,
+        key -> CompletableFuture.supplyAsync(() -> new SimpleImmutableEntry<>(new Range<>(10, 19), "Range 1")));
+    assertEquals("Range 1", future.get());
+    assertEquals("Range 1", asyncTree.get(10));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("interrupted", e);
+    }
+  }
+
+}
@@ -0,0 +1,99 @@
+package com.github.marschall.rangetree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.function.ToIntFunction;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.marschall.rangetree.key.U96;
+
+class PrefixIndexedRangeMapTest {
+
+  @Test
+  void copyOf() {
+    ToIntFunction<Long> prefix = PrefixIndexedRangeMap.longPrefix(4, 2);
+    LLRBRangeTree<Long, String> tree = new LLRBRangeTree<>();
+    // within a slot, spanning several slots, at slot boundaries
+    tree.put(1010L, 1019L, "Range 1");
+    tree.put(1050L, 1350L, "Range 2");
+    tree.put(1399L, 1400L, "Range 3");
+    tree.put(9990L, 9999L, "Range 4");
+    PrefixIndexedRangeMap<Long, String> map = PrefixIndexedRangeMap.copyOf(tree, prefix, 100);
+
+    assertEquals(4, map.size());
+    assertEquals(100, map.slots());
+    assertNull(map.get(0L));
+    assertNull(map.get(1009L));
+    assertEquals("Range 1", map.get(1010L));
+    assertEquals("Range 1", map.get(1019L));
+    assertNull(map.get(1020L));
+    assertEquals("Range 2", map.get(1050L));
+    assertEquals("Range 2", map.get(1200L));
+    assertEquals("Range 2", map.get(1350L));
+    assertNull(map.get(1351L));
+    assertEquals("Range 3", map.get(1399L));
+    assertEquals("Range 3", map.get(1400L));
+    assertNull(map.get(1401L));
+    assertNull(map.get(5000L));
+    assertEquals("Range 4", map.get(9999L));
+    assertNull(map.get(10000L));
+    assertNull(map.get(-1L));
+
+    assertEquals(new Range<>(1050L, 1350L), map.getEntry(1100L).getKey());
+    assertNull(map.getEntry(5000L));
+  }
+
+  @Test
+  void manyRanges() {
+    LLRBRangeTree<Long, String> tree = new LLRBRangeTree<>();
+    for (int i = 0; i < 1000; i++) {
+      tree.put(i * 7L, i * 7L + 4L, "Range " + i);
+    }
+    PrefixIndexedRangeMap<Long, String> map = PrefixIndexedRangeMap.copyOf(tree, PrefixIndexedRangeMap.longPrefix(4, 3), 1000);
+    for (int i = 0; i < 1000; i++) {
+      assertEquals("Range " + i, map.get(i * 7L));
+      assertEquals("Range " + i, map.get(i * 7L + 4L));
+      assertNull(map.get(i * 7L + 5L));
+      assertNull(map.get(i * 7L + 6L));
+    }
+  }
+
+  @Test
+  void u96() {
+    int length = 19;
+    LLRBRangeTree<U96, String> tree = new LLRBRangeTree<>();
+    tree.put(U96.valueOfPadded("400000", length, 0), U96.valueOfPadded("400000", length, 9), "Issuer 1");
+    tree.put(U96.valueOfPadded("51", length, 0), U96.valueOfPadded("55", length, 9), "Issuer 2");
+    PrefixIndexedRangeMap<U96, String> map = PrefixIndexedRangeMap.copyOf(tree, U96.prefix(length, 6), 1_000_000);
+
+    assertEquals("Issuer 1", map.get(U96.valueOf("4000001234567890123")));
+    assertNull(map.get(U96.valueOf("4000011234567890123")));
+    assertEquals("Issuer 2", map.get(U96.valueOf("5300001234567890123")));
+    assertNull(map.get(U96.valueOf("12345678901234567890")));
+  }
+
+  @Test
+  void invalidPrefix() {
+    LLRBRangeTree<Long, String> tree = new LLRBRangeTree<>();
+    tree.put(100L, 199L, "Range 1");
+    assertThrows(IllegalArgumentException.class, () -> PrefixIndexedRangeMap.copyOf(tree, PrefixIndexedRangeMap.longPrefix(3, 2), 5));
+    assertThrows(IllegalArgumentException.class, () -> PrefixIndexedRangeMap.copyOf(tree, key -> (int) ((199L - key) / 50L), 10));
+    assertThrows(IllegalArgumentException.class, () -> PrefixIndexedRangeMap.copyOf(tree, key -> 0, 0));
+    assertThrows(IllegalArgumentException.class, () -> PrefixIndexedRangeMap.longPrefix(19, 2));
+    assertThrows(IllegalArgumentException.class, () -> PrefixIndexedRangeMap.longPrefix(4, 5));
+  }
+
+  @Test
+  void immutable() {
+    PrefixIndexedRangeMap<Long, String> map = PrefixIndexedRangeMap.copyOf(new LLRBRangeTree<Long, String>(), key -> 0, 1);
+    assertNull(map.get(1L));
+    assertThrows(UnsupportedOperationException.class, () -> map.put(1L, 2L, "Range 1"));
+    assertThrows(UnsupportedOperationException.class, () -> map.putIfAbsent(1L, 2L, "Range 1"));
+    assertThrows(UnsupportedOperationException.class, () -> map.computeIfAbsent(1L, key -> null));
+    assertThrows(UnsupportedOperationException.class, map::clear);
+  }
+
+}
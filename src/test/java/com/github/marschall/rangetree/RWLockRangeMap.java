@@ -107,7 +107,7 @@ public final class RWLockRangeMap<K extends Comparable<? super K>, V> implements
 
     void unlock() {
       if (this.writeLock != null) {
-        this.writeLock.lock();
+        this.writeLock.unlock();
       }
     }
 
@@ -2,6 +2,7 @@ package com.github.marschall.rangetree;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.util.AbstractMap.SimpleImmutableEntry;
 
@@ -32,6 +33,12 @@ class RWLockRangeMapTest {
     assertEquals(VALUE, this.tree.get(19));
   }
 
+  @Test
+  void getEntryNotSupported() {
+    // does not override the default method
+    assertThrows(UnsupportedOperationException.class, () -> this.tree.getEntry(19));
+  }
+
   @Test
   @Disabled("FIXME")
   void computeIfAbsent() {
@@ -0,0 +1,321 @@
+package com.github.marschall.rangetree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class RangeCacheTest {
+
+  private RangeCache<Integer, String> cache;
+
+  @BeforeEach
+  void setUp() {
+    this.cache = RangeCache.<Integer, String>builder()
+        .maximumSize(3L)
+        .build();
+  }
+
+  @Test
+  void get() {
+    this.cache.put(10, 19, "Range 1");
+    assertEquals("Range 1", this.cache.get(10));
+    assertEquals("Range 1", this.cache.get(19));
+    assertNull(this.cache.get(20));
+  }
+
+  @Test
+  void getEntry() {
+    this.cache.put(10, 19, "Range 1");
+    assertEquals(new Range<>(10, 19), this.cache.getEntry(15).getKey());
+    assertEquals("Range 1", this.cache.getEntry(15).getValue());
+    assertNull(this.cache.getEntry(20));
+  }
+
+  @Test
+  void clear() {
+    this.cache.put(10, 19, "Range 1");
+    this.cache.clear();
+    assertNull(this.cache.get(10));
+    assertEquals(0, this.cache.size());
+    assertEquals(0L, this.cache.weightedSize());
+  }
+
+  @Test
+  void computeIfAbsent() {
+    assertEquals("Range 1", this.cache.computeIfAbsent(15, key -> new SimpleImmutableEntry<>(new Range<>(10, 19), "Range 1")));
+    assertEquals("Range 1", this.cache.computeIfAbsent(10, key -> {
+      throw new AssertionError("should not load");
+    }));
+    assertNull(this.cache.computeIfAbsent(25, key -> new SimpleImmutableEntry<>(new Range<>(20, 29), null)));
+    assertEquals(1, this.cache.size());
+  }
+
+  @Test
+  void putIfAbsent() {
+    assertNull(this.cache.putIfAbsent(10, 19, "Range 1"));
+    assertEquals("Range 1", this.cache.putIfAbsent(10, 19, "Range 2"));
+    assertEquals("Range 1", this.cache.putIfAbsent(12, 14, "Range 2"));
+    assertThrows(IllegalArgumentException.class, () -> this.cache.putIfAbsent(15, 25, "Range 2"));
+    assertEquals(1, this.cache.size());
+  }
+
+  @Test
+  void evictsNotAccessed() {
+    this.cache.put(10, 19, "Range 1");
+    this.cache.put(20, 29, "Range 2");
+    this.cache.put(30, 39, "Range 3");
+    assertEquals("Range 1", this.cache.get(10));
+    assertEquals("Range 3", this.cache.get(30));
+
+    this.cache.put(40, 49, "Range 4");
+    assertEquals(3, this.cache.size());
+    assertEquals(1L, this.cache.evictionCount());
+    assertNull(this.cache.get(20));
+    assertEquals("Range 1", this.cache.get(10));
+    assertEquals("Range 3", this.cache.get(30));
+    assertEquals("Range 4", this.cache.get(40));
+  }
+
+  @Test
+  void evictsAllAccessed() {
+    for (int i = 0; i < 3; i++) {
+      this.cache.put(i * 10, i * 10 + 9, "Range " + i);
+      this.cache.get(i * 10);
+    }
+    this.cache.put(30, 39, "Range 3");
+    assertEquals(3, this.cache.size());
+    assertEquals(1L, this.cache.evictionCount());
+  }
+
+  @Test
+  void manyRanges() {
+    for (int i = 0; i < 1000; i++) {
+      int low = i * 10;
+      String value = "Range " + i;
+      assertEquals(value, this.cache.computeIfAbsent(low + 5, key -> new SimpleImmutableEntry<>(new Range<>(low, low + 9), value)));
+      assertEquals(value, this.cache.get(low));
+    }
+    assertEquals(3, this.cache.size());
+    assertEquals(997L, this.cache.evictionCount());
+    assertNotNull(this.cache.get(9990));
+  }
+
+  @Test
+  void maximumWeight() {
+    RangeCache<Integer, String> weighted = RangeCache.<Integer, String>builder()
+        .maximumWeight(10L, (low, high, value) -> value.length())
+        .build();
+    weighted.put(10, 19, "12345");
+    weighted.put(20, 29, "1234");
+    assertEquals(9L, weighted.weightedSize());
+    weighted.put(30, 39, "12");
+    assertEquals(2, weighted.size());
+    assertNull(weighted.get(10));
+    assertEquals(6L, weighted.weightedSize());
+
+    weighted.put(40, 49, "12345678901");
+    assertEquals(0, weighted.size());
+    assertEquals(0L, weighted.weightedSize());
+  }
+
+  @Test
+  void negativeWeight() {
+    RangeCache<Integer, String> weighted = RangeCache.<Integer, String>builder()
+        .maximumWeight(10L, (low, high, value) -> -1)
+        .build();
+    assertThrows(IllegalArgumentException.class, () -> weighted.put(10, 19, "Range 1"));
+  }
+
+  @Test
+  void invalidBuilder() {
+    assertThrows(IllegalStateException.class, () -> RangeCache.builder().build());
+    assertThrows(IllegalArgumentException.class, () -> RangeCache.builder().maximumSize(-1L));
+    assertThrows(IllegalStateException.class, () -> RangeCache.builder().maximumSize(1L).maximumSize(1L));
+  }
+
+  @Test
+  void expireAfterWrite() {
+    AtomicLong ticker = new AtomicLong();
+    RangeCache<Integer, String> expiring = RangeCache.<Integer, String>builder()
+        .expireAfterWrite(Duration.ofSeconds(10L))
+        .ticker(ticker::get)
+        .build();
+    expiring.put(10, 19, "Range 1");
+    ticker.set(TimeUnit.SECONDS.toNanos(9L));
+    assertEquals("Range 1", expiring.get(15));
+    ticker.set(TimeUnit.SECONDS.toNanos(10L));
+    assertNull(expiring.get(15));
+    assertNull(expiring.getEntry(15));
+    assertEquals(0, expiring.size());
+
+    // an expired range does not block inserting an overlapping one
+    expiring.put(10, 19, "Range 1");
+    ticker.set(TimeUnit.SECONDS.toNanos(20L));
+    assertEquals("Range 2", expiring.computeIfAbsent(15, key -> new SimpleImmutableEntry<>(new Range<>(12, 17), "Range 2")));
+    assertNull(expiring.putIfAbsent(18, 19, "Range 3"));
+  }
+
+  @Test
+  void expireIncrementally() {
+    AtomicLong ticker = new AtomicLong();
+    RangeCache<Integer, String> expiring = RangeCache.<Integer, String>builder()
+        .expireAfterWrite(Duration.ofSeconds(10L))
+        .ticker(ticker::get)
+        .build();
+    for (int i = 0; i < 100; i++) {
+      expiring.put(i * 10, i * 10 + 9, "Range " + i);
+    }
+    ticker.set(TimeUnit.SECONDS.toNanos(10L));
+    expiring.put(1000, 1009, "Range 100");
+    // only a batch is removed per operation
+    assertEquals(100 - 16 + 1, expiring.size());
+    for (int i = 0; i < 10; i++) {
+      expiring.put(2000 + i * 10, 2000 + i * 10 + 9, "Range " + i);
+    }
+    assertEquals(11, expiring.size());
+    assertEquals("Range 100", expiring.get(1000));
+  }
+
+  @Test
+  void refreshAfterWrite() {
+    AtomicLong ticker = new AtomicLong();
+    AtomicInteger loads = new AtomicInteger();
+    RangeCache<Integer, String> refreshing = RangeCache.<Integer, String>builder()
+        .maximumSize(10L)
+        .expireAfterWrite(Duration.ofSeconds(10L))
+        .refreshAfterWrite(Duration.ofSeconds(5L))
+        .executor(Runnable::run)
+        .ticker(ticker::get)
+        .build();
+    Function<Integer, Entry<Range<? extends Integer>, ? extends String>> loader =
+        key -> new SimpleImmutableEntry<>(new Range<>(10, 19), "Load " + loads.incrementAndGet());
+
+    assertEquals("Load 1", refreshing.computeIfAbsent(15, loader));
+    ticker.set(TimeUnit.SECONDS.toNanos(4L));
+    assertEquals("Load 1", refreshing.get(15));
+    assertEquals(1, loads.get());
+
+    ticker.set(TimeUnit.SECONDS.toNanos(5L));
+    // returns the current value and triggers a reload
+    assertEquals("Load 1", refreshing.get(15));
+    assertEquals(2, loads.get());
+    assertEquals("Load 2", refreshing.get(15));
+
+    // the reload reset the expiry
+    ticker.set(TimeUnit.SECONDS.toNanos(14L));
+    assertEquals("Load 2", refreshing.computeIfAbsent(15, loader));
+    assertEquals("Load 3", refreshing.get(15));
+    assertEquals(1, refreshing.size());
+  }
+
+  @Test
+  void failedRefreshKeepsValue() {
+    AtomicLong ticker = new AtomicLong();
+    AtomicInteger loads = new AtomicInteger();
+    RangeCache<Integer, String> refreshing = RangeCache.<Integer, String>builder()
+        .maximumSize(10L)
+        .refreshAfterWrite(Duration.ofSeconds(5L))
+        .executor(Runnable::run)
+        .ticker(ticker::get)
+        .build();
+    assertEquals("Range 1", refreshing.computeIfAbsent(15, key -> {
+      if (loads.incrementAndGet() > 1) {
+        throw new IllegalStateException("load failed");
+      }
+      return new SimpleImmutableEntry<>(new Range<>(10, 19), "Range 1");
+    }));
+    refreshing.put(20, 29, "Range 2");
+
+    ticker.set(TimeUnit.SECONDS.toNanos(5L));
+    assertEquals("Range 1", refreshing.get(15));
+    assertEquals("Range 1", refreshing.get(15));
+    assertEquals(3, loads.get());
+    // ranges that were not loaded are not refreshed
+    assertEquals("Range 2", refreshing.get(25));
+  }
+
+  @Test
+  void refreshFailingWithError() {
+    AtomicLong ticker = new AtomicLong();
+    AtomicInteger loads = new AtomicInteger();
+    RangeCache<Integer, String> refreshing = RangeCache.<Integer, String>builder()
+        .maximumSize(10L)
+        .refreshAfterWrite(Duration.ofSeconds(5L))
+        .executor(Runnable::run)
+        .ticker(ticker::get)
+        .build();
+    assertEquals("Load 1", refreshing.computeIfAbsent(15, key -> {
+      int load = loads.incrementAndGet();
+      if (load == 2) {
+        throw new AssertionError("load failed");
+      }
+      return new SimpleImmutableEntry<>(new Range<>(10, 19), "Load " + load);
+    }));
+
+    ticker.set(TimeUnit.SECONDS.toNanos(5L));
+    // the executor runs the reload on the calling thread
+    assertThrows(AssertionError.class, () -> refreshing.get(15));
+    // the failed refresh does not prevent later ones
+    assertEquals("Load 1", refreshing.get(15));
+    assertEquals(3, loads.get());
+    assertEquals("Load 3", refreshing.get(15));
+  }
+
+  @Test
+  void invalidDurations() {
+    assertThrows(IllegalArgumentException.class, () -> RangeCache.builder().expireAfterWrite(Duration.ZERO));
+    assertThrows(IllegalArgumentException.class, () -> RangeCache.builder().refreshAfterWrite(Duration.ofSeconds(-1L)));
+    assertThrows(IllegalStateException.class, () -> RangeCache.builder().refreshAfterWrite(Duration.ofSeconds(1L)).build());
+  }
+
+  @Test
+  void concurrentReadsAndWrites() throws Exception {
+    RangeCache<Integer, String> concurrent = RangeCache.<Integer, String>builder()
+        .maximumSize(500L)
+        .build();
+    int threads = 4;
+    int rangesPerThread = 1_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < rangesPerThread; i++) {
+            int low = (i * threads + thread) * 10;
+            String value = "Range " + low;
+            assertEquals(value, concurrent.computeIfAbsent(low + 4, key -> new SimpleImmutableEntry<>(new Range<>(low, low + 8), value)));
+            String cached = concurrent.get(low + 8);
+            if (cached != null) {
+              assertEquals(value, cached);
+            }
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(500, concurrent.size());
+  }
+
+}
@@ -0,0 +1,104 @@
+package com.github.marschall.rangetree;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import org.junit.jupiter.api.Test;
+
+import com.github.marschall.rangetree.key.U96;
+
+class RangeTableLoaderTest {
+
+  private static final FieldParser<String> STRINGS = FieldParser.strings(US_ASCII);
+
+  @Test
+  void delimited() throws IOException {
+    RangeTableLoader<U96, String> loader = RangeTableLoader.delimited(',', U96.paddedParser(19, 0), STRINGS);
+    LLRBRangeTree<U96, String> tree = loader.load(channel(
+        "400000,400099,Issuer 1\n"
+        + "\n"
+        + "400100 , 400199 , Issuer 2 ,ignored\r\n"
+        + "5,5999,Issuer 3"));
+
+    assertEquals(3, tree.size());
+    assertEquals("Issuer 1", tree.get(U96.valueOfPadded("400050", 19, 0)));
+    assertEquals("Issuer 2", tree.get(U96.valueOfPadded("4001", 19, 0)));
+    assertEquals("Issuer 3", tree.get(U96.valueOfPadded("59", 19, 0)));
+    assertNull(tree.get(U96.valueOfPadded("3", 19, 0)));
+  }
+
+  @Test
+  void fixedWidth() throws IOException {
+    RangeTableLoader<U96, String> loader = RangeTableLoader.fixedWidth(8, U96.parser(), STRINGS);
+    LLRBRangeTree<U96, String> tree = loader.load(channel(
+        "1000    1999    Issuer 1\n"
+        + "20000000200000001Issuer 2\n"));
+
+    assertEquals(2, tree.size());
+    assertEquals("Issuer 1", tree.get(U96.valueOf("1500")));
+    assertEquals("1Issuer 2", tree.get(U96.valueOf("20000000")));
+  }
+
+  @Test
+  void smallBuffer() throws IOException {
+    StringBuilder file = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      file.append(i * 10).append(';').append(i * 10 + 9).append(";Range ").append(i).append('\n');
+    }
+    RangeTableLoader<U96, String> loader = RangeTableLoader.<U96, String>delimited(';', U96.parser(), STRINGS)
+        .withBufferSize(32);
+    LLRBRangeTree<U96, String> tree = loader.load(channel(file.toString()));
+
+    assertEquals(1000, tree.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals("Range " + i, tree.get(U96.valueOf(Integer.toString(i * 10 + 5))));
+    }
+  }
+
+  @Test
+  void lineLongerThanBuffer() {
+    RangeTableLoader<U96, String> loader = RangeTableLoader.<U96, String>delimited(',', U96.parser(), STRINGS)
+        .withBufferSize(16);
+    assertThrows(IllegalArgumentException.class, () -> loader.load(channel("1,2,a very long value\n")));
+  }
+
+  @Test
+  void builder() throws IOException {
+    RangeTableLoader<U96, String> loader = RangeTableLoader.delimited(',', U96.parser(), STRINGS);
+    LLRBRangeTree.Builder<U96, String> builder = LLRBRangeTree.builder(U96.adjacencyTester());
+    LLRBRangeTree<U96, String> tree = loader.load(channel("10,19,Issuer 1\n20,29,Issuer 1\n"), builder).build();
+    assertEquals(1, tree.size());
+  }
+
+  @Test
+  void invalidLines() {
+    RangeTableLoader<U96, String> loader = RangeTableLoader.delimited(',', U96.parser(), STRINGS);
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> loader.load(channel("10,19,Issuer 1\n20,2x,Issuer 2\n")));
+    assertEquals("invalid line: 2", e.getMessage());
+    assertThrows(IllegalArgumentException.class, () -> loader.load(channel("10,19\n")));
+    // not sorted
+    assertThrows(IllegalArgumentException.class, () -> loader.load(channel("20,29,Issuer 2\n10,19,Issuer 1\n")));
+
+    RangeTableLoader<U96, String> fixedWidth = RangeTableLoader.fixedWidth(4, U96.parser(), STRINGS);
+    assertThrows(IllegalArgumentException.class, () -> fixedWidth.load(channel("1000200\n")));
+  }
+
+  @Test
+  void invalidConfiguration() {
+    assertThrows(IllegalArgumentException.class, () -> RangeTableLoader.delimited('\n', U96.parser(), STRINGS));
+    assertThrows(IllegalArgumentException.class, () -> RangeTableLoader.fixedWidth(0, U96.parser(), STRINGS));
+    assertThrows(IllegalArgumentException.class, () -> U96.paddedParser(28, 0));
+  }
+
+  private static ReadableByteChannel channel(String s) {
+    return Channels.newChannel(new ByteArrayInputStream(s.getBytes(US_ASCII)));
+  }
+
+}
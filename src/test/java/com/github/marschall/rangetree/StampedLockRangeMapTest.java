@@ -0,0 +1,110 @@
+package com.github.marschall.rangetree;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class StampedLockRangeMapTest {
+
+  private static final String VALUE = "Range 1";
+
+  private RangeMap<Integer, String> tree;
+
+  @BeforeEach
+  void setUp() {
+    this.tree = new StampedLockRangeMap<Integer, String>(new LLRBRangeTree<>());
+    this.tree.put(10, 19, VALUE);
+  }
+
+  @Test
+  void clear() {
+    this.tree.clear();
+    assertNull(this.tree.get(15));
+  }
+
+  @Test
+  void get() {
+    assertEquals(VALUE, this.tree.get(19));
+  }
+
+  @Test
+  void getEntry() {
+    assertEquals(new Range<>(10, 19), this.tree.getEntry(15).getKey());
+    assertEquals(VALUE, this.tree.getEntry(15).getValue());
+    assertNull(this.tree.getEntry(20));
+  }
+
+  @Test
+  void computeIfAbsent() {
+    assertEquals(VALUE, this.tree.computeIfAbsent(19, key -> null));
+    assertEquals("Range 2", this.tree.computeIfAbsent(20, key -> new SimpleImmutableEntry<>(new Range<>(20, 29), "Range 2")));
+    assertEquals("Range 2", this.tree.get(29));
+  }
+
+  @Test
+  void put() {
+    this.tree.put(20, 29, "Range 2");
+    assertEquals("Range 2", this.tree.get(21));
+  }
+
+  @Test
+  void putIfAbsent() {
+    assertEquals(VALUE, this.tree.putIfAbsent(10, 19, "Range 2"));
+    assertNull(this.tree.putIfAbsent(20, 29, "Range 2"));
+  }
+
+  @Test
+  void putIfAbsentExistingRangeIsRead() {
+    InstrumentedRangeMap<Integer, String> delegate = new InstrumentedRangeMap<>(new LLRBRangeTree<Integer, String>());
+    RangeMap<Integer, String> map = new StampedLockRangeMap<>(delegate);
+    map.put(10, 19, VALUE);
+
+    assertEquals(VALUE, map.putIfAbsent(10, 19, "Range 2"));
+    // answered by getEntry, the delegate was not asked to insert
+    assertEquals(1L, delegate.snapshot().getHits());
+    assertEquals(0L, delegate.snapshot().getPutIfAbsentConflicts());
+
+    // not exactly the existing range, needs the write lock
+    assertEquals(VALUE, map.putIfAbsent(10, 15, "Range 2"));
+    assertEquals(1L, delegate.snapshot().getPutIfAbsentConflicts());
+    assertNull(map.putIfAbsent(20, 29, "Range 2"));
+    assertEquals("Range 2", map.get(25));
+  }
+
+  @Test
+  void concurrentReadsAndWrites() throws Exception {
+    int threads = 4;
+    int rangesPerThread = 1_000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        int thread = t;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < rangesPerThread; i++) {
+            int low = 100 + (i * threads + thread) * 10;
+            String value = "Range " + low;
+            assertEquals(value, this.tree.computeIfAbsent(low + 4, key -> new SimpleImmutableEntry<>(new Range<>(low, low + 8), value)));
+            assertEquals(value, this.tree.get(low + 8));
+            assertEquals(VALUE, this.tree.get(15));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
@@ -29,6 +29,13 @@ class SynchronizedRangeMapTest {
     assertEquals(VALUE, this.tree.get(19));
   }
 
+  @Test
+  void getEntry() {
+    assertEquals(new Range<>(10, 19), this.tree.getEntry(15).getKey());
+    assertEquals(VALUE, this.tree.getEntry(15).getValue());
+    assertNull(this.tree.getEntry(20));
+  }
+
   @Test
   void computeIfAbsent() {
     assertEquals(VALUE, this.tree.computeIfAbsent(19, key -> null));
@@ -0,0 +1,79 @@
+package com.github.marschall.rangetree.key;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map.Entry;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.marschall.rangetree.Range;
+
+class U96RangeMapTest {
+
+  private U96RangeMap<String> map;
+
+  @BeforeEach
+  void setUp() {
+    this.map = U96RangeMap.<String>builder()
+        .add(U96.valueOf("999999999999999999"), U96.valueOf("1000000000000000000"), "Issuer 3")
+        .add(U96.valueOfPadded("411111", 19, 0), U96.valueOfPadded("411111", 19, 9), "Issuer 1")
+        .add(U96.valueOfPadded("4111120", 19, 0), U96.valueOfPadded("4111121", 19, 9), "Issuer 2")
+        .build();
+  }
+
+  @Test
+  void get() {
+    assertEquals(3, this.map.size());
+    assertNull(this.map.get(U96.valueOf("4111109999999999999")));
+    assertEquals("Issuer 1", this.map.get(U96.valueOf("4111110000000000000")));
+    assertEquals("Issuer 1", this.map.get(U96.valueOf("4111111111111111111")));
+    assertEquals("Issuer 1", this.map.get(U96.valueOf("4111119999999999999")));
+    assertEquals("Issuer 2", this.map.get(U96.valueOf("4111120000000000000")));
+    assertEquals("Issuer 2", this.map.get(U96.valueOf("4111121999999999999")));
+    assertNull(this.map.get(U96.valueOf("4111122000000000000")));
+    assertEquals("Issuer 3", this.map.get(U96.valueOf("999999999999999999")));
+    assertEquals("Issuer 3", this.map.get(U96.valueOf("1000000000000000000")));
+    assertNull(this.map.get(U96.valueOf("1000000000000000001")));
+  }
+
+  @Test
+  void getEntry() {
+    Entry<Range<U96>, String> entry = this.map.getEntry(U96.valueOf("4111121000000000000"));
+    assertEquals(new Range<>(U96.valueOfPadded("4111120", 19, 0), U96.valueOfPadded("4111121", 19, 9)), entry.getKey());
+    assertEquals("Issuer 2", entry.getValue());
+    assertEquals(U96.valueOf("1000000000000000000"), this.map.getEntry(U96.valueOf("1000000000000000000")).getKey().getHigh());
+    assertNull(this.map.getEntry(U96.valueOf("4111122000000000000")));
+  }
+
+  @Test
+  void getCharSequence() {
+    assertEquals("Issuer 1", this.map.get("4111111111111111111", 0, 19));
+    assertEquals("Issuer 1", this.map.get("PAN:4111111111111111111;", 4, 23));
+    assertEquals("Issuer 2", this.map.get(new StringBuilder("4111121999999999999"), 0, 19));
+    assertNull(this.map.get("4111122000000000000", 0, 19));
+    assertEquals("Issuer 3", this.map.get("999999999999999999", 0, 18));
+    assertEquals("Issuer 3", this.map.get("1000000000000000000", 0, 19));
+  }
+
+  @Test
+  void getCharSequenceInvalid() {
+    assertThrows(NullPointerException.class, () -> this.map.get(null, 0, 1));
+    assertThrows(IllegalArgumentException.class, () -> this.map.get("", 0, 0));
+    assertThrows(IllegalArgumentException.class, () -> this.map.get("-1", 0, 2));
+    assertThrows(IllegalArgumentException.class, () -> this.map.get("1234567890123456789012345678", 0, 28));
+    assertThrows(IndexOutOfBoundsException.class, () -> this.map.get("123", 1, 4));
+  }
+
+  @Test
+  void immutable() {
+    U96 key = U96.valueOf("1");
+    assertThrows(UnsupportedOperationException.class, () -> this.map.clear());
+    assertThrows(UnsupportedOperationException.class, () -> this.map.put(key, key, "Issuer 4"));
+    assertThrows(UnsupportedOperationException.class, () -> this.map.putIfAbsent(key, key, "Issuer 4"));
+    assertThrows(UnsupportedOperationException.class, () -> this.map.computeIfAbsent(key, k -> null));
+  }
+
+}
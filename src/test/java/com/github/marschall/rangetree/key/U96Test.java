@@ -6,12 +6,19 @@ import static org.hamcrest.Matchers.comparesEqualTo;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.ToIntFunction;
+
 import org.junit.jupiter.api.Test;
 
+import com.github.marschall.rangetree.DiscreteDomain;
+
 class U96Test {
 
   @Test
@@ -52,6 +59,17 @@ class U96Test {
     assertThat(smaller, not(isAdjacentTo(smaller)));
   }
 
+  @Test
+  void discreteDomain() {
+    DiscreteDomain<U96> domain = U96.discreteDomain();
+    assertEquals(U96.valueOf("2000000000000000000"), domain.next(U96.valueOf("1999999999999999999")));
+    assertEquals(U96.valueOf("1999999999999999999"), domain.previous(U96.valueOf("2000000000000000000")));
+    assertEquals(U96.valueOf("2000000000000000001"), domain.next(U96.valueOf("2000000000000000000")));
+    assertEquals(U96.valueOf("1"), domain.previous(U96.valueOf("2")));
+    assertThrows(ArithmeticException.class, () -> domain.previous(U96.valueOf("0")));
+    assertThrows(ArithmeticException.class, () -> domain.next(U96.valueOf("999999999999999999999999999")));
+  }
+
   @Test
   void parseSuccessfully() {
     assertParseRoundTrip("0");
@@ -78,6 +96,18 @@ class U96Test {
     assertEquals(U96.valueOf("123456789999999999999999999"), U96.valueOfPadded("123456789", 27, 9));
   }
 
+  @Test
+  void valueOfPaddedPlusSign() {
+    // the sign counts towards the length
+    assertEquals(U96.valueOf("4111110"), U96.valueOfPadded("+411111", 8, 0));
+    assertEquals(U96.valueOf("411111"), U96.valueOfPadded("+411111", 7, 9));
+    assertEquals(U96.valueOf("12345678999999999999999999"), U96.valueOfPadded("+123456789", 27, 9));
+    assertThrows(IllegalArgumentException.class, () -> U96.valueOfPadded("+1", 28, 0));
+    assertThrows(IllegalArgumentException.class, () -> U96.valueOfPadded("+411111", 6, 0));
+    assertThrows(IllegalArgumentException.class, () -> U96.valueOfPadded("+", 1, 0));
+    assertThrows(IllegalArgumentException.class, () -> U96.valueOfPadded("++1", 3, 0));
+  }
+
   @Test
   void valueOfPaddedIllegalArgumentException() {
     assertThrows(NullPointerException.class, () -> U96.valueOfPadded(null, 23, 0));
@@ -89,6 +119,84 @@ class U96Test {
     assertThrows(IllegalArgumentException.class, () -> U96.valueOfPadded("111", 2, 1));
   }
 
+  @Test
+  void valueOfCharSequence() {
+    assertEquals(U96.valueOf("12345678901234567890123"), U96.valueOf("PAN12345678901234567890123;", 3, 26));
+    assertEquals(U96.valueOf("0"), U96.valueOf(new StringBuilder("0"), 0, 1));
+    assertThrows(IllegalArgumentException.class, () -> U96.valueOf("PAN", 0, 3));
+    assertThrows(IllegalArgumentException.class, () -> U96.valueOf("-1", 0, 2));
+    assertThrows(IllegalArgumentException.class, () -> U96.valueOf("1", 1, 1));
+    assertThrows(IndexOutOfBoundsException.class, () -> U96.valueOf("1", 0, 2));
+  }
+
+  @Test
+  void valueOfPaddedCharSequence() {
+    assertEquals(U96.valueOf("123456789000000000000000000"), U96.valueOfPadded("x123456789x", 1, 10, 27, 0));
+    assertEquals(U96.valueOf("4111119999999999999"), U96.valueOfPadded(new StringBuilder("411111"), 0, 6, 19, 9));
+    assertEquals(U96.valueOf("411111"), U96.valueOfPadded("411111", 0, 6, 6, 9));
+  }
+
+  @Test
+  void valueOfBytes() {
+    byte[] b = "PAN12345678901234567890123;".getBytes(StandardCharsets.US_ASCII);
+    assertEquals(U96.valueOf("12345678901234567890123"), U96.valueOf(b, 3, 23));
+    assertEquals(U96.valueOf("123"), U96.valueOf(b, 3, 3));
+    assertThrows(IllegalArgumentException.class, () -> U96.valueOf(b, 0, 3));
+    assertThrows(IllegalArgumentException.class, () -> U96.valueOf(b, 3, 0));
+    assertThrows(IndexOutOfBoundsException.class, () -> U96.valueOf(b, 20, 10));
+    assertThrows(IndexOutOfBoundsException.class, () -> U96.valueOf(b, -1, 10));
+    assertThrows(IllegalArgumentException.class, () -> U96.valueOf(new byte[] {(byte) 0xB1}, 0, 1));
+  }
+
+  @Test
+  void valueOfPaddedBytes() {
+    byte[] b = "411111".getBytes(StandardCharsets.US_ASCII);
+    assertEquals(U96.valueOf("4111110000000000000"), U96.valueOfPadded(b, 0, 6, 19, 0));
+    assertEquals(U96.valueOf("411111999999999999999999999"), U96.valueOfPadded(b, 0, 6, 27, 9));
+    assertThrows(IllegalArgumentException.class, () -> U96.valueOfPadded(b, 0, 6, 5, 0));
+    assertThrows(IllegalArgumentException.class, () -> U96.valueOfPadded(b, 0, 6, 28, 0));
+    assertThrows(IllegalArgumentException.class, () -> U96.valueOfPadded(b, 0, 6, 19, 10));
+  }
+
+  @Test
+  void valueOfByteBuffer() {
+    ByteBuffer buffer = ByteBuffer.wrap("PAN12345678901234567890123;".getBytes(StandardCharsets.US_ASCII));
+    assertEquals(U96.valueOf("12345678901234567890123"), U96.valueOf(buffer, 3, 23));
+    assertEquals(0, buffer.position());
+    assertEquals(U96.valueOf("123000"), U96.valueOfPadded(buffer, 3, 3, 6, 0));
+    assertThrows(IndexOutOfBoundsException.class, () -> U96.valueOf(buffer, 20, 10));
+
+    ByteBuffer direct = ByteBuffer.allocateDirect(19);
+    direct.put("4111111111111111111".getBytes(StandardCharsets.US_ASCII));
+    assertEquals(U96.valueOf("4111111111111111111"), U96.valueOf(direct, 0, 19));
+  }
+
+  @Test
+  void appendToStringBuilder() {
+    assertAppendRoundTrip("0");
+    assertAppendRoundTrip("1");
+    assertAppendRoundTrip("999999999999999999");
+    assertAppendRoundTrip("1000000000000000000");
+    assertAppendRoundTrip("1000000000000000001");
+    assertAppendRoundTrip("123456789012345678901234567");
+    assertEquals("PAN:1", U96.valueOf("1").appendTo(new StringBuilder("PAN:")).toString());
+  }
+
+  @Test
+  void appendToBytes() {
+    assertAppendBytesRoundTrip("0");
+    assertAppendBytesRoundTrip("1");
+    assertAppendBytesRoundTrip("999999999999999999");
+    assertAppendBytesRoundTrip("1000000000000000000");
+    assertAppendBytesRoundTrip("1000000000000000001");
+    assertAppendBytesRoundTrip("123456789012345678901234567");
+
+    byte[] b = new byte[4];
+    assertEquals(2, U96.valueOf("42").appendTo(b, 1));
+    assertArrayEquals(new byte[] {0, '4', '2', 0}, b);
+    assertThrows(IndexOutOfBoundsException.class, () -> U96.valueOf("42").appendTo(b, 3));
+  }
+
   @Test
   void testEquals() {
     U96 parsed = U96.valueOf("1234567890123456789");
@@ -114,6 +222,47 @@ class U96Test {
     assertThrows(IllegalArgumentException.class, () -> U96.valueOf(s));
   }
 
+  private static void assertAppendRoundTrip(String s) {
+    assertEquals(s, U96.valueOf(s).appendTo(new StringBuilder()).toString());
+  }
+
+  private static void assertAppendBytesRoundTrip(String s) {
+    byte[] b = new byte[U96.MAX_LENGTH];
+    int length = U96.valueOf(s).appendTo(b, 0);
+    assertEquals(s, new String(b, 0, length, StandardCharsets.US_ASCII));
+    assertEquals(U96.valueOf(s), U96.valueOf(b, 0, length));
+  }
+
+  @Test
+  void estimatedSize() {
+    assertEquals(24L, U96.estimatedSize(U96.valueOf("123456789012")));
+  }
+
+  @Test
+  void prefix() {
+    ToIntFunction<U96> lowOnly = U96.prefix(10, 3);
+    assertEquals(0, lowOnly.applyAsInt(U96.valueOf("1234567")));
+    assertEquals(123, lowOnly.applyAsInt(U96.valueOf("1234567890")));
+    assertEquals(Integer.MAX_VALUE, lowOnly.applyAsInt(U96.valueOf("12345678901")));
+
+    ToIntFunction<U96> crossing = U96.prefix(19, 6);
+    assertEquals(400000, crossing.applyAsInt(U96.valueOf("4000001234567890123")));
+    assertEquals(0, crossing.applyAsInt(U96.valueOf("1234567890123")));
+    assertEquals(999999, crossing.applyAsInt(U96.valueOf("9999999999999999999")));
+    assertEquals(Integer.MAX_VALUE, crossing.applyAsInt(U96.valueOf("10000000000000000000")));
+
+    ToIntFunction<U96> highOnly = U96.prefix(27, 9);
+    assertEquals(123456789, highOnly.applyAsInt(U96.valueOf("123456789012345678901234567")));
+    assertEquals(1234, highOnly.applyAsInt(U96.valueOf("1234012345678901234567")));
+
+    ToIntFunction<U96> partOfHigh = U96.prefix(25, 3);
+    assertEquals(123, partOfHigh.applyAsInt(U96.valueOf("1234567012345678901234567")));
+
+    assertThrows(IllegalArgumentException.class, () -> U96.prefix(28, 3));
+    assertThrows(IllegalArgumentException.class, () -> U96.prefix(19, 10));
+    assertThrows(IllegalArgumentException.class, () -> U96.prefix(2, 3));
+  }
+
   private static void assertParseRoundTrip(String s) {
     assertEquals(s, U96.valueOf(s).toString());
   }